@@ -0,0 +1,311 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiI;
+import se.umu.cs.dv21cgn.radioinfo.api.ResilientRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.SingleFlightRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.controller.RadioInfoController;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless load generator driving a {@link RadioInfoController} from many simulated users at once,
+ * the way many views sharing one controller would.
+ * <p>
+ * The controller fetches from any {@link RadioApiI}. The harness first loads the channel list, then lets every user
+ * select random channels, fetch the channel list and refresh the cached schedules according to a {@link LoadHarnessConfig},
+ * and reports the throughput and latency of each operation together with the waits for the channel update locks.
+ * <p>
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar se.umu.cs.dv21cgn.radioinfo.benchmarks.ControllerLoadHarness}
+ * and the options {@code --users}, {@code --seconds}, {@code --think-ms}, {@code --channels}, {@code --latency-ms},
+ * {@code --jitter-ms}, {@code --error-rate}, {@code --resilient}, which wraps the API in a {@link ResilientRadioApi},
+ * and {@code --live}, which runs against the SR API instead of a {@link SrApiStandInServer}. Running with
+ * {@code -Dradioinfo.metrics=true} also prints the metrics of the API and the model after a stand-in run.
+ */
+public class ControllerLoadHarness {
+
+    private static final String[] OPERATIONS = {"selectChannel", "fetchChannels", "refresh"};
+    private static final int SELECT_CHANNEL = 0;
+    private static final int FETCH_CHANNELS = 1;
+    private static final int REFRESH = 2;
+
+    private final RadioApiI radioApi;
+    private final LoadHarnessConfig config;
+
+    /**
+     * Constructs a new ControllerLoadHarness.
+     *
+     * @param radioApi The API the controller fetches from.
+     * @param config The load to generate.
+     */
+    public ControllerLoadHarness(RadioApiI radioApi, LoadHarnessConfig config) {
+        this.radioApi = radioApi;
+        this.config = config;
+    }
+
+    /**
+     * Runs the load against a new controller and model.
+     *
+     * @return The report of the run.
+     * @throws HttpBadRequestException If the initial channel list request is bad.
+     * @throws IOException            If the initial channel list cannot be fetched.
+     * @throws URISyntaxException     If there is a syntax error in a URI.
+     * @throws InterruptedException   If the thread is interrupted while waiting for the users.
+     */
+    public LoadReport run() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        RadioInfoController radioInfoController = new RadioInfoController(new RadioInfoModel(), radioApi, config.refreshParallelism());
+        radioInfoController.fetchChannels();
+        List<Integer> channelIds = List.copyOf(radioInfoController.getChannels().keySet());
+        if (channelIds.isEmpty())
+            throw new IOException("The API returned no channels");
+
+        List<User> users = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < config.users(); i++) {
+            User user = new User(radioInfoController, channelIds, start);
+            users.add(user);
+            Thread thread = new Thread(user, "load-user-" + (i + 1));
+            thread.setDaemon(true);
+            user.thread = thread;
+            thread.start();
+        }
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + config.duration().toNanos();
+        for (User user : users) {
+            user.deadline = deadline;
+        }
+        start.countDown();
+        for (User user : users) {
+            user.thread.join();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+
+        List<LoadReport.OperationReport> operations = new ArrayList<>();
+        for (int operation = 0; operation < OPERATIONS.length; operation++) {
+            Samples samples = new Samples();
+            long errors = 0;
+            for (User user : users) {
+                samples.addAll(user.samples[operation]);
+                errors += user.errors[operation];
+            }
+            if (samples.size() > 0)
+                operations.add(samples.report(OPERATIONS[operation], errors, elapsed));
+        }
+        return new LoadReport(elapsed, config.users(), operations, radioInfoController.getChannelLockStatistics());
+    }
+
+    /**
+     * A simulated user running random operations until the deadline.
+     */
+    private final class User implements Runnable {
+        private final RadioInfoController radioInfoController;
+        private final List<Integer> channelIds;
+        private final CountDownLatch start;
+        private final Samples[] samples = {new Samples(), new Samples(), new Samples()};
+        private final long[] errors = new long[OPERATIONS.length];
+        private volatile long deadline;
+        private Thread thread;
+
+        /**
+         * Constructs a new User.
+         *
+         * @param radioInfoController The controller to drive.
+         * @param channelIds The channels to select from.
+         * @param start The latch released when all users may begin.
+         */
+        User(RadioInfoController radioInfoController, List<Integer> channelIds, CountDownLatch start) {
+            this.radioInfoController = radioInfoController;
+            this.channelIds = channelIds;
+            this.start = start;
+        }
+
+        /**
+         * Runs operations until the deadline has passed.
+         */
+        @Override
+        public void run() {
+            try {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int operation = pickOperation(random.nextInt(config.totalWeight()));
+                    long operationStart = System.nanoTime();
+                    try {
+                        switch (operation) {
+                            case SELECT_CHANNEL -> radioInfoController.selectChannel(channelIds.get(random.nextInt(channelIds.size())));
+                            case FETCH_CHANNELS -> radioInfoController.fetchChannels();
+                            default -> {
+                                if (radioInfoController.updateCachedSchedules().hasFailures())
+                                    errors[operation]++;
+                            }
+                        }
+                    } catch (HttpBadRequestException | IOException | URISyntaxException | RuntimeException e) {
+                        errors[operation]++;
+                    }
+                    samples[operation].add(System.nanoTime() - operationStart);
+                    if (!config.thinkTime().isZero())
+                        TimeUnit.NANOSECONDS.sleep(config.thinkTime().toNanos());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Maps a random number below the total weight to an operation.
+         *
+         * @param roll The random number.
+         * @return The index of the operation.
+         */
+        private int pickOperation(int roll) {
+            if (roll < config.selectChannelWeight())
+                return SELECT_CHANNEL;
+            if (roll < config.selectChannelWeight() + config.fetchChannelsWeight())
+                return FETCH_CHANNELS;
+            return REFRESH;
+        }
+    }
+
+    /**
+     * A growing list of latency samples in nanoseconds.
+     */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        /**
+         * Adds a sample.
+         *
+         * @param nanos The latency in nanoseconds.
+         */
+        void add(long nanos) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        /**
+         * Adds every sample of another list.
+         *
+         * @param other The samples to add.
+         */
+        void addAll(Samples other) {
+            if (size + other.size > values.length)
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        /**
+         * Returns the number of samples.
+         *
+         * @return The number of samples.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Summarizes the samples of an operation.
+         *
+         * @param operation The name of the operation.
+         * @param errors The number of failed operations.
+         * @param elapsed The duration of the run.
+         * @return The summary.
+         */
+        LoadReport.OperationReport report(String operation, long errors, Duration elapsed) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            double throughput = size / (elapsed.toNanos() / 1e9);
+            return new LoadReport.OperationReport(operation, size, errors, throughput,
+                    Duration.ofNanos(percentile(sorted, 0.50)), Duration.ofNanos(percentile(sorted, 0.99)), Duration.ofNanos(sorted[size - 1]));
+        }
+
+        /**
+         * Finds a percentile of sorted samples with the nearest-rank method.
+         *
+         * @param sorted The sorted samples.
+         * @param quantile The percentile as a fraction between 0 and 1.
+         * @return The sample at the percentile.
+         */
+        private static long percentile(long[] sorted, double quantile) {
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    /**
+     * Wraps an API the way the application does.
+     *
+     * @param radioApi The API to wrap.
+     * @param resilient True if failed requests are retried and fall back to the last good responses.
+     * @return The wrapped API.
+     */
+    private static RadioApiI decorate(RadioApiI radioApi, boolean resilient) {
+        return new SingleFlightRadioApi(resilient ? new ResilientRadioApi(radioApi) : radioApi);
+    }
+
+    /**
+     * Runs the harness from the command line and prints the report.
+     *
+     * @param args The options described in the class documentation.
+     * @throws Exception If the run cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        int users = 16;
+        int seconds = 30;
+        int thinkMillis = 0;
+        int channels = 300;
+        int latencyMillis = 40;
+        int jitterMillis = 20;
+        double errorRate = 0;
+        boolean resilient = false;
+        boolean live = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--users" -> users = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--think-ms" -> thinkMillis = Integer.parseInt(args[++i]);
+                case "--channels" -> channels = Integer.parseInt(args[++i]);
+                case "--latency-ms" -> latencyMillis = Integer.parseInt(args[++i]);
+                case "--jitter-ms" -> jitterMillis = Integer.parseInt(args[++i]);
+                case "--error-rate" -> errorRate = Double.parseDouble(args[++i]);
+                case "--resilient" -> resilient = true;
+                case "--live" -> live = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        LoadHarnessConfig config = LoadHarnessConfig.defaults()
+                .withUsers(users, Duration.ofSeconds(seconds))
+                .withThinkTime(Duration.ofMillis(thinkMillis));
+
+        if (live) {
+            System.out.print(new ControllerLoadHarness(decorate(new SrRadioApi(), resilient), config).run().format());
+            return;
+        }
+        StandInServerConfig serverConfig = StandInServerConfig.defaults()
+                .withLatency(Duration.ofMillis(latencyMillis), Duration.ofMillis(jitterMillis))
+                .withErrorRate(errorRate)
+                .withPayloads(channels, 1);
+        try (SrApiStandInServer server = new SrApiStandInServer(serverConfig)) {
+            RadioApiI radioApi = decorate(new SrRadioApi(HttpClient.newHttpClient(), server.baseUrl()), resilient);
+            System.out.print(new ControllerLoadHarness(radioApi, config).run().format());
+            System.out.printf("stand-in server: %d requests, %d injected failures%n", server.requestCount(), server.failureCount());
+        }
+        if (MetricsRegistry.global().isEnabled())
+            System.out.print(MetricsRegistry.global().snapshot().format());
+    }
+}
@@ -0,0 +1,85 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.controller.RadioInfoController;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the end-to-end throughput of fetching schedules through {@link RadioInfoController} and {@link SrRadioApi}
+ * over real HTTP connections to a {@link SrApiStandInServer}, from several threads at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ControllerThroughputBenchmark {
+
+    /**
+     * The latency of every response of the stand-in server, in milliseconds.
+     */
+    @Param({"0", "40"})
+    public int latencyMillis;
+
+    /**
+     * Whether the stand-in server revalidates unchanged responses with 304 Not Modified.
+     */
+    @Param({"false", "true"})
+    public boolean conditionalRequests;
+
+    private SrApiStandInServer server;
+    private RadioInfoController radioInfoController;
+    private List<Integer> channelIds;
+
+    /**
+     * Starts the server and loads the channel list through the controller.
+     *
+     * @throws HttpBadRequestException If the request is bad.
+     * @throws IOException            If the server cannot be started or an I/O error occurs.
+     * @throws URISyntaxException     If there is a syntax error in a URI.
+     * @throws InterruptedException   If the thread is interrupted while waiting.
+     */
+    @Setup
+    public void setUp() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        server = new SrApiStandInServer(StandInServerConfig.defaults()
+                .withLatency(Duration.ofMillis(latencyMillis), Duration.ofMillis(latencyMillis / 4))
+                .withConditionalRequests(conditionalRequests));
+        SrRadioApi srRadioApi = new SrRadioApi(HttpClient.newHttpClient(), server.baseUrl());
+        radioInfoController = new RadioInfoController(new RadioInfoModel(), srRadioApi);
+        radioInfoController.fetchChannels();
+        channelIds = List.copyOf(radioInfoController.getChannels().keySet());
+    }
+
+    /**
+     * Stops the server.
+     */
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Fetches the schedule of a random channel.
+     *
+     * @throws HttpBadRequestException If the request is bad.
+     * @throws IOException            If an I/O error occurs.
+     * @throws URISyntaxException     If there is a syntax error in a URI.
+     * @throws InterruptedException   If the thread is interrupted while waiting.
+     */
+    @Benchmark
+    public void fetchSchedule() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        radioInfoController.fetchSchedule(channelIds.get(ThreadLocalRandom.current().nextInt(channelIds.size())));
+    }
+}
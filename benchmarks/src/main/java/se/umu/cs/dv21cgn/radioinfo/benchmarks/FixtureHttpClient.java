@@ -0,0 +1,284 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * An HttpClient answering SR (Sveriges Radio) API requests from {@link Fixtures} without touching the network,
+ * so that benchmarks measure decoding rather than the connection.
+ * <p>
+ * Response bodies are handed to the body handler of each request as one buffer, the way the real client delivers a small response.
+ * Schedule requests for yesterday, today and tomorrow are answered with the first, second and third fixture day.
+ */
+public class FixtureHttpClient extends HttpClient {
+
+    private static final HttpHeaders NO_HEADERS = HttpHeaders.of(Map.of(), (name, value) -> true);
+
+    private final byte[] channels = Fixtures.channels();
+    private final byte[] program = Fixtures.program();
+    private final byte[][] scheduleDays = new byte[Fixtures.SCHEDULE_DAYS][];
+
+    /**
+     * Constructs a new FixtureHttpClient, loading every fixture up front.
+     */
+    public FixtureHttpClient() {
+        for (int day = 0; day < Fixtures.SCHEDULE_DAYS; day++) {
+            scheduleDays[day] = Fixtures.scheduleDay(day);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        try {
+            return sendAsync(request, responseBodyHandler).get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        byte[] body = bodyFor(request.uri());
+        int statusCode = body == null ? 404 : 200;
+        HttpResponse.BodySubscriber<T> subscriber = responseBodyHandler.apply(new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return statusCode;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return NO_HEADERS;
+            }
+
+            @Override
+            public Version version() {
+                return Version.HTTP_1_1;
+            }
+        });
+        subscriber.onSubscribe(new SingleBufferSubscription(subscriber, body == null ? new byte[0] : body));
+        return subscriber.getBody().toCompletableFuture().thenApply(result -> new FixtureResponse<>(request, statusCode, result));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        return sendAsync(request, responseBodyHandler);
+    }
+
+    /**
+     * Finds the fixture answering a request.
+     *
+     * @param uri The URI of the request.
+     * @return The response body, or null if no fixture answers the request.
+     */
+    private byte[] bodyFor(URI uri) {
+        String path = uri.getPath();
+        if (path.endsWith("/channels"))
+            return channels;
+        if (path.endsWith("/programs/" + Fixtures.CHANNEL_ID))
+            return program;
+        if (path.endsWith("/scheduledepisodes") && uri.getQuery() != null) {
+            String query = uri.getQuery();
+            int dateIndex = query.indexOf("date=");
+            if (dateIndex < 0 || !query.contains("channelid=" + Fixtures.CHANNEL_ID))
+                return null;
+            LocalDate date = LocalDate.parse(query.substring(dateIndex + 5, dateIndex + 15), DateTimeFormatter.ISO_LOCAL_DATE);
+            long day = date.toEpochDay() - LocalDate.now().minusDays(1).toEpochDay();
+            return day >= 0 && day < Fixtures.SCHEDULE_DAYS ? scheduleDays[(int) day] : null;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Redirect followRedirects() {
+        return Redirect.NEVER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SSLContext sslContext() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SSLParameters sslParameters() {
+        return new SSLParameters();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Version version() {
+        return Version.HTTP_1_1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Executor> executor() {
+        return Optional.empty();
+    }
+
+    /**
+     * A subscription delivering a whole body as one buffer on the first request for data.
+     */
+    private static final class SingleBufferSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<ByteBuffer>> subscriber;
+        private final byte[] body;
+        private boolean done;
+
+        /**
+         * Constructs a new SingleBufferSubscription.
+         *
+         * @param subscriber The subscriber to deliver the body to.
+         * @param body The body.
+         */
+        SingleBufferSubscription(Flow.Subscriber<? super List<ByteBuffer>> subscriber, byte[] body) {
+            this.subscriber = subscriber;
+            this.body = body;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void request(long n) {
+            if (done || n <= 0)
+                return;
+            done = true;
+            subscriber.onNext(List.of(ByteBuffer.wrap(body)));
+            subscriber.onComplete();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void cancel() {
+            done = true;
+        }
+    }
+
+    /**
+     * A completed response to a fixture request.
+     *
+     * @param request The request answered.
+     * @param statusCode The status code of the response.
+     * @param body The body of the response.
+     * @param <T> The type of the body.
+     */
+    private record FixtureResponse<T>(HttpRequest request, int statusCode, T body) implements HttpResponse<T> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return Optional.empty();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public HttpHeaders headers() {
+            return NO_HEADERS;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
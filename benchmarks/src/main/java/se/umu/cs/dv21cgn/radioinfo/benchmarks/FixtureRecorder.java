@@ -0,0 +1,64 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Records the fixtures of {@link Fixtures} from the live SR (Sveriges Radio) API, with the schedule days
+ * being yesterday, today and tomorrow.
+ * <p>
+ * Run from the benchmarks directory with
+ * {@code java -cp target/benchmarks.jar se.umu.cs.dv21cgn.radioinfo.benchmarks.FixtureRecorder [directory]},
+ * where the directory defaults to {@code src/main/resources/fixtures}.
+ */
+public class FixtureRecorder {
+
+    private static final String BASE_URL = "https://api.sr.se/api/v2/";
+
+    /**
+     * Records the fixtures.
+     *
+     * @param args The optional directory to write the fixtures to.
+     * @throws IOException If a fixture cannot be fetched or written.
+     * @throws InterruptedException If the thread is interrupted while waiting for a response.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "src/main/resources/fixtures");
+        Files.createDirectories(directory);
+        HttpClient httpClient = HttpClient.newHttpClient();
+
+        record(httpClient, "channels?format=json&pagination=false", directory.resolve(Fixtures.channelsName()));
+        record(httpClient, "programs/" + Fixtures.CHANNEL_ID + "?format=json", directory.resolve(Fixtures.programName()));
+        LocalDate firstDay = LocalDate.now().minusDays(1);
+        for (int day = 0; day < Fixtures.SCHEDULE_DAYS; day++) {
+            String path = "scheduledepisodes?channelid=" + Fixtures.CHANNEL_ID + "&format=json&pagination=false&date="
+                    + DateTimeFormatter.ISO_LOCAL_DATE.format(firstDay.plusDays(day));
+            record(httpClient, path, directory.resolve(Fixtures.scheduleDayName(day)));
+        }
+    }
+
+    /**
+     * Fetches a path of the API and writes the response body to a file.
+     *
+     * @param httpClient The client to fetch with.
+     * @param path The path relative to the API base URL.
+     * @param file The file to write.
+     * @throws IOException If the path cannot be fetched or the file cannot be written.
+     * @throws InterruptedException If the thread is interrupted while waiting for the response.
+     */
+    private static void record(HttpClient httpClient, String path, Path file) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + path)).GET().build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200)
+            throw new IOException("Unexpected status " + response.statusCode() + " for " + path);
+        Files.write(file, response.body());
+        System.out.println("Recorded " + file + " (" + response.body().length + " bytes)");
+    }
+}
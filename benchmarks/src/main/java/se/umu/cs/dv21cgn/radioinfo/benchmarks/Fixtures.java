@@ -0,0 +1,101 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The SR (Sveriges Radio) API payloads the benchmarks are run against, loaded from the {@code fixtures} resources.
+ * <p>
+ * The fixtures hold the channel list, the program of P1 and the schedule of P1 for three consecutive days,
+ * with every field the API returns. They are refreshed with {@link FixtureRecorder}.
+ */
+public final class Fixtures {
+
+    /**
+     * The channel whose program and schedule are included.
+     */
+    public static final int CHANNEL_ID = 132;
+
+    /**
+     * The number of consecutive schedule days included.
+     */
+    public static final int SCHEDULE_DAYS = 3;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the response of the channels endpoint.
+     *
+     * @return The response body.
+     */
+    public static byte[] channels() {
+        return load(channelsName());
+    }
+
+    /**
+     * Returns the response of the programs endpoint for {@link #CHANNEL_ID}.
+     *
+     * @return The response body.
+     */
+    public static byte[] program() {
+        return load(programName());
+    }
+
+    /**
+     * Returns the response of the scheduled episodes endpoint for {@link #CHANNEL_ID} on one of the included days.
+     *
+     * @param day The day, from 0 for the first up to {@link #SCHEDULE_DAYS} - 1 for the last.
+     * @return The response body.
+     */
+    public static byte[] scheduleDay(int day) {
+        return load(scheduleDayName(day));
+    }
+
+    /**
+     * Returns the resource name of the channels fixture.
+     *
+     * @return The file name within the fixtures directory.
+     */
+    static String channelsName() {
+        return "channels.json";
+    }
+
+    /**
+     * Returns the resource name of the program fixture.
+     *
+     * @return The file name within the fixtures directory.
+     */
+    static String programName() {
+        return "program-" + CHANNEL_ID + ".json";
+    }
+
+    /**
+     * Returns the resource name of a schedule day fixture.
+     *
+     * @param day The day, from 0 for the first up to {@link #SCHEDULE_DAYS} - 1 for the last.
+     * @return The file name within the fixtures directory.
+     */
+    static String scheduleDayName(int day) {
+        if (day < 0 || day >= SCHEDULE_DAYS)
+            throw new IllegalArgumentException("No schedule fixture for day " + day);
+        return "schedule-" + CHANNEL_ID + "-day" + day + ".json";
+    }
+
+    /**
+     * Loads a fixture from the resources.
+     *
+     * @param name The file name within the fixtures directory.
+     * @return The contents of the fixture.
+     */
+    private static byte[] load(String name) {
+        try (InputStream stream = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (stream == null)
+                throw new IllegalStateException("Missing fixture " + name);
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import java.time.Duration;
+
+/**
+ * The load generated by a {@link ControllerLoadHarness}.
+ * <p>
+ * Every simulated user repeatedly picks an operation at random, weighted by the operation weights,
+ * runs it and waits for the think time before the next one.
+ *
+ * @param users The number of simulated users running at the same time.
+ * @param duration How long the users keep running operations.
+ * @param thinkTime The pause of a user between two operations.
+ * @param selectChannelWeight The weight of selecting a random channel.
+ * @param fetchChannelsWeight The weight of fetching the channel list.
+ * @param refreshWeight The weight of refreshing every cached schedule.
+ * @param refreshParallelism The number of channels refreshed at the same time by the controller.
+ */
+public record LoadHarnessConfig(
+        int users,
+        Duration duration,
+        Duration thinkTime,
+        int selectChannelWeight,
+        int fetchChannelsWeight,
+        int refreshWeight,
+        int refreshParallelism
+) {
+
+    /**
+     * Validates the configuration.
+     */
+    public LoadHarnessConfig {
+        if (users < 1 || refreshParallelism < 1)
+            throw new IllegalArgumentException("Users and refresh parallelism must be positive");
+        if (duration.isNegative() || duration.isZero() || thinkTime.isNegative())
+            throw new IllegalArgumentException("Duration must be positive and think time must not be negative");
+        if (selectChannelWeight < 0 || fetchChannelsWeight < 0 || refreshWeight < 0 || selectChannelWeight + fetchChannelsWeight + refreshWeight == 0)
+            throw new IllegalArgumentException("Operation weights must not be negative and at least one must be positive");
+    }
+
+    /**
+     * Returns a configuration with 16 users running for 30 seconds without think time,
+     * mostly selecting channels with an occasional channel list fetch and schedule refresh.
+     *
+     * @return The default configuration.
+     */
+    public static LoadHarnessConfig defaults() {
+        return new LoadHarnessConfig(16, Duration.ofSeconds(30), Duration.ZERO, 90, 2, 8, 8);
+    }
+
+    /**
+     * Returns a copy of the configuration with another number of users and duration.
+     *
+     * @param users The number of simulated users.
+     * @param duration How long the users keep running operations.
+     * @return The new configuration.
+     */
+    public LoadHarnessConfig withUsers(int users, Duration duration) {
+        return new LoadHarnessConfig(users, duration, thinkTime, selectChannelWeight, fetchChannelsWeight, refreshWeight, refreshParallelism);
+    }
+
+    /**
+     * Returns a copy of the configuration with another think time.
+     *
+     * @param thinkTime The pause of a user between two operations.
+     * @return The new configuration.
+     */
+    public LoadHarnessConfig withThinkTime(Duration thinkTime) {
+        return new LoadHarnessConfig(users, duration, thinkTime, selectChannelWeight, fetchChannelsWeight, refreshWeight, refreshParallelism);
+    }
+
+    /**
+     * Returns a copy of the configuration with other operation weights.
+     *
+     * @param selectChannelWeight The weight of selecting a random channel.
+     * @param fetchChannelsWeight The weight of fetching the channel list.
+     * @param refreshWeight The weight of refreshing every cached schedule.
+     * @return The new configuration.
+     */
+    public LoadHarnessConfig withWeights(int selectChannelWeight, int fetchChannelsWeight, int refreshWeight) {
+        return new LoadHarnessConfig(users, duration, thinkTime, selectChannelWeight, fetchChannelsWeight, refreshWeight, refreshParallelism);
+    }
+
+    /**
+     * Returns a copy of the configuration with another refresh parallelism.
+     *
+     * @param refreshParallelism The number of channels refreshed at the same time.
+     * @return The new configuration.
+     */
+    public LoadHarnessConfig withRefreshParallelism(int refreshParallelism) {
+        return new LoadHarnessConfig(users, duration, thinkTime, selectChannelWeight, fetchChannelsWeight, refreshWeight, refreshParallelism);
+    }
+
+    /**
+     * Returns the sum of the operation weights.
+     *
+     * @return The total weight.
+     */
+    int totalWeight() {
+        return selectChannelWeight + fetchChannelsWeight + refreshWeight;
+    }
+}
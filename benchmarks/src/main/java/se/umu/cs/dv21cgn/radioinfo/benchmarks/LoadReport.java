@@ -0,0 +1,63 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import se.umu.cs.dv21cgn.radioinfo.controller.ChannelLockStatistics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The outcome of a run of a {@link ControllerLoadHarness}.
+ *
+ * @param duration The wall-clock duration of the run.
+ * @param users The number of simulated users.
+ * @param operations The outcome of every operation that was run at least once.
+ * @param lockStatistics How long the operations waited for the update locks of their channels.
+ */
+public record LoadReport(Duration duration, int users, List<OperationReport> operations, ChannelLockStatistics lockStatistics) {
+
+    /**
+     * Formats the report as a table for the console.
+     *
+     * @return The formatted report.
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%d users for %.1f s%n", users, duration.toNanos() / 1e9));
+        builder.append(String.format(Locale.ROOT, "%-16s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "max ms"));
+        for (OperationReport operation : operations) {
+            builder.append(String.format(Locale.ROOT, "%-16s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                    operation.operation(), operation.count(), operation.errors(), operation.throughput(),
+                    millis(operation.p50()), millis(operation.p99()), millis(operation.max())));
+        }
+        builder.append(String.format(Locale.ROOT, "channel update locks: %d acquisitions, %d contended, %.2f ms total wait, %.3f ms average, %.2f ms max%n",
+                lockStatistics.acquisitions(), lockStatistics.contended(), millis(lockStatistics.totalWait()),
+                millis(lockStatistics.averageWait()), millis(lockStatistics.maxWait())));
+        return builder.toString();
+    }
+
+    /**
+     * Converts a duration to fractional milliseconds.
+     *
+     * @param duration The duration.
+     * @return The duration in milliseconds.
+     */
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+
+    /**
+     * The outcome of one kind of operation.
+     *
+     * @param operation The name of the operation.
+     * @param count The number of completed operations, including failed ones.
+     * @param errors The number of operations that failed.
+     * @param throughput The number of completed operations per second.
+     * @param p50 The median latency.
+     * @param p99 The 99th percentile latency.
+     * @param max The highest latency.
+     */
+    public record OperationReport(String operation, long count, long errors, double throughput, Duration p50, Duration p99, Duration max) {
+    }
+}
@@ -0,0 +1,71 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiChannelsResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiJson;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleItemResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.model.Channel;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the channels of a {@link RadioInfoModel} holding every channel of {@link Fixtures},
+ * each with the three fixture schedule days.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RadioInfoModelBenchmark {
+
+    private RadioInfoModel radioInfoModel;
+
+    /**
+     * Fills the model with the fixture channels and schedules.
+     */
+    @Setup
+    public void setUp() {
+        String channelsBody = new String(Fixtures.channels(), StandardCharsets.UTF_8);
+        LinkedHashMap<Integer, Channel> channels = SrRadioApiJson.GSON.fromJson(channelsBody, SrRadioApiChannelsResponse.class).toChannelMap();
+
+        List<SrRadioApiScheduleItemResponse> items = new ArrayList<>();
+        for (int day = 0; day < Fixtures.SCHEDULE_DAYS; day++) {
+            String body = new String(Fixtures.scheduleDay(day), StandardCharsets.UTF_8);
+            items.addAll(SrRadioApiJson.GSON.fromJson(body, SrRadioApiScheduleResponse.class).schedule());
+        }
+        SrRadioApiScheduleResponse scheduleResponse = new SrRadioApiScheduleResponse(items);
+        channels.replaceAll((id, channel) -> new Channel(id, channel.name(), scheduleResponse.toSchedule()));
+
+        radioInfoModel = new RadioInfoModel();
+        radioInfoModel.setChannels(channels);
+    }
+
+    /**
+     * Reads a modifiable copy of the channels.
+     *
+     * @return The copy of the channels.
+     */
+    @Benchmark
+    public LinkedHashMap<Integer, Channel> getChannels() {
+        return radioInfoModel.getChannels();
+    }
+
+    /**
+     * Reads the immutable snapshot of the channels.
+     *
+     * @return The snapshot of the channels.
+     */
+    @Benchmark
+    public Map<Integer, Channel> getChannelSnapshot() {
+        return radioInfoModel.getChannelSnapshot();
+    }
+}
@@ -0,0 +1,116 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiJson;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleItemResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.model.Program;
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and querying a {@link Schedule} holding the three schedule days of {@link Fixtures}.
+ * The schedule clock is fixed at the middle of the fixture days, so the visible window holds the programs it would when the fixtures were recorded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleBenchmark {
+
+    private SrRadioApiScheduleResponse scheduleResponse;
+    private List<Program> programs;
+    private List<Program> shuffledPrograms;
+    private Clock clock;
+    private Schedule schedule;
+
+    /**
+     * Decodes the fixture days and fills the schedule queried by {@link #getPrograms()}.
+     */
+    @Setup
+    public void setUp() {
+        List<SrRadioApiScheduleItemResponse> items = new ArrayList<>();
+        for (int day = 0; day < Fixtures.SCHEDULE_DAYS; day++) {
+            String body = new String(Fixtures.scheduleDay(day), StandardCharsets.UTF_8);
+            items.addAll(SrRadioApiJson.GSON.fromJson(body, SrRadioApiScheduleResponse.class).schedule());
+        }
+        scheduleResponse = new SrRadioApiScheduleResponse(items);
+        programs = items.stream().map(SrRadioApiScheduleItemResponse::toProgram).toList();
+        shuffledPrograms = new ArrayList<>(programs);
+        Collections.shuffle(shuffledPrograms, new Random(132));
+
+        LocalDateTime middle = programs.get(programs.size() / 2).startTime();
+        ZoneId zone = ZoneId.systemDefault();
+        clock = Clock.fixed(middle.atZone(zone).toInstant(), zone);
+        schedule = newSchedule();
+        programs.forEach(schedule::add);
+    }
+
+    /**
+     * Converts the decoded response into a schedule.
+     *
+     * @return The schedule.
+     */
+    @Benchmark
+    public Schedule toSchedule() {
+        return scheduleResponse.toSchedule();
+    }
+
+    /**
+     * Adds the programs in the order the API returns them.
+     *
+     * @return The filled schedule.
+     */
+    @Benchmark
+    public Schedule addInOrder() {
+        Schedule filled = newSchedule();
+        for (Program program : programs) {
+            filled.add(program);
+        }
+        return filled;
+    }
+
+    /**
+     * Adds the programs in random order.
+     *
+     * @return The filled schedule.
+     */
+    @Benchmark
+    public Schedule addShuffled() {
+        Schedule filled = newSchedule();
+        for (Program program : shuffledPrograms) {
+            filled.add(program);
+        }
+        return filled;
+    }
+
+    /**
+     * Reads the programs within the visible window.
+     *
+     * @return The visible programs.
+     */
+    @Benchmark
+    public List<Program> getPrograms() {
+        return schedule.getPrograms();
+    }
+
+    /**
+     * Creates an empty schedule on the fixed clock with the default visible window.
+     *
+     * @return The empty schedule.
+     */
+    private Schedule newSchedule() {
+        return new Schedule(clock, Schedule.DEFAULT_WINDOW_BEFORE, Schedule.DEFAULT_WINDOW_AFTER);
+    }
+}
@@ -0,0 +1,75 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiDateParser;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting the start and end timestamps of a three-day schedule pull across all channels,
+ * comparing the substring based conversion the schedule items used before against {@link SrRadioApiDateParser}.
+ * <p>
+ * Allocations are reported with the GC profiler:
+ * {@code java -jar benchmarks/target/benchmarks.jar ScheduleTimestampBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleTimestampBenchmark {
+
+    /**
+     * The number of episodes in the pull, roughly 50 channels with 40 episodes on each of 3 days.
+     */
+    @Param({"6000"})
+    public int episodes;
+
+    private String[] timestamps;
+
+    /**
+     * Builds the start and end timestamps of consecutive half-hour episodes.
+     */
+    @Setup
+    public void setUp() {
+        timestamps = new String[episodes * 2];
+        long start = 1_700_000_000_000L;
+        for (int i = 0; i < episodes; i++) {
+            long end = start + 30 * 60 * 1000;
+            timestamps[2 * i] = "/Date(" + start + ")/";
+            timestamps[2 * i + 1] = "/Date(" + end + ")/";
+            start = end % (3 * 24 * 60 * 60 * 1000L) == 0 ? 1_700_000_000_000L : end;
+        }
+    }
+
+    /**
+     * Converts every timestamp with a substring, a parsed long, an instant and a freshly looked up zone.
+     *
+     * @param blackhole Consumes the converted date-times.
+     */
+    @Benchmark
+    public void substringConversion(Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            long millis = Long.parseLong(timestamp.substring(6, 19));
+            blackhole.consume(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), TimeZone.getDefault().toZoneId()));
+        }
+    }
+
+    /**
+     * Converts every timestamp with the shared parser.
+     *
+     * @param blackhole Consumes the converted date-times.
+     */
+    @Benchmark
+    public void parserConversion(Blackhole blackhole) {
+        SrRadioApiDateParser dateParser = SrRadioApiDateParser.systemDefault();
+        for (String timestamp : timestamps) {
+            blackhole.consume(dateParser.parse(timestamp));
+        }
+    }
+}
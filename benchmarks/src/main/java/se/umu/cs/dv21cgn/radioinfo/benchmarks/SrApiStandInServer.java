@@ -0,0 +1,349 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiDateParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local HTTP server standing in for the SR (Sveriges Radio) API, serving the {@code channels}, {@code programs}
+ * and {@code scheduledepisodes} endpoints from {@link Fixtures} on the loopback interface.
+ * <p>
+ * Unlike {@link FixtureHttpClient}, requests go through a real HTTP connection, so the client's connection reuse,
+ * concurrency limits and timeouts take part in a measurement. Latency, jitter, failures and payload sizes are set by
+ * a {@link StandInServerConfig}. Every channel ID is answered with the fixture program and schedule. Schedule
+ * requests for yesterday, today and tomorrow are answered with the first, second and third fixture day, moved to the
+ * requested date so that the served schedules are always current.
+ * <p>
+ * Requests are handled on a cached thread pool, so a delayed response does not hold up other connections.
+ * Run standalone with {@code java -cp benchmarks/target/benchmarks.jar se.umu.cs.dv21cgn.radioinfo.benchmarks.SrApiStandInServer [port]}.
+ */
+public class SrApiStandInServer implements AutoCloseable {
+
+    private static final String CONTEXT = "/api/v2/";
+    private static final byte[] ERROR_BODY = "{\"error\":{\"code\":500,\"message\":\"Injected failure\"}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NOT_FOUND_BODY = "{\"error\":{\"code\":404,\"message\":\"Not found\"}}".getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // The JDK server writes headers and body separately and leaves Nagle's algorithm on unless told otherwise,
+        // which stalls every small response on the client's delayed acknowledgement.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final StandInServerConfig config;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final Payload channels;
+    private final Payload program;
+    private final byte[][] scheduleDays;
+    private final LocalDate[] scheduleDayDates;
+    private final ConcurrentHashMap<LocalDate, Payload> schedulesByDate = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    /**
+     * Starts a new server on an ephemeral port of the loopback interface.
+     *
+     * @param config The behaviour of the server.
+     * @throws IOException If the server cannot be started.
+     */
+    public SrApiStandInServer(StandInServerConfig config) throws IOException {
+        this(config, 0);
+    }
+
+    /**
+     * Starts a new server on a port of the loopback interface.
+     *
+     * @param config The behaviour of the server.
+     * @param port The port to listen on, or 0 for an ephemeral port.
+     * @throws IOException If the server cannot be started.
+     */
+    public SrApiStandInServer(StandInServerConfig config, int port) throws IOException {
+        this.config = config;
+        this.channels = new Payload(scaleChannels(Fixtures.channels(), config.channelCount()));
+        this.program = new Payload(Fixtures.program());
+        this.scheduleDays = new byte[Fixtures.SCHEDULE_DAYS][];
+        this.scheduleDayDates = new LocalDate[Fixtures.SCHEDULE_DAYS];
+        for (int day = 0; day < Fixtures.SCHEDULE_DAYS; day++) {
+            scheduleDays[day] = scaleSchedule(Fixtures.scheduleDay(day), config.scheduleRepeat());
+            scheduleDayDates[day] = firstEpisodeDate(scheduleDays[day]);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sr-stand-in-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext(CONTEXT, this::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+    }
+
+    /**
+     * Returns the base URL of the server, to be given to {@link se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi}.
+     *
+     * @return The base URL, ending with a slash.
+     */
+    public String baseUrl() {
+        return "http://" + httpServer.getAddress().getHostString() + ":" + httpServer.getAddress().getPort() + CONTEXT;
+    }
+
+    /**
+     * Returns the number of requests received.
+     *
+     * @return The number of requests.
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns the number of requests answered with an injected failure.
+     *
+     * @return The number of failed requests.
+     */
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of requests answered with 304 Not Modified.
+     *
+     * @return The number of revalidated requests.
+     */
+    public long notModifiedCount() {
+        return notModified.sum();
+    }
+
+    /**
+     * Stops the server, closing open connections.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answers a request after the configured delay.
+     *
+     * @param exchange The request and its response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            delay();
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+
+            if (config.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.errorRate()) {
+                failures.increment();
+                send(exchange, 500, ERROR_BODY);
+                return;
+            }
+
+            Payload payload = payloadFor(exchange.getRequestURI());
+            if (payload == null) {
+                send(exchange, 404, NOT_FOUND_BODY);
+                return;
+            }
+            if (config.conditionalRequests()) {
+                exchange.getResponseHeaders().set("ETag", payload.etag());
+                if (payload.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.increment();
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            send(exchange, 200, payload.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sleeps for the configured latency plus a random part of the jitter.
+     *
+     * @throws InterruptedException If the server is closed while sleeping.
+     */
+    private void delay() throws InterruptedException {
+        long nanos = config.latency().toNanos();
+        long jitterNanos = config.jitter().toNanos();
+        if (jitterNanos > 0)
+            nanos += ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        if (nanos > 0)
+            TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+
+    /**
+     * Sends a response with a body.
+     *
+     * @param exchange The request and its response.
+     * @param statusCode The status code.
+     * @param body The body.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void send(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Finds the payload answering a request.
+     *
+     * @param uri The URI of the request.
+     * @return The payload, or null if the endpoint is unknown.
+     */
+    private Payload payloadFor(URI uri) {
+        String endpoint = uri.getPath().substring(CONTEXT.length());
+        if (endpoint.equals("channels"))
+            return channels;
+        if (endpoint.startsWith("programs/"))
+            return program;
+        if (endpoint.equals("scheduledepisodes")) {
+            String query = uri.getQuery() == null ? "" : uri.getQuery();
+            int dateIndex = query.indexOf("date=");
+            LocalDate date = dateIndex < 0 ? LocalDate.now() : LocalDate.parse(query.substring(dateIndex + 5, Math.min(query.length(), dateIndex + 15)));
+            return schedulesByDate.computeIfAbsent(date, this::scheduleFor);
+        }
+        return null;
+    }
+
+    /**
+     * Builds the schedule served for a date from the fixture day at the same position relative to today,
+     * with every episode moved to the date so that the schedule is current.
+     *
+     * @param date The requested date.
+     * @return The schedule payload.
+     */
+    private Payload scheduleFor(LocalDate date) {
+        long day = date.toEpochDay() - LocalDate.now().minusDays(1).toEpochDay();
+        int index = (int) Math.max(0, Math.min(Fixtures.SCHEDULE_DAYS - 1, day));
+        long shiftMillis = TimeUnit.DAYS.toMillis(date.toEpochDay() - scheduleDayDates[index].toEpochDay());
+
+        JsonObject response = JsonParser.parseString(new String(scheduleDays[index], StandardCharsets.UTF_8)).getAsJsonObject();
+        for (JsonElement episode : response.getAsJsonArray("schedule")) {
+            JsonObject episodeObject = episode.getAsJsonObject();
+            for (String field : new String[]{"starttimeutc", "endtimeutc"}) {
+                long millis = SrRadioApiDateParser.parseEpochMillis(episodeObject.get(field).getAsString());
+                episodeObject.addProperty(field, "/Date(" + (millis + shiftMillis) + ")/");
+            }
+        }
+        return new Payload(response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finds the local date of the first episode of a fixture schedule day.
+     *
+     * @param scheduleDay The fixture schedule day.
+     * @return The date the fixture day was recorded for.
+     */
+    private static LocalDate firstEpisodeDate(byte[] scheduleDay) {
+        JsonObject response = JsonParser.parseString(new String(scheduleDay, StandardCharsets.UTF_8)).getAsJsonObject();
+        String startTime = response.getAsJsonArray("schedule").get(0).getAsJsonObject().get("starttimeutc").getAsString();
+        return SrRadioApiDateParser.systemDefault().parse(startTime).toLocalDate();
+    }
+
+    /**
+     * Builds a channel list of a given size from the fixture channels, copying them with new IDs as needed.
+     *
+     * @param fixture The fixture channel list.
+     * @param channelCount The number of channels to include.
+     * @return The channel list.
+     */
+    private static byte[] scaleChannels(byte[] fixture, int channelCount) {
+        JsonObject response = JsonParser.parseString(new String(fixture, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray fixtureChannels = response.getAsJsonArray("channels");
+        JsonArray channels = new JsonArray(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            JsonObject channel = fixtureChannels.get(i % fixtureChannels.size()).getAsJsonObject().deepCopy();
+            if (i >= fixtureChannels.size()) {
+                channel.addProperty("id", 100_000 + i);
+                channel.addProperty("name", channel.get("name").getAsString() + " " + (i / fixtureChannels.size() + 1));
+            }
+            channels.add(channel);
+        }
+        response.add("channels", channels);
+        return response.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Repeats the episodes of a fixture schedule day.
+     *
+     * @param fixture The fixture schedule day.
+     * @param repeat How many times the episodes are included.
+     * @return The schedule day.
+     */
+    private static byte[] scaleSchedule(byte[] fixture, int repeat) {
+        if (repeat == 1)
+            return fixture;
+        JsonObject response = JsonParser.parseString(new String(fixture, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray fixtureEpisodes = response.getAsJsonArray("schedule");
+        JsonArray episodes = new JsonArray(fixtureEpisodes.size() * repeat);
+        for (int i = 0; i < repeat; i++) {
+            for (JsonElement episode : fixtureEpisodes) {
+                episodes.add(episode.deepCopy());
+            }
+        }
+        response.add("schedule", episodes);
+        return response.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts a server with the default configuration and keeps it running until the process is stopped.
+     *
+     * @param args The optional port to listen on.
+     * @throws IOException If the server cannot be started.
+     * @throws InterruptedException If the thread is interrupted while serving.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        SrApiStandInServer server = new SrApiStandInServer(StandInServerConfig.defaults().withLatency(Duration.ofMillis(40), Duration.ofMillis(20)), port);
+        System.out.println("Serving SR API fixtures at " + server.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * A response body together with its entity tag.
+     *
+     * @param body The body.
+     * @param etag The entity tag of the body.
+     */
+    private record Payload(byte[] body, String etag) {
+        /**
+         * Constructs a new Payload, deriving the entity tag from the body.
+         *
+         * @param body The body.
+         */
+        Payload(byte[] body) {
+            this(body, "\"" + Integer.toHexString(Arrays.hashCode(body)) + "-" + body.length + "\"");
+        }
+    }
+}
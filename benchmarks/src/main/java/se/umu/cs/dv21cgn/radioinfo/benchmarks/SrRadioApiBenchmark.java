@@ -0,0 +1,77 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiChannelsResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiProgramResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the requests of {@link SrRadioApi} end to end against {@link Fixtures}, from handing the body to the
+ * response handler to the decoded response, with {@link FixtureHttpClient} standing in for the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SrRadioApiBenchmark {
+
+    private SrRadioApi srRadioApi;
+
+    /**
+     * Creates the API on top of the fixtures.
+     */
+    @Setup
+    public void setUp() {
+        srRadioApi = new SrRadioApi(new FixtureHttpClient());
+    }
+
+    /**
+     * Fetches and decodes the channel list.
+     *
+     * @return The decoded channel list.
+     * @throws HttpBadRequestException If the request is bad.
+     * @throws IOException            If an I/O error occurs.
+     * @throws URISyntaxException     If there is a syntax error in a URI.
+     * @throws InterruptedException   If the thread is interrupted while waiting.
+     */
+    @Benchmark
+    public SrRadioApiChannelsResponse channels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return srRadioApi.getChannels();
+    }
+
+    /**
+     * Fetches and decodes a program.
+     *
+     * @return The decoded program.
+     * @throws HttpBadRequestException If the request is bad.
+     * @throws IOException            If an I/O error occurs.
+     * @throws URISyntaxException     If there is a syntax error in a URI.
+     * @throws InterruptedException   If the thread is interrupted while waiting.
+     */
+    @Benchmark
+    public SrRadioApiProgramResponse program() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return srRadioApi.getProgram(Fixtures.CHANNEL_ID);
+    }
+
+    /**
+     * Fetches, decodes and merges the three schedule days of a channel.
+     *
+     * @return The merged schedule.
+     * @throws HttpBadRequestException If a request is bad.
+     * @throws IOException            If an I/O error occurs.
+     * @throws URISyntaxException     If there is a syntax error in a URI.
+     * @throws InterruptedException   If the thread is interrupted while waiting.
+     */
+    @Benchmark
+    public SrRadioApiScheduleResponse schedule() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return srRadioApi.getSchedule(Fixtures.CHANNEL_ID);
+    }
+}
@@ -0,0 +1,145 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiChannelsResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiJson;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleResponse;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request cost of decoding SR API responses and formatting request dates,
+ * comparing a new reflective {@link Gson} and date pattern per request against the shared instances used by the API.
+ * <p>
+ * Run with {@code mvn -f benchmarks/pom.xml package && java -jar benchmarks/target/benchmarks.jar SrRadioApiDecodingBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SrRadioApiDecodingBenchmark {
+
+    /**
+     * The number of episodes in the decoded schedule, roughly one day of a talk channel.
+     */
+    @Param({"40"})
+    public int episodes;
+
+    /**
+     * The number of channels in the decoded channel list, roughly the size of the SR channel list.
+     */
+    @Param({"50"})
+    public int channels;
+
+    private String scheduleJson;
+    private String channelsJson;
+    private LocalDate date;
+
+    /**
+     * Builds the response bodies decoded by the benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder schedule = new StringBuilder("{\"copyright\":\"Copyright Sveriges Radio\",\"schedule\":[");
+        long start = 1_700_000_000_000L;
+        for (int i = 0; i < episodes; i++) {
+            if (i > 0)
+                schedule.append(',');
+            long end = start + 30 * 60 * 1000;
+            schedule.append("{\"episodeid\":").append(1000 + i)
+                    .append(",\"title\":\"Episode ").append(i)
+                    .append("\",\"description\":\"A description of episode ").append(i)
+                    .append("\",\"starttimeutc\":\"/Date(").append(start)
+                    .append(")/\",\"endtimeutc\":\"/Date(").append(end)
+                    .append(")/\",\"program\":{\"id\":").append(i)
+                    .append(",\"name\":\"Program ").append(i)
+                    .append("\"},\"channel\":{\"id\":132,\"name\":\"P1\"},\"imageurl\":\"https://static-cdn.sr.se/images/")
+                    .append(i).append(".jpg\"}");
+            start = end;
+        }
+        scheduleJson = schedule.append("]}").toString();
+
+        StringBuilder channelList = new StringBuilder("{\"copyright\":\"Copyright Sveriges Radio\",\"channels\":[");
+        for (int i = 0; i < channels; i++) {
+            if (i > 0)
+                channelList.append(',');
+            channelList.append("{\"id\":").append(100 + i)
+                    .append(",\"name\":\"Channel ").append(i)
+                    .append("\",\"image\":\"https://static-cdn.sr.se/images/channel").append(i)
+                    .append(".png\",\"color\":\"31a1bd\",\"tagline\":\"A tagline\",\"siteurl\":\"https://sverigesradio.se\",\"channeltype\":\"Rikskanal\"}");
+        }
+        channelList.append("]}");
+        channelsJson = channelList.toString();
+
+        date = LocalDate.of(2023, 11, 14);
+    }
+
+    /**
+     * Decodes a schedule with a new Gson per request, reflecting over the records every time.
+     *
+     * @return The decoded schedule.
+     */
+    @Benchmark
+    public SrRadioApiScheduleResponse scheduleWithNewGson() {
+        JsonObject jsonObject = JsonParser.parseString(scheduleJson).getAsJsonObject();
+        return new Gson().fromJson(jsonObject, SrRadioApiScheduleResponse.class);
+    }
+
+    /**
+     * Decodes a schedule with the shared Gson and its registered adapters.
+     *
+     * @return The decoded schedule.
+     */
+    @Benchmark
+    public SrRadioApiScheduleResponse scheduleWithSharedGson() {
+        return SrRadioApiJson.GSON.fromJson(scheduleJson, SrRadioApiScheduleResponse.class);
+    }
+
+    /**
+     * Decodes the channel list with a new Gson per request, reflecting over the records every time.
+     *
+     * @return The decoded channel list.
+     */
+    @Benchmark
+    public SrRadioApiChannelsResponse channelsWithNewGson() {
+        JsonObject jsonObject = JsonParser.parseString(channelsJson).getAsJsonObject();
+        return new Gson().fromJson(jsonObject, SrRadioApiChannelsResponse.class);
+    }
+
+    /**
+     * Decodes the channel list with the shared Gson and its registered adapters.
+     *
+     * @return The decoded channel list.
+     */
+    @Benchmark
+    public SrRadioApiChannelsResponse channelsWithSharedGson() {
+        return SrRadioApiJson.GSON.fromJson(channelsJson, SrRadioApiChannelsResponse.class);
+    }
+
+    /**
+     * Formats a request date with a pattern compiled per request.
+     *
+     * @return The formatted date.
+     */
+    @Benchmark
+    public String dateWithNewFormatter() {
+        return date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+    }
+
+    /**
+     * Formats a request date with the precompiled ISO formatter.
+     *
+     * @return The formatted date.
+     */
+    @Benchmark
+    public String dateWithSharedFormatter() {
+        return DateTimeFormatter.ISO_LOCAL_DATE.format(date);
+    }
+}
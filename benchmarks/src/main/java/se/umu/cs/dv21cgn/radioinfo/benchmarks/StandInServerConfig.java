@@ -0,0 +1,86 @@
+package se.umu.cs.dv21cgn.radioinfo.benchmarks;
+
+import java.time.Duration;
+
+/**
+ * The behaviour of a {@link SrApiStandInServer}.
+ *
+ * @param latency The delay before every response is sent.
+ * @param jitter The maximum random delay added to the latency of a response.
+ * @param errorRate The probability, between 0 and 1, that a request is answered with 500 Internal Server Error.
+ * @param channelCount The number of channels in the channel list. Channels beyond the fixture channels are copies with new IDs.
+ * @param scheduleRepeat How many times the episodes of a fixture schedule day are repeated in a response, scaling its size.
+ * @param conditionalRequests True if responses carry an ETag and matching If-None-Match requests are answered with 304 Not Modified.
+ */
+public record StandInServerConfig(
+        Duration latency,
+        Duration jitter,
+        double errorRate,
+        int channelCount,
+        int scheduleRepeat,
+        boolean conditionalRequests
+) {
+
+    /**
+     * Validates the configuration.
+     */
+    public StandInServerConfig {
+        if (latency.isNegative() || jitter.isNegative())
+            throw new IllegalArgumentException("Latency and jitter must not be negative");
+        if (errorRate < 0 || errorRate > 1)
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + errorRate);
+        if (channelCount < 1 || scheduleRepeat < 1)
+            throw new IllegalArgumentException("Channel count and schedule repeat must be positive");
+    }
+
+    /**
+     * Returns a configuration serving the fixtures as recorded, without delays, errors or validators.
+     *
+     * @return The default configuration.
+     */
+    public static StandInServerConfig defaults() {
+        return new StandInServerConfig(Duration.ZERO, Duration.ZERO, 0, 1, 1, false);
+    }
+
+    /**
+     * Returns a copy of the configuration with other delays.
+     *
+     * @param latency The delay before every response is sent.
+     * @param jitter The maximum random delay added to the latency.
+     * @return The new configuration.
+     */
+    public StandInServerConfig withLatency(Duration latency, Duration jitter) {
+        return new StandInServerConfig(latency, jitter, errorRate, channelCount, scheduleRepeat, conditionalRequests);
+    }
+
+    /**
+     * Returns a copy of the configuration with another error rate.
+     *
+     * @param errorRate The probability, between 0 and 1, that a request fails.
+     * @return The new configuration.
+     */
+    public StandInServerConfig withErrorRate(double errorRate) {
+        return new StandInServerConfig(latency, jitter, errorRate, channelCount, scheduleRepeat, conditionalRequests);
+    }
+
+    /**
+     * Returns a copy of the configuration with other payload sizes.
+     *
+     * @param channelCount The number of channels in the channel list.
+     * @param scheduleRepeat How many times the episodes of a schedule day are repeated.
+     * @return The new configuration.
+     */
+    public StandInServerConfig withPayloads(int channelCount, int scheduleRepeat) {
+        return new StandInServerConfig(latency, jitter, errorRate, channelCount, scheduleRepeat, conditionalRequests);
+    }
+
+    /**
+     * Returns a copy of the configuration with conditional requests turned on or off.
+     *
+     * @param conditionalRequests True if responses carry an ETag and are revalidated.
+     * @return The new configuration.
+     */
+    public StandInServerConfig withConditionalRequests(boolean conditionalRequests) {
+        return new StandInServerConfig(latency, jitter, errorRate, channelCount, scheduleRepeat, conditionalRequests);
+    }
+}
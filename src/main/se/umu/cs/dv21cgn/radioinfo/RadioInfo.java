@@ -1,13 +1,98 @@
 package se.umu.cs.dv21cgn.radioinfo;
 
+import se.umu.cs.dv21cgn.radioinfo.api.ResilientRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.SingleFlightRadioApi;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi;
 import se.umu.cs.dv21cgn.radioinfo.controller.RadioInfoController;
+import se.umu.cs.dv21cgn.radioinfo.daemon.RadioInfoDaemon;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsEndpoint;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
+import se.umu.cs.dv21cgn.radioinfo.model.ChannelCacheFile;
 import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
 import se.umu.cs.dv21cgn.radioinfo.view.RadioInfoView;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
 public class RadioInfo {
+
+    /**
+     * Starts the application. With {@code --daemon} no window is shown and the model is served over HTTP on the
+     * loopback interface instead, on the port given by {@code --port} or {@value RadioInfoDaemon#DEFAULT_PORT}.
+     *
+     * @param args The command line arguments.
+     */
     public static void main(String[] args) {
+        publishMetrics();
         RadioInfoModel radioInfoModel = new RadioInfoModel();
-        RadioInfoController radioInfoController = new RadioInfoController(radioInfoModel, new SrRadioApi());
-        new RadioInfoView(radioInfoController);
+        RadioInfoController radioInfoController = new RadioInfoController(radioInfoModel, new SingleFlightRadioApi(new ResilientRadioApi(new SrRadioApi())));
+        List<String> arguments = Arrays.asList(args);
+        if (arguments.contains("--daemon")) {
+            runDaemon(radioInfoModel, radioInfoController, arguments);
+        } else {
+            new RadioInfoView(radioInfoController);
+        }
+    }
+
+    /**
+     * Runs the application headless, serving the model until the process is stopped.
+     *
+     * @param radioInfoModel The model to serve.
+     * @param radioInfoController The controller updating the model.
+     * @param arguments The command line arguments.
+     */
+    private static void runDaemon(RadioInfoModel radioInfoModel, RadioInfoController radioInfoController, List<String> arguments) {
+        int portIndex = arguments.indexOf("--port");
+        String portArgument = portIndex >= 0 && portIndex + 1 < arguments.size() ? arguments.get(portIndex + 1) : null;
+        int port;
+        try {
+            port = portArgument == null ? RadioInfoDaemon.DEFAULT_PORT : Integer.parseInt(portArgument);
+        } catch (NumberFormatException e) {
+            System.err.println("Could not serve radio information on port " + portArgument + ": not a port number");
+            System.exit(1);
+            return;
+        }
+        try {
+            RadioInfoDaemon daemon = new RadioInfoDaemon(radioInfoModel, radioInfoController, ChannelCacheFile.atDefaultLocation(), port, RadioInfoDaemon.DEFAULT_REFRESH_INTERVAL);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                daemon.close();
+                radioInfoController.close();
+            }));
+            daemon.start();
+            System.out.println("Serving radio information on http://127.0.0.1:" + daemon.port());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not serve radio information on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Publishes the global metrics on the port given by {@value MetricsEndpoint#PORT_PROPERTY} and writes them to the
+     * file given by {@value MetricsRegistry#FILE_PROPERTY} on exit, turning the metrics on if either is set.
+     */
+    private static void publishMetrics() {
+        MetricsRegistry registry = MetricsRegistry.global();
+        String port = System.getProperty(MetricsEndpoint.PORT_PROPERTY);
+        String file = System.getProperty(MetricsRegistry.FILE_PROPERTY);
+        if (port != null) {
+            registry.setEnabled(true);
+            try {
+                new MetricsEndpoint(registry, Integer.parseInt(port));
+            } catch (IOException e) {
+                System.err.println("Could not publish metrics on port " + port + ": " + e.getMessage());
+            }
+        }
+        if (file != null) {
+            registry.setEnabled(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    registry.writeTo(Path.of(file));
+                } catch (IOException e) {
+                    System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+                }
+            }));
+        }
     }
 }
@@ -0,0 +1,51 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for waiting on asynchronous API calls from the blocking API methods.
+ */
+final class ApiFutures {
+
+    private ApiFutures() {
+    }
+
+    /**
+     * Waits for an asynchronous API call to complete and rethrows its failure as the checked
+     * exceptions used by the blocking API methods. If the waiting thread is interrupted the call is cancelled.
+     *
+     * @param future The future to wait for.
+     * @param <T> The type of the result.
+     * @return The result of the future.
+     * @throws HttpBadRequestException If the HTTP response status code is 400 (Bad Request).
+     * @throws IOException If an I/O error occurs during the request.
+     * @throws InterruptedException If the request is interrupted.
+     * @throws URISyntaxException If there is a syntax error in the provided URI.
+     */
+    static <T> T await(CompletableFuture<T> future) throws HttpBadRequestException, IOException, InterruptedException, URISyntaxException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof HttpBadRequestException badRequest)
+                throw badRequest;
+            if (cause instanceof IOException ioException)
+                throw ioException;
+            if (cause instanceof URISyntaxException uriSyntaxException)
+                throw uriSyntaxException;
+            if (cause instanceof InterruptedException interruptedException)
+                throw interruptedException;
+            if (cause instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A circuit breaker that stops requests to an endpoint that keeps failing, so that a struggling server is not
+ * flooded with requests that are bound to fail and callers fail fast instead of waiting for timeouts.
+ * <p>
+ * The breaker is closed while requests succeed. After a number of consecutive failures it opens and rejects every
+ * request for a while. Once that time has passed it is half open and lets a single trial request through: the breaker
+ * closes if the trial succeeds and opens again if it fails. The breaker is safe to use from any thread.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        /** Requests are let through. */
+        CLOSED,
+        /** Requests are rejected. */
+        OPEN,
+        /** A single trial request is let through. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private State state;
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * Constructs a new closed CircuitBreaker.
+     *
+     * @param failureThreshold The number of consecutive failures that opens the breaker.
+     * @param openDuration How long the breaker rejects requests once it has opened.
+     * @param clock The clock deciding when the breaker may let a trial request through.
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        if (failureThreshold < 1)
+            throw new IllegalArgumentException("The failure threshold must be positive: " + failureThreshold);
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+        this.state = State.CLOSED;
+    }
+
+    /**
+     * Asks to send a request. Every permitted request must be followed by a call to {@link #recordSuccess()},
+     * {@link #recordFailure()} or {@link #release()}.
+     *
+     * @return True if the request may be sent, or false if the breaker rejects it.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration)))
+            state = State.HALF_OPEN;
+        if (state == State.CLOSED)
+            return true;
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that a permitted request reached the server, which closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Records that a permitted request failed, which opens the breaker if the request was a trial or the failure
+     * threshold has been reached.
+     */
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.instant();
+        }
+    }
+
+    /**
+     * Records that a permitted request ended without telling whether the server works, for example because it
+     * was cancelled, so that another trial request may be sent.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Returns the state of the breaker. An open breaker whose open duration has passed is reported as half open.
+     *
+     * @return The state.
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration)))
+            return State.HALF_OPEN;
+        return state;
+    }
+}
@@ -0,0 +1,18 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown instead of sending a request to an endpoint whose circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    /**
+     * Constructs a new CircuitOpenException.
+     *
+     * @param endpoint The endpoint whose circuit breaker rejected the request.
+     */
+    public CircuitOpenException(String endpoint) {
+        super("The circuit breaker of " + endpoint + " is open");
+    }
+}
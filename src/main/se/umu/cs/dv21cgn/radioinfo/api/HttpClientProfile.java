@@ -0,0 +1,141 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The settings of the HttpClient and the requests used by a {@link RadioApi}.
+ * <p>
+ * The defaults prefer HTTP/2, so that the many concurrent schedule requests of a bulk refresh are multiplexed on a
+ * single connection, and run the clients on one executor shared by every client built from a profile, so that
+ * several API instances do not each start their own threads.
+ *
+ * @param version The preferred HTTP version. The client falls back to HTTP/1.1 if the server does not support HTTP/2.
+ * @param executor The executor running the asynchronous tasks of the client.
+ * @param connectTimeout How long to wait for a connection to be established.
+ * @param requestTimeout How long to wait for the response headers of a request.
+ * @param compression True if responses are requested gzip compressed with Accept-Encoding.
+ */
+public record HttpClientProfile(
+        HttpClient.Version version,
+        ExecutorService executor,
+        Duration connectTimeout,
+        Duration requestTimeout,
+        boolean compression
+) {
+
+    /**
+     * The executor shared by the clients of the default profile. Its threads are daemon threads, so it never keeps the
+     * application alive, and idle threads are stopped after a minute.
+     */
+    public static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    /**
+     * Validates the profile.
+     */
+    public HttpClientProfile {
+        if (version == null || executor == null)
+            throw new IllegalArgumentException("Version and executor must not be null");
+        if (!connectTimeout.isPositive() || !requestTimeout.isPositive())
+            throw new IllegalArgumentException("Timeouts must be positive");
+    }
+
+    /**
+     * Returns the default profile: HTTP/2 on the shared executor, connecting within 5 seconds, expecting responses
+     * within 20 seconds and requesting gzip compressed responses.
+     *
+     * @return The default profile.
+     */
+    public static HttpClientProfile defaults() {
+        return new HttpClientProfile(HttpClient.Version.HTTP_2, SHARED_EXECUTOR, Duration.ofSeconds(5), Duration.ofSeconds(20), true);
+    }
+
+    /**
+     * Returns a HttpClient of the default profile that is shared by every caller, so that API instances using it
+     * share its connections.
+     *
+     * @return The shared client.
+     */
+    public static HttpClient sharedHttpClient() {
+        return SharedHttpClient.INSTANCE;
+    }
+
+    /**
+     * Returns a copy of the profile with another preferred HTTP version.
+     *
+     * @param version The preferred HTTP version.
+     * @return The new profile.
+     */
+    public HttpClientProfile withVersion(HttpClient.Version version) {
+        return new HttpClientProfile(version, executor, connectTimeout, requestTimeout, compression);
+    }
+
+    /**
+     * Returns a copy of the profile with another executor.
+     *
+     * @param executor The executor running the asynchronous tasks of the client.
+     * @return The new profile.
+     */
+    public HttpClientProfile withExecutor(ExecutorService executor) {
+        return new HttpClientProfile(version, executor, connectTimeout, requestTimeout, compression);
+    }
+
+    /**
+     * Returns a copy of the profile with other timeouts.
+     *
+     * @param connectTimeout How long to wait for a connection to be established.
+     * @param requestTimeout How long to wait for the response headers of a request.
+     * @return The new profile.
+     */
+    public HttpClientProfile withTimeouts(Duration connectTimeout, Duration requestTimeout) {
+        return new HttpClientProfile(version, executor, connectTimeout, requestTimeout, compression);
+    }
+
+    /**
+     * Returns a copy of the profile with compression turned on or off.
+     *
+     * @param compression True if responses are requested gzip compressed.
+     * @return The new profile.
+     */
+    public HttpClientProfile withCompression(boolean compression) {
+        return new HttpClientProfile(version, executor, connectTimeout, requestTimeout, compression);
+    }
+
+    /**
+     * Builds a new HttpClient with the version, executor and connect timeout of the profile.
+     *
+     * @return The new client.
+     */
+    public HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .version(version)
+                .executor(executor)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * Holds the shared client, which is built the first time it is used.
+     */
+    private static final class SharedHttpClient {
+        private static final HttpClient INSTANCE = defaults().newHttpClient();
+    }
+
+    /**
+     * Creates the named daemon threads of the shared executor.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "radio-api-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,19 +1,55 @@
 package se.umu.cs.dv21cgn.radioinfo.api;
 
+import se.umu.cs.dv21cgn.radioinfo.jfr.ApiFetchEvent;
+import se.umu.cs.dv21cgn.radioinfo.jfr.ResponseDecodeEvent;
+import se.umu.cs.dv21cgn.radioinfo.metrics.Counter;
+import se.umu.cs.dv21cgn.radioinfo.metrics.CountingInputStream;
+import se.umu.cs.dv21cgn.radioinfo.metrics.HitRatio;
+import se.umu.cs.dv21cgn.radioinfo.metrics.LatencyHistogram;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
 import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
 
 /**
  * An abstract class representing a base for interacting with a radio API.
  */
 public abstract class RadioApi implements RadioApiI {
 
+    /**
+     * The decoder used when the response body is returned as a string.
+     */
+    private static final ResponseDecoder<String> STRING_DECODER = body -> new String(body.readAllBytes(), StandardCharsets.UTF_8);
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final Counter REQUESTS = METRICS.counter("api.requests");
+    private static final Counter FAILED_REQUESTS = METRICS.counter("api.requests.failed");
+    private static final Counter BYTES_RECEIVED = METRICS.counter("api.bytes.received");
+    private static final LatencyHistogram REQUEST_LATENCY = METRICS.histogram("api.request");
+    private static final LatencyHistogram DECODE_LATENCY = METRICS.histogram("api.decode");
+    private static final HitRatio REVALIDATIONS = METRICS.hitRatio("api.revalidation");
+
+    /**
+     * The maximum number of responses remembered for revalidation.
+     */
+    private static final int MAX_CACHED_RESPONSES = 512;
+
     /**
      * The HttpClient instance used for making HTTP requests.
      */
@@ -25,36 +61,412 @@ public abstract class RadioApi implements RadioApiI {
     private final String baseUrl;
 
     /**
-     * Constructs a new RadioApi instance.
+     * The profile deciding the timeout and compression of every request.
+     */
+    private final HttpClientProfile profile;
+
+    /**
+     * The validators and decoded results of earlier responses, keyed by path and evicted least recently used first.
+     */
+    private final Map<String, CachedResponse> cachedResponses;
+
+    /**
+     * Constructs a new RadioApi instance whose requests use the timeout and compression of the default profile.
      *
      * @param httpClient The HttpClient instance to use for making HTTP requests.
      * @param baseUrl The base URL of the radio API.
      */
     public RadioApi(HttpClient httpClient, String baseUrl) {
+        this(httpClient, baseUrl, HttpClientProfile.defaults());
+    }
+
+    /**
+     * Constructs a new RadioApi instance with a new HttpClient built from a profile.
+     *
+     * @param profile The profile of the client and its requests.
+     * @param baseUrl The base URL of the radio API.
+     */
+    public RadioApi(HttpClientProfile profile, String baseUrl) {
+        this(profile.newHttpClient(), baseUrl, profile);
+    }
+
+    /**
+     * Constructs a new RadioApi instance.
+     *
+     * @param httpClient The HttpClient instance to use for making HTTP requests.
+     * @param baseUrl The base URL of the radio API.
+     * @param profile The profile deciding the timeout and compression of the requests, and the executor decoding
+     *                asynchronous responses. Its client settings are not applied to the given client.
+     */
+    public RadioApi(HttpClient httpClient, String baseUrl, HttpClientProfile profile) {
         this.httpClient = httpClient;
         this.baseUrl = baseUrl;
+        this.profile = profile;
+        this.cachedResponses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > MAX_CACHED_RESPONSES;
+            }
+        });
     }
 
     /**
      * Fetches data from the radio API using the provided path.
+     * If an earlier response for the same path carried an ETag or Last-Modified header, the request is made
+     * conditional and the earlier body is returned when the server answers 304 (Not Modified).
      *
      * @param path The path to the specific API endpoint.
      * @return The response body as a string.
      * @throws HttpBadRequestException If the HTTP response status code is 400 (Bad Request).
-     * @throws IOException If an I/O error occurs during the request.
+     * @throws IOException If an I/O error occurs during the request, or a HttpStatusException if the server answers
+     *                     with another error status.
      * @throws InterruptedException If the request is interrupted.
      * @throws URISyntaxException If there is a syntax error in the provided URI.
      */
     public String fetchData(String path) throws HttpBadRequestException, IOException, InterruptedException, URISyntaxException {
-        HttpRequest httpRequest = HttpRequest.newBuilder()
+        return fetch(path, STRING_DECODER);
+    }
+
+    /**
+     * Fetches data from the radio API and decodes the response body while it is being received, without buffering
+     * the whole body in memory first. A gzip encoded body is decompressed as it streams into the decoder.
+     * <p>
+     * Like {@link #fetchData(String)}, the request is made conditional when an earlier response for the same path
+     * carried validators, and on 304 (Not Modified) the result decoded from that response is returned without decoding
+     * anything. If that result was forgotten while the request was in flight, the request is repeated once without
+     * validators. Callers should pass the same decoder instance for a path to benefit from this, and must not modify
+     * the decoded results.
+     *
+     * @param path The path to the specific API endpoint.
+     * @param decoder The decoder reading the response body.
+     * @param <T> The type of the decoded result.
+     * @return The decoded response body.
+     * @throws HttpBadRequestException If the HTTP response status code is 400 (Bad Request).
+     * @throws IOException If an I/O error occurs during the request or while decoding, or a HttpStatusException if the
+     *                     server answers with another error status.
+     * @throws InterruptedException If the request is interrupted.
+     * @throws URISyntaxException If there is a syntax error in the provided URI.
+     */
+    public <T> T fetch(String path, ResponseDecoder<T> decoder) throws HttpBadRequestException, IOException, InterruptedException, URISyntaxException {
+        long startNanos = METRICS.startTimer();
+        ApiFetchEvent event = beginFetchEvent(path);
+        Throwable failure = null;
+        try {
+            HttpRequest httpRequest = newRequest(path, decoder);
+            HttpResponse<InputStream> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+            try {
+                return decodeResponse(path, decoder, httpResponse, event);
+            } catch (UncachedRevalidationException e) {
+                if (!isConditional(httpRequest))
+                    throw e;
+                httpResponse = httpClient.send(unconditional(httpRequest), HttpResponse.BodyHandlers.ofInputStream());
+                return decodeResponse(path, decoder, httpResponse, event);
+            }
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            recordRequest(startNanos, event, failure);
+        }
+    }
+
+    /**
+     * Fetches data from the radio API asynchronously using the provided path.
+     * Several calls may be in flight at the same time, which lets callers issue independent requests
+     * concurrently instead of paying one round-trip each. Cancelling the returned future aborts the request.
+     *
+     * @param path The path to the specific API endpoint.
+     * @return A future completed with the response body as a string, or exceptionally with a
+     *         HttpBadRequestException, IOException or URISyntaxException.
+     */
+    public CompletableFuture<String> fetchDataAsync(String path) {
+        return fetchAsync(path, STRING_DECODER);
+    }
+
+    /**
+     * Fetches data from the radio API asynchronously and decodes the response body while it is being received,
+     * without buffering the whole body in memory first. The body is decoded on the executor of the profile, never on
+     * the common fork-join pool. Cancelling the returned future aborts the request.
+     * <p>
+     * Like {@link #fetchData(String)}, the request is made conditional when an earlier response for the same path
+     * carried validators, and on 304 (Not Modified) the result decoded from that response is returned without decoding
+     * anything. If that result was forgotten while the request was in flight, the request is repeated once without
+     * validators. Callers should pass the same decoder instance for a path to benefit from this, and must not modify
+     * the decoded results.
+     *
+     * @param path The path to the specific API endpoint.
+     * @param decoder The decoder reading the response body.
+     * @param <T> The type of the decoded result.
+     * @return A future completed with the decoded response body, or exceptionally with a
+     *         HttpBadRequestException, IOException or URISyntaxException.
+     */
+    public <T> CompletableFuture<T> fetchAsync(String path, ResponseDecoder<T> decoder) {
+        long startNanos = METRICS.startTimer();
+        ApiFetchEvent event = beginFetchEvent(path);
+        // The event is committed by the thread completing the request rather than this one.
+        event.asynchronous = true;
+        HttpRequest httpRequest;
+        try {
+            httpRequest = newRequest(path, decoder);
+        } catch (URISyntaxException e) {
+            recordRequest(startNanos, event, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        AtomicReference<CompletableFuture<HttpResponse<InputStream>>> response = new AtomicReference<>(
+                httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream()));
+        CompletableFuture<T> result = decodeAsync(path, decoder, response.get(), event).exceptionallyCompose(throwable -> {
+            if (!(throwable.getCause() instanceof UncachedRevalidationException) || !isConditional(httpRequest))
+                return CompletableFuture.failedFuture(throwable);
+            response.set(httpClient.sendAsync(unconditional(httpRequest), HttpResponse.BodyHandlers.ofInputStream()));
+            return decodeAsync(path, decoder, response.get(), event);
+        });
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled())
+                response.get().cancel(true);
+            recordRequest(startNanos, event, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+        });
+        return result;
+    }
+
+    /**
+     * Decodes the body of an asynchronous response on the executor of the profile once the response arrives.
+     *
+     * @param path The path the response is fetched from.
+     * @param decoder The decoder reading the response body.
+     * @param response The future of the response.
+     * @param event The event of the request.
+     * @param <T> The type of the decoded result.
+     * @return A future completed with the decoded response body.
+     */
+    private <T> CompletableFuture<T> decodeAsync(String path, ResponseDecoder<T> decoder, CompletableFuture<HttpResponse<InputStream>> response, ApiFetchEvent event) {
+        return response.thenApplyAsync(httpResponse -> {
+            try {
+                return decodeResponse(path, decoder, httpResponse, event);
+            } catch (HttpBadRequestException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, profile.executor());
+    }
+
+    /**
+     * Begins the Flight Recorder event of a request. The event is cheap to create while it is disabled.
+     *
+     * @param path The path of the request.
+     * @return The begun event.
+     */
+    private static ApiFetchEvent beginFetchEvent(String path) {
+        ApiFetchEvent event = new ApiFetchEvent();
+        if (event.isEnabled()) {
+            event.path = path;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Records the outcome of a request in the metrics of the global registry and commits its Flight Recorder event.
+     *
+     * @param startNanos The value of the timer started when the request was made.
+     * @param event The event begun when the request was made.
+     * @param failure The exception the request failed with, or null if it succeeded.
+     */
+    private static void recordRequest(long startNanos, ApiFetchEvent event, Throwable failure) {
+        REQUEST_LATENCY.recordSince(startNanos);
+        REQUESTS.increment();
+        if (failure != null)
+            FAILED_REQUESTS.increment();
+        if (event.shouldCommit()) {
+            if (failure != null)
+                event.failure = failure.getClass().getName();
+            event.commit();
+        }
+    }
+
+    /**
+     * Decodes the body of a response, or returns the remembered result if the server answered 304 (Not Modified).
+     * The body is closed once it has been decoded.
+     *
+     * @param path The path the response was fetched from.
+     * @param decoder The decoder reading the response body.
+     * @param httpResponse The response.
+     * @param event The event of the request, which is given the status code and the number of bytes received.
+     * @param <T> The type of the decoded result.
+     * @return The decoded response body.
+     * @throws HttpBadRequestException If the HTTP response status code is 400 (Bad Request).
+     * @throws IOException If the body cannot be read or decoded, or a HttpStatusException if the status code is
+     *                     neither a success, 304 (Not Modified) nor 400 (Bad Request).
+     */
+    private <T> T decodeResponse(String path, ResponseDecoder<T> decoder, HttpResponse<InputStream> httpResponse, ApiFetchEvent event) throws HttpBadRequestException, IOException {
+        event.statusCode = httpResponse.statusCode();
+        InputStream received = httpResponse.body();
+        CountingInputStream counted = null;
+        if (received != null && (METRICS.isEnabled() || event.isEnabled()))
+            received = counted = new CountingInputStream(received, BYTES_RECEIVED);
+        try (InputStream body = decompressed(httpResponse, received)) {
+            if (httpResponse.statusCode() == 400)
+                throw new HttpBadRequestException();
+            if (httpResponse.statusCode() == 304) {
+                REVALIDATIONS.hit();
+                return cachedResult(path, decoder);
+            }
+            if (httpResponse.statusCode() >= 300)
+                throw new HttpStatusException(httpResponse.statusCode(), path);
+
+            REVALIDATIONS.miss();
+            long decodeStartNanos = METRICS.startTimer();
+            ResponseDecodeEvent decodeEvent = new ResponseDecodeEvent();
+            decodeEvent.begin();
+            T decoded = decoder.decode(body);
+            DECODE_LATENCY.recordSince(decodeStartNanos);
+            if (decodeEvent.shouldCommit()) {
+                decodeEvent.path = path;
+                decodeEvent.commit();
+            }
+            remember(path, decoder, httpResponse, decoded);
+            return decoded;
+        } finally {
+            if (counted != null)
+                event.bytesReceived = counted.getCount();
+        }
+    }
+
+    /**
+     * Returns the body of a response, decompressing it while it is read if it is gzip encoded.
+     *
+     * @param httpResponse The response.
+     * @param body The body as received, possibly wrapped to count the bytes received before they are decompressed.
+     * @return The decompressed body.
+     * @throws IOException If the body is gzip encoded but has no valid gzip header.
+     */
+    private static InputStream decompressed(HttpResponse<InputStream> httpResponse, InputStream body) throws IOException {
+        if (httpResponse.statusCode() != 200 || !isGzipEncoded(httpResponse.headers()))
+            return body;
+
+        try {
+            return new GZIPInputStream(body);
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if a response body is gzip encoded.
+     *
+     * @param headers The headers of the response.
+     * @return True if the Content-Encoding header is gzip, otherwise false.
+     */
+    private static boolean isGzipEncoded(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding")
+                .map(encoding -> encoding.trim().equalsIgnoreCase("gzip"))
+                .orElse(false);
+    }
+
+    /**
+     * Builds a request for the given path with the timeout and compression of the profile, adding If-None-Match and
+     * If-Modified-Since headers when an earlier response decoded by the same decoder can be revalidated.
+     *
+     * @param path The path to the specific API endpoint.
+     * @param decoder The decoder that will read the response body.
+     * @return The request.
+     * @throws URISyntaxException If there is a syntax error in the provided URI.
+     */
+    private HttpRequest newRequest(String path, ResponseDecoder<?> decoder) throws URISyntaxException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(new URI(baseUrl + path))
-                .build();
-        HttpResponse<String> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+                .timeout(profile.requestTimeout());
+        if (profile.compression())
+            builder.header("Accept-Encoding", "gzip");
+        CachedResponse cachedResponse = cachedResponses.get(path);
+        if (cachedResponse != null && cachedResponse.decoder() == decoder) {
+            if (cachedResponse.etag() != null)
+                builder.header("If-None-Match", cachedResponse.etag());
+            if (cachedResponse.lastModified() != null)
+                builder.header("If-Modified-Since", cachedResponse.lastModified());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks if a request carries validators of an earlier response.
+     *
+     * @param httpRequest The request.
+     * @return True if the request has an If-None-Match or If-Modified-Since header, otherwise false.
+     */
+    private static boolean isConditional(HttpRequest httpRequest) {
+        return httpRequest.headers().firstValue("If-None-Match").isPresent()
+                || httpRequest.headers().firstValue("If-Modified-Since").isPresent();
+    }
 
-        if (httpResponse.statusCode() == 400)
-            throw new HttpBadRequestException();
+    /**
+     * Copies a conditional request without its If-None-Match and If-Modified-Since headers, so that the server answers
+     * with the full body.
+     *
+     * @param httpRequest The conditional request.
+     * @return The unconditional request.
+     */
+    private static HttpRequest unconditional(HttpRequest httpRequest) {
+        return HttpRequest.newBuilder(httpRequest, (name, value) ->
+                !name.equalsIgnoreCase("If-None-Match") && !name.equalsIgnoreCase("If-Modified-Since")).build();
+    }
+
+    /**
+     * Remembers the validators of a successful response together with its decoded result.
+     * Responses without validators are forgotten, since they cannot be revalidated.
+     *
+     * @param path The path the response was fetched from.
+     * @param decoder The decoder that read the response body.
+     * @param httpResponse The response.
+     * @param result The decoded response body.
+     * @param <T> The type of the decoded result.
+     */
+    private <T> void remember(String path, ResponseDecoder<T> decoder, HttpResponse<?> httpResponse, T result) {
+        if (httpResponse.statusCode() != 200)
+            return;
+
+        HttpHeaders headers = httpResponse.headers();
+        String etag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+        if (etag == null && lastModified == null) {
+            cachedResponses.remove(path);
+        } else {
+            cachedResponses.put(path, new CachedResponse(etag, lastModified, decoder, result));
+        }
+    }
+
+    /**
+     * Returns the result remembered for a path after the server answered 304 (Not Modified).
+     *
+     * @param path The path the response was fetched from.
+     * @param decoder The decoder that read the remembered response body.
+     * @param <T> The type of the decoded result.
+     * @return The remembered result.
+     * @throws UncachedRevalidationException If no result decoded by the given decoder is remembered for the path,
+     *                                       because it was evicted or replaced after the request was made.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cachedResult(String path, ResponseDecoder<T> decoder) throws UncachedRevalidationException {
+        CachedResponse cachedResponse = cachedResponses.get(path);
+        if (cachedResponse == null || cachedResponse.decoder() != decoder)
+            throw new UncachedRevalidationException(path);
+
+        return (T) cachedResponse.result();
+    }
 
-        return httpResponse.body();
+    /**
+     * Waits for an asynchronous API call to complete and rethrows its failure as the checked
+     * exceptions used by the blocking API methods. If the waiting thread is interrupted the call is cancelled.
+     *
+     * @param future The future to wait for.
+     * @param <T> The type of the result.
+     * @return The result of the future.
+     * @throws HttpBadRequestException If the HTTP response status code is 400 (Bad Request).
+     * @throws IOException If an I/O error occurs during the request.
+     * @throws InterruptedException If the request is interrupted.
+     * @throws URISyntaxException If there is a syntax error in the provided URI.
+     */
+    protected static <T> T await(CompletableFuture<T> future) throws HttpBadRequestException, IOException, InterruptedException, URISyntaxException {
+        return ApiFutures.await(future);
     }
 
     /**
@@ -91,4 +503,30 @@ public abstract class RadioApi implements RadioApiI {
      * @throws InterruptedException If the request is interrupted.
      */
     public abstract RadioApiScheduleResponse getSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException;
+
+    /**
+     * A record holding the validators of an earlier response and the result decoded from it.
+     *
+     * @param etag The ETag header of the response, or null if it had none.
+     * @param lastModified The Last-Modified header of the response, or null if it had none.
+     * @param decoder The decoder that read the response body.
+     * @param result The decoded response body.
+     */
+    private record CachedResponse(String etag, String lastModified, ResponseDecoder<?> decoder, Object result) { }
+
+    /**
+     * An exception thrown when the server answers 304 (Not Modified) but the revalidated result is no longer
+     * remembered. The request is then repeated once without its validators.
+     */
+    private static final class UncachedRevalidationException extends IOException {
+
+        /**
+         * Constructs a new UncachedRevalidationException.
+         *
+         * @param path The path of the request.
+         */
+        UncachedRevalidationException(String path) {
+            super("Received 304 Not Modified for " + path + " without a cached response");
+        }
+    }
 }
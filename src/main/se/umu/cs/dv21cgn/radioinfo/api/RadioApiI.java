@@ -4,6 +4,12 @@ import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 /**
@@ -59,5 +65,63 @@ public interface RadioApiI {
      * @throws InterruptedException   If the thread is interrupted while waiting.
      */
     RadioApiScheduleResponse getSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException;
-}
 
+    /**
+     * Retrieves the schedule for a specific radio channel from the radio API asynchronously.
+     * The default implementation runs {@link #getSchedule(int)} on the common pool; implementations
+     * that can issue their requests concurrently should override it.
+     *
+     * @param channelId The ID of the channel to fetch the schedule for.
+     * @return A future completed with the schedule for the specified channel, or exceptionally with
+     *         one of the exceptions thrown by {@link #getSchedule(int)}.
+     */
+    default CompletableFuture<? extends RadioApiScheduleResponse> getScheduleAsync(int channelId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getSchedule(channelId);
+            } catch (HttpBadRequestException | IOException | URISyntaxException | InterruptedException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Starts fetching the schedules of several radio channels between two dates in one batch, without waiting for any
+     * of them. Every channel gets its own future, so a caller can use each schedule as soon as it has arrived and a
+     * channel whose schedule cannot be fetched does not hold up the others.
+     * <p>
+     * The default implementation requests every channel with {@link #getScheduleAsync(int)} at the same time,
+     * which covers the days that method covers regardless of the given dates; implementations that can fetch
+     * specific days should override it.
+     *
+     * @param channelIds The IDs of the channels to fetch the schedules for.
+     * @param from The first day to fetch, inclusive.
+     * @param to The last day to fetch, inclusive.
+     * @return The schedule request of every channel, by channel ID in the order the channels were given. Each future is
+     *         completed exceptionally with one of the exceptions thrown by {@link #getSchedule(int)} if its channel fails.
+     */
+    default Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> getSchedulesAsync(Collection<Integer> channelIds, LocalDate from, LocalDate to) {
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        for (int channelId : channelIds) {
+            if (!scheduleFutures.containsKey(channelId))
+                scheduleFutures.put(channelId, getScheduleAsync(channelId));
+        }
+        return scheduleFutures;
+    }
+
+    /**
+     * Retrieves the schedules of several radio channels between two dates in one batch.
+     * A channel whose schedule cannot be fetched is listed among the failures of the response
+     * instead of failing the whole batch. The schedules are requested with
+     * {@link #getSchedulesAsync(Collection, LocalDate, LocalDate)}.
+     *
+     * @param channelIds The IDs of the channels to fetch the schedules for.
+     * @param from The first day to fetch, inclusive.
+     * @param to The last day to fetch, inclusive.
+     * @return A response containing the schedule or failure of every channel.
+     * @throws InterruptedException If the thread is interrupted while waiting, in which case the requests in flight are cancelled.
+     */
+    default RadioApiSchedulesResponse getSchedules(Collection<Integer> channelIds, LocalDate from, LocalDate to) throws InterruptedException {
+        return RadioApiSchedulesResponse.await(getSchedulesAsync(channelIds, from, to));
+    }
+}
@@ -14,4 +14,13 @@ public interface RadioApiScheduleResponse {
      * @return A Schedule object containing the schedule information from the API response.
      */
     Schedule toSchedule();
+
+    /**
+     * Checks if the schedule was returned in place of a fresh one that could not be fetched.
+     *
+     * @return True if the schedule is stale, otherwise false.
+     */
+    default boolean isStale() {
+        return false;
+    }
 }
@@ -0,0 +1,76 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A record representing the merged response of a batch of schedule requests for several channels.
+ * A channel whose schedule could not be fetched is listed among the failures instead of failing the whole batch.
+ * A channel given a stale schedule in place of a fresh one is listed among the schedules and among the stale channels.
+ *
+ * @param schedules The fetched schedules by channel ID, in the order the channels were requested.
+ * @param failures The exception that made each failed channel fail, by channel ID.
+ * @param stale The failure that made each channel with a stale schedule get it instead of a fresh one, by channel ID.
+ */
+public record RadioApiSchedulesResponse(Map<Integer, RadioApiScheduleResponse> schedules, Map<Integer, Exception> failures, Map<Integer, Exception> stale) {
+
+    /**
+     * Constructs a new RadioApiSchedulesResponse without stale schedules.
+     *
+     * @param schedules The fetched schedules by channel ID, in the order the channels were requested.
+     * @param failures The exception that made each failed channel fail, by channel ID.
+     */
+    public RadioApiSchedulesResponse(Map<Integer, RadioApiScheduleResponse> schedules, Map<Integer, Exception> failures) {
+        this(schedules, failures, Map.of());
+    }
+
+    /**
+     * Waits for the schedule requests of a batch and collects their outcomes. If the thread is interrupted
+     * while waiting, the requests still in flight are cancelled.
+     *
+     * @param scheduleFutures The schedule request of each channel, by channel ID.
+     * @return The merged response.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public static RadioApiSchedulesResponse await(Map<Integer, ? extends CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures) throws InterruptedException {
+        Map<Integer, RadioApiScheduleResponse> schedules = new LinkedHashMap<>();
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        Map<Integer, Exception> stale = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Integer, ? extends CompletableFuture<? extends RadioApiScheduleResponse>> entry : scheduleFutures.entrySet()) {
+                try {
+                    RadioApiScheduleResponse schedule = entry.getValue().get();
+                    schedules.put(entry.getKey(), schedule);
+                    if (schedule instanceof StaleScheduleResponse staleSchedule)
+                        stale.put(entry.getKey(), staleSchedule.cause());
+                } catch (ExecutionException | CancellationException e) {
+                    failures.put(entry.getKey(), unwrap(e));
+                }
+            }
+        } catch (InterruptedException e) {
+            scheduleFutures.values().forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return new RadioApiSchedulesResponse(Collections.unmodifiableMap(schedules), Collections.unmodifiableMap(failures), Collections.unmodifiableMap(stale));
+    }
+
+    /**
+     * Finds the exception that made a schedule request fail.
+     *
+     * @param exception The exception thrown while waiting for the request.
+     * @return The cause of the failure.
+     */
+    private static Exception unwrap(Exception exception) {
+        Throwable cause = exception;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception e ? e : new IOException(cause);
+    }
+}
@@ -0,0 +1,96 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many asynchronous requests are in flight at the same time without blocking any thread.
+ * Requests beyond the limit wait in submission order and are started as earlier requests complete,
+ * so a large batch reuses a few busy connections instead of opening one connection per request.
+ */
+public class RequestLimiter {
+
+    private final int maxInFlight;
+    private final ArrayDeque<Runnable> waiting;
+    private int inFlight;
+
+    /**
+     * Constructs a new RequestLimiter.
+     *
+     * @param maxInFlight The maximum number of requests in flight at the same time.
+     */
+    public RequestLimiter(int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("At least one request must be allowed in flight");
+        this.maxInFlight = maxInFlight;
+        this.waiting = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts a request as soon as fewer than the maximum number of requests are in flight.
+     * Cancelling the returned future cancels the request, or drops it if it has not started yet.
+     *
+     * @param request Starts the request and returns its future.
+     * @param <T> The type of the result of the request.
+     * @return A future completed with the outcome of the request.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<? extends CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                release();
+                return;
+            }
+            CompletableFuture<T> started;
+            try {
+                started = request.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> inFlightRequest = started;
+            inFlightRequest.whenComplete((value, throwable) -> {
+                release();
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, throwable) -> {
+                if (result.isCancelled())
+                    inFlightRequest.cancel(true);
+            });
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = inFlight < maxInFlight;
+            if (startNow) {
+                inFlight++;
+            } else {
+                waiting.add(start);
+            }
+        }
+        if (startNow)
+            start.run();
+        return result;
+    }
+
+    /**
+     * Hands the slot of a completed request to the next waiting request, or frees it if none is waiting.
+     * The next request is started on the common pool so that a long chain of quickly completing requests
+     * does not grow the stack.
+     */
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null)
+                inFlight--;
+        }
+        if (next != null)
+            ForkJoinPool.commonPool().execute(next);
+    }
+}
@@ -0,0 +1,413 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpStatusException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A decorator for a radio API that rides out failures of the server.
+ * <p>
+ * Requests failing with an I/O error, a 5xx server error or 429 (Too Many Requests) are retried with exponential
+ * backoff and jitter according to a {@link RetryPolicy}. Every endpoint has its own {@link CircuitBreaker}, so an
+ * endpoint that keeps failing is not asked again until its breaker lets a trial request through, while the other
+ * endpoints keep working. When a channel list, program or schedule cannot be fetched, the last one fetched successfully
+ * is returned instead if there is one. Such a schedule is returned as a {@link StaleScheduleResponse}, so that callers
+ * can tell that the server is failing. Bad requests and other client errors are neither retried nor replaced.
+ */
+public class ResilientRadioApi implements RadioApiI {
+
+    /**
+     * The number of consecutive failures that opens the circuit breaker of an endpoint by default.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * How long an open circuit breaker rejects requests by default.
+     */
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    private static final String CHANNELS_ENDPOINT = "channels";
+    private static final String PROGRAM_ENDPOINT = "programs";
+    private static final String SCHEDULE_ENDPOINT = "scheduledepisodes";
+
+    private final RadioApiI radioApi;
+    private final RetryPolicy retryPolicy;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers;
+    private final AtomicReference<RadioApiChannelsResponse> lastGoodChannels;
+    private final ConcurrentHashMap<Integer, RadioApiProgramResponse> lastGoodPrograms;
+    private final ConcurrentHashMap<Integer, RadioApiScheduleResponse> lastGoodSchedules;
+
+    /**
+     * Constructs a new ResilientRadioApi with the default retry policy and circuit breakers.
+     *
+     * @param radioApi The radio API to delegate to.
+     */
+    public ResilientRadioApi(RadioApiI radioApi) {
+        this(radioApi, RetryPolicy.defaults(), DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a new ResilientRadioApi.
+     *
+     * @param radioApi The radio API to delegate to.
+     * @param retryPolicy How often and how far apart failed requests are retried.
+     * @param failureThreshold The number of consecutive failures that opens the circuit breaker of an endpoint.
+     * @param openDuration How long an open circuit breaker rejects requests.
+     * @param clock The clock of the circuit breakers.
+     */
+    public ResilientRadioApi(RadioApiI radioApi, RetryPolicy retryPolicy, int failureThreshold, Duration openDuration, Clock clock) {
+        this.radioApi = radioApi;
+        this.retryPolicy = retryPolicy;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.lastGoodChannels = new AtomicReference<>();
+        this.lastGoodPrograms = new ConcurrentHashMap<>();
+        this.lastGoodSchedules = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the circuit breaker of an endpoint, creating it if it does not exist yet. The endpoint of a path is
+     * its first segment, so the breaker of "channels" guards every channel list request.
+     *
+     * @param endpoint The endpoint.
+     * @return The circuit breaker of the endpoint.
+     */
+    public CircuitBreaker getCircuitBreaker(String endpoint) {
+        return circuitBreakers.computeIfAbsent(endpoint, name -> new CircuitBreaker(failureThreshold, openDuration, clock));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Retried on transient failures, without a fallback.
+     */
+    @Override
+    public String fetchData(String path) throws HttpBadRequestException, IOException, InterruptedException, URISyntaxException {
+        return call(endpointOf(path), () -> radioApi.fetchData(path), () -> null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Retried on transient failures, falling back to the last channel list fetched.
+     */
+    @Override
+    public RadioApiChannelsResponse getChannels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        RadioApiChannelsResponse channels = call(CHANNELS_ENDPOINT, radioApi::getChannels, lastGoodChannels::get);
+        lastGoodChannels.set(channels);
+        return channels;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Retried on transient failures, falling back to the last program fetched for the channel.
+     */
+    @Override
+    public RadioApiProgramResponse getProgram(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        RadioApiProgramResponse program = call(PROGRAM_ENDPOINT, () -> radioApi.getProgram(channelId), () -> lastGoodPrograms.get(channelId));
+        if (program != null)
+            lastGoodPrograms.put(channelId, program);
+        return program;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Retried on transient failures, falling back to the last schedule fetched for the channel.
+     */
+    @Override
+    public RadioApiScheduleResponse getSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return ApiFutures.await(getScheduleAsync(channelId));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Retried on transient failures without blocking a thread while backing off, falling back to the last schedule
+     * fetched for the channel, marked as stale. Cancelling the returned future cancels the attempt in flight and any
+     * later retry.
+     */
+    @Override
+    public CompletableFuture<RadioApiScheduleResponse> getScheduleAsync(int channelId) {
+        return scheduleAsync(channelId, () -> radioApi.getScheduleAsync(channelId));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every channel is retried on its own like {@link #getScheduleAsync(int)}, each attempt being passed on to the
+     * decorated API as a batch of that channel, and falls back to the last schedule fetched for it, marked as stale.
+     * No thread is blocked while backing off, so {@link #getSchedules(Collection, LocalDate, LocalDate)} only blocks
+     * while waiting for the schedules.
+     */
+    @Override
+    public Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> getSchedulesAsync(Collection<Integer> channelIds, LocalDate from, LocalDate to) {
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        for (int channelId : channelIds) {
+            if (!scheduleFutures.containsKey(channelId))
+                scheduleFutures.put(channelId, scheduleAsync(channelId, () -> radioApi.getSchedulesAsync(List.of(channelId), from, to).get(channelId)));
+        }
+        return scheduleFutures;
+    }
+
+    /**
+     * Makes a schedule request that is retried on transient failures and falls back to the last schedule fetched for
+     * the channel, marked as stale, remembering each fresh schedule it gets as the last good one.
+     *
+     * @param channelId The ID of the channel.
+     * @param apiCall Starts an attempt of the request.
+     * @return A future completed with the schedule.
+     */
+    private CompletableFuture<RadioApiScheduleResponse> scheduleAsync(int channelId, Supplier<? extends CompletableFuture<? extends RadioApiScheduleResponse>> apiCall) {
+        CompletableFuture<RadioApiScheduleResponse> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> currentAttempt = new AtomicReference<>();
+        result.whenComplete((schedule, throwable) -> {
+            if (result.isCancelled()) {
+                CompletableFuture<?> attempt = currentAttempt.get();
+                if (attempt != null)
+                    attempt.cancel(true);
+            } else if (schedule != null && !schedule.isStale() && schedule != lastGoodSchedules.get(channelId)) {
+                lastGoodSchedules.put(channelId, schedule);
+            }
+        });
+        attemptAsync(apiCall, failure -> staleSchedule(channelId, failure), 1, result, currentAttempt);
+        return result;
+    }
+
+    /**
+     * Returns the last schedule fetched for a channel, marked as stale.
+     *
+     * @param channelId The ID of the channel.
+     * @param failure The failure that kept a fresh schedule from being fetched.
+     * @return The stale schedule, or null if no schedule has been fetched for the channel.
+     */
+    private RadioApiScheduleResponse staleSchedule(int channelId, Throwable failure) {
+        RadioApiScheduleResponse lastGood = lastGoodSchedules.get(channelId);
+        if (lastGood == null)
+            return null;
+        return new StaleScheduleResponse(lastGood, failure instanceof Exception e ? e : new IOException(failure));
+    }
+
+    /**
+     * Makes a blocking request through the circuit breaker of its endpoint, retrying it on transient failures.
+     *
+     * @param endpoint The endpoint of the request.
+     * @param apiCall The request.
+     * @param fallback Returns the result to use if the request keeps failing transiently or is rejected by the circuit
+     *                 breaker, or null if there is none.
+     * @param <T> The type of the result.
+     * @return The result of the request, or the fallback.
+     * @throws HttpBadRequestException If the request is bad.
+     * @throws IOException If the request keeps failing and there is no fallback.
+     * @throws URISyntaxException If there is a syntax error in the request URI.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private <T> T call(String endpoint, ApiCall<T> apiCall, Supplier<T> fallback) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        CircuitBreaker circuitBreaker = getCircuitBreaker(endpoint);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (!circuitBreaker.tryAcquire())
+                    throw new CircuitOpenException(endpoint);
+                try {
+                    T result = apiCall.call();
+                    circuitBreaker.recordSuccess();
+                    return result;
+                } catch (HttpBadRequestException | URISyntaxException e) {
+                    circuitBreaker.recordSuccess();
+                    throw e;
+                } catch (InterruptedException | RuntimeException e) {
+                    circuitBreaker.release();
+                    throw e;
+                } catch (IOException e) {
+                    if (!recordFailure(circuitBreaker, e) || attempt >= retryPolicy.maxAttempts())
+                        throw e;
+                }
+            } catch (IOException e) {
+                T lastGood = canFallBack(e) ? fallback.get() : null;
+                if (lastGood == null)
+                    throw e;
+                return lastGood;
+            }
+            Thread.sleep(backoff(attempt).toMillis());
+        }
+    }
+
+    /**
+     * Makes an attempt of an asynchronous request through the circuit breaker of the schedule endpoint, scheduling
+     * the next attempt after a backoff if it fails transiently.
+     *
+     * @param apiCall Starts the request.
+     * @param fallback Returns the result to use given the last failure if the request keeps failing transiently or is
+     *                 rejected by the circuit breaker, or null if there is none.
+     * @param attempt The number of the attempt, starting at 1.
+     * @param result The future completed with the outcome of the request.
+     * @param currentAttempt Holds the attempt in flight, or the backoff before the next attempt, so that it can be cancelled.
+     * @param <T> The type of the result.
+     */
+    private <T> void attemptAsync(Supplier<? extends CompletableFuture<? extends T>> apiCall, Function<Throwable, T> fallback,
+                                  int attempt, CompletableFuture<T> result, AtomicReference<CompletableFuture<?>> currentAttempt) {
+        if (result.isDone())
+            return;
+
+        CircuitBreaker circuitBreaker = getCircuitBreaker(SCHEDULE_ENDPOINT);
+        if (!circuitBreaker.tryAcquire()) {
+            completeWithFallback(result, new CircuitOpenException(SCHEDULE_ENDPOINT), fallback);
+            return;
+        }
+
+        CompletableFuture<? extends T> response = apiCall.get();
+        currentAttempt.set(response);
+        if (result.isCancelled())
+            response.cancel(true);
+        response.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                circuitBreaker.recordSuccess();
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause instanceof CancellationException || cause instanceof InterruptedException || cause instanceof RuntimeException) {
+                circuitBreaker.release();
+                result.completeExceptionally(cause);
+            } else if (!(cause instanceof IOException)) {
+                circuitBreaker.recordSuccess();
+                result.completeExceptionally(cause);
+            } else if (!recordFailure(circuitBreaker, cause) || attempt >= retryPolicy.maxAttempts()) {
+                completeWithFallback(result, cause, fallback);
+            } else {
+                Executor delayed = CompletableFuture.delayedExecutor(backoff(attempt).toNanos(), TimeUnit.NANOSECONDS);
+                currentAttempt.set(CompletableFuture.runAsync(() -> attemptAsync(apiCall, fallback, attempt + 1, result, currentAttempt), delayed));
+            }
+        });
+    }
+
+    /**
+     * Completes a request that failed for good with its fallback if there is one, or with the failure otherwise.
+     *
+     * @param result The future of the request.
+     * @param failure The last failure of the request.
+     * @param fallback Returns the result to use instead given the failure, or null if there is none.
+     * @param <T> The type of the result.
+     */
+    private static <T> void completeWithFallback(CompletableFuture<T> result, Throwable failure, Function<Throwable, T> fallback) {
+        T lastGood = canFallBack(failure) ? fallback.apply(failure) : null;
+        if (lastGood != null) {
+            result.complete(lastGood);
+        } else {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Records an I/O failure of a permitted request in a circuit breaker. Failures the server is not to blame for,
+     * such as client errors, count as the server working.
+     *
+     * @param circuitBreaker The circuit breaker that permitted the request.
+     * @param failure The failure.
+     * @return True if the request may succeed if retried, otherwise false.
+     */
+    private static boolean recordFailure(CircuitBreaker circuitBreaker, Throwable failure) {
+        if (!isTransient(failure)) {
+            circuitBreaker.recordSuccess();
+            return false;
+        }
+        circuitBreaker.recordFailure();
+        return true;
+    }
+
+    /**
+     * Checks if a failure may go away if the request is retried.
+     *
+     * @param failure The failure.
+     * @return True for I/O errors other than client error responses and rejections by open circuit breakers, otherwise false.
+     */
+    private static boolean isTransient(Throwable failure) {
+        if (failure instanceof HttpStatusException statusException)
+            return statusException.isTransient();
+        return failure instanceof IOException && !(failure instanceof CircuitOpenException);
+    }
+
+    /**
+     * Checks if the last good result may be returned instead of failing.
+     *
+     * @param failure The failure.
+     * @return True if the failure is transient or the circuit breaker rejected the request, otherwise false.
+     */
+    private static boolean canFallBack(Throwable failure) {
+        return failure instanceof CircuitOpenException || isTransient(failure);
+    }
+
+    /**
+     * Returns a randomized delay before retrying.
+     *
+     * @param failedAttempts The number of attempts that have failed so far.
+     * @return The delay.
+     */
+    private Duration backoff(int failedAttempts) {
+        return retryPolicy.backoff(failedAttempts, ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Returns the endpoint of a path, which is its first segment.
+     *
+     * @param path The path.
+     * @return The endpoint of the path.
+     */
+    private static String endpointOf(String path) {
+        int end = path.length();
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '?') {
+                end = i;
+                break;
+            }
+        }
+        return path.substring(0, end);
+    }
+
+    /**
+     * A blocking request of the decorated API.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    private interface ApiCall<T> {
+
+        /**
+         * Makes the request.
+         *
+         * @return The result.
+         * @throws HttpBadRequestException If the request is bad.
+         * @throws IOException If an I/O error occurs.
+         * @throws URISyntaxException If there is a syntax error in the request URI.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        T call() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException;
+    }
+}
@@ -0,0 +1,22 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A functional interface for decoding a response body from a radio API while it is being received.
+ *
+ * @param <T> The type of the decoded result.
+ */
+@FunctionalInterface
+public interface ResponseDecoder<T> {
+
+    /**
+     * Decodes a response body.
+     *
+     * @param body The response body. It is closed by the caller once decoding is done.
+     * @return The decoded result.
+     * @throws IOException If the body cannot be read or decoded.
+     */
+    T decode(InputStream body) throws IOException;
+}
@@ -0,0 +1,60 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import java.time.Duration;
+
+/**
+ * How often and how far apart failed requests are retried by a {@link ResilientRadioApi}.
+ * <p>
+ * The delay before a retry doubles with every attempt up to a maximum, and half of it is randomized, so that clients
+ * failing at the same time do not all retry at the same time.
+ *
+ * @param maxAttempts The maximum number of attempts of a request, including the first one.
+ * @param initialBackoff The delay before the first retry, before randomization.
+ * @param maxBackoff The longest delay before a retry, before randomization.
+ */
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+
+    /**
+     * Validates the policy.
+     */
+    public RetryPolicy {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("At least one attempt must be made: " + maxAttempts);
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0)
+            throw new IllegalArgumentException("Backoffs must not be negative and the maximum must not be below the initial backoff");
+    }
+
+    /**
+     * Returns the default policy: three attempts, retried after about 250 milliseconds and then about 500 milliseconds,
+     * never waiting more than 4 seconds.
+     *
+     * @return The default policy.
+     */
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(3, Duration.ofMillis(250), Duration.ofSeconds(4));
+    }
+
+    /**
+     * Returns a policy that never retries.
+     *
+     * @return A policy with a single attempt.
+     */
+    public static RetryPolicy noRetries() {
+        return new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+    }
+
+    /**
+     * Returns the delay before a retry.
+     *
+     * @param failedAttempts The number of attempts that have failed so far, at least 1.
+     * @param random A random number between 0 inclusive and 1 exclusive deciding the randomized half of the delay.
+     * @return A delay between half of and the whole exponential backoff of the attempt.
+     */
+    public Duration backoff(int failedAttempts, double random) {
+        long initialNanos = initialBackoff.toNanos();
+        long maxNanos = maxBackoff.toNanos();
+        int doublings = Math.min(failedAttempts - 1, 62);
+        long backoffNanos = initialNanos > (maxNanos >> doublings) ? maxNanos : initialNanos << doublings;
+        return Duration.ofNanos(backoffNanos / 2 + (long) (backoffNanos / 2 * random));
+    }
+}
@@ -0,0 +1,247 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A decorator for a radio API that coalesces concurrent schedule requests for the same channel and days,
+ * so that callers asking for a schedule already being fetched share the request in flight instead of issuing a new one.
+ * Single schedules and schedules fetched in batches share the same requests in flight.
+ * <p>
+ * Every caller gets its own future. Cancelling it, or interrupting a caller blocked in {@link #getSchedule(int)},
+ * only detaches that caller; the shared request is cancelled once no caller is waiting for it anymore.
+ */
+public class SingleFlightRadioApi implements RadioApiI {
+
+    private final RadioApiI radioApi;
+    private final ConcurrentHashMap<ScheduleKey, InFlightSchedule> inFlightSchedules;
+
+    /**
+     * Constructs a new SingleFlightRadioApi.
+     *
+     * @param radioApi The radio API to delegate to.
+     */
+    public SingleFlightRadioApi(RadioApiI radioApi) {
+        this.radioApi = radioApi;
+        this.inFlightSchedules = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String fetchData(String path) throws HttpBadRequestException, IOException, InterruptedException, URISyntaxException {
+        return radioApi.fetchData(path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RadioApiChannelsResponse getChannels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return radioApi.getChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RadioApiProgramResponse getProgram(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return radioApi.getProgram(channelId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Joins the request in flight for the channel if there is one.
+     */
+    @Override
+    public RadioApiScheduleResponse getSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        return ApiFutures.await(getScheduleAsync(channelId));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Joins the request in flight for the channel if there is one, including a request for yesterday through tomorrow
+     * made as part of a batch.
+     */
+    @Override
+    public CompletableFuture<RadioApiScheduleResponse> getScheduleAsync(int channelId) {
+        LocalDate today = LocalDate.now();
+        Map<Integer, InFlightSchedule> started = new LinkedHashMap<>();
+        CompletableFuture<RadioApiScheduleResponse> waiter = join(new ScheduleKey(channelId, today.minusDays(1), today.plusDays(1)), started);
+        InFlightSchedule inFlightSchedule = started.get(channelId);
+        if (inFlightSchedule != null) {
+            try {
+                inFlightSchedule.start(radioApi.getScheduleAsync(channelId));
+            } catch (RuntimeException e) {
+                inFlightSchedule.fail(e);
+                throw e;
+            }
+        }
+        return waiter;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Channels with a request in flight for the same days join it, and only the other channels are passed on to the
+     * decorated API, in a single batch.
+     */
+    @Override
+    public Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> getSchedulesAsync(Collection<Integer> channelIds, LocalDate from, LocalDate to) {
+        Map<Integer, InFlightSchedule> started = new LinkedHashMap<>();
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> waiters = new LinkedHashMap<>();
+        for (int channelId : channelIds) {
+            if (waiters.containsKey(channelId))
+                continue;
+            waiters.put(channelId, join(new ScheduleKey(channelId, from, to), started));
+        }
+
+        if (!started.isEmpty()) {
+            Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> responses;
+            try {
+                responses = radioApi.getSchedulesAsync(List.copyOf(started.keySet()), from, to);
+            } catch (RuntimeException e) {
+                started.values().forEach(inFlightSchedule -> inFlightSchedule.fail(e));
+                throw e;
+            }
+            started.forEach((channelId, inFlightSchedule) -> inFlightSchedule.start(responses.get(channelId)));
+        }
+        return waiters;
+    }
+
+    /**
+     * Joins the request in flight for a schedule, registering a new one if there is none. A new request is only
+     * registered here and must be started by the caller with {@link InFlightSchedule#start}, after it is in the map,
+     * so that a request completing at once is still forgotten when it completes.
+     *
+     * @param key The channel and days of the schedule.
+     * @param started Receives the newly registered request, keyed on the ID of its channel, if there was none in flight.
+     * @return The future of the new caller.
+     */
+    private CompletableFuture<RadioApiScheduleResponse> join(ScheduleKey key, Map<Integer, InFlightSchedule> started) {
+        while (true) {
+            InFlightSchedule inFlightSchedule = inFlightSchedules.computeIfAbsent(key, k -> {
+                InFlightSchedule registered = new InFlightSchedule(k);
+                started.put(k.channelId(), registered);
+                return registered;
+            });
+            CompletableFuture<RadioApiScheduleResponse> waiter = inFlightSchedule.join();
+            if (waiter != null)
+                return waiter;
+
+            inFlightSchedules.remove(key, inFlightSchedule);
+        }
+    }
+
+    /**
+     * A record identifying the schedule of a channel between two days.
+     *
+     * @param channelId The ID of the channel.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     */
+    private record ScheduleKey(int channelId, LocalDate from, LocalDate to) { }
+
+    /**
+     * A schedule request in flight together with the number of callers waiting for it.
+     */
+    private class InFlightSchedule {
+        private final ScheduleKey key;
+        private final CompletableFuture<RadioApiScheduleResponse> response;
+        private int waiters;
+        private boolean abandoned;
+
+        /**
+         * Constructs a new InFlightSchedule that is not started yet and forgets it as soon as it completes.
+         *
+         * @param key The channel and days being fetched.
+         */
+        InFlightSchedule(ScheduleKey key) {
+            this.key = key;
+            this.response = new CompletableFuture<>();
+            response.whenComplete((result, throwable) -> inFlightSchedules.remove(key, this));
+        }
+
+        /**
+         * Completes the request with the outcome of the request made to the decorated API, and cancels that request
+         * if this one is abandoned.
+         *
+         * @param source The request made to the decorated API, or null if it made none for the channel.
+         */
+        void start(CompletableFuture<? extends RadioApiScheduleResponse> source) {
+            if (source == null) {
+                fail(new IOException("No schedule was requested for channel " + key.channelId()));
+                return;
+            }
+            source.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    response.completeExceptionally(throwable);
+                } else {
+                    response.complete(result);
+                }
+            });
+            response.whenComplete((result, throwable) -> {
+                if (response.isCancelled())
+                    source.cancel(true);
+            });
+        }
+
+        /**
+         * Fails the request without starting it.
+         *
+         * @param failure The reason the request failed.
+         */
+        void fail(Throwable failure) {
+            response.completeExceptionally(failure);
+        }
+
+        /**
+         * Adds a caller waiting for the request.
+         *
+         * @return The future of the new caller, or null if the request has been abandoned and must not be joined.
+         */
+        synchronized CompletableFuture<RadioApiScheduleResponse> join() {
+            if (abandoned)
+                return null;
+
+            waiters++;
+            CompletableFuture<RadioApiScheduleResponse> waiter = new CompletableFuture<>();
+            response.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    waiter.completeExceptionally(throwable);
+                } else {
+                    waiter.complete(result);
+                }
+            });
+            waiter.whenComplete((result, throwable) -> {
+                if (waiter.isCancelled())
+                    leave();
+            });
+            return waiter;
+        }
+
+        /**
+         * Removes a caller that stopped waiting, and cancels the request if it was the last one.
+         */
+        private synchronized void leave() {
+            if (--waiters > 0 || response.isDone())
+                return;
+
+            abandoned = true;
+            inFlightSchedules.remove(key, this);
+            response.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package se.umu.cs.dv21cgn.radioinfo.api;
+
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+
+/**
+ * A record representing a schedule returned in place of a fresh one that could not be fetched, such as the last
+ * schedule fetched successfully for the channel.
+ *
+ * @param schedule The schedule returned instead.
+ * @param cause The failure that kept a fresh schedule from being fetched.
+ */
+public record StaleScheduleResponse(RadioApiScheduleResponse schedule, Exception cause) implements RadioApiScheduleResponse {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Schedule toSchedule() {
+        return schedule.toSchedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStale() {
+        return true;
+    }
+}
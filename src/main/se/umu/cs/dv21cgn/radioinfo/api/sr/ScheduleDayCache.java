@@ -0,0 +1,134 @@
+package se.umu.cs.dv21cgn.radioinfo.api.sr;
+
+import se.umu.cs.dv21cgn.radioinfo.metrics.HitRatio;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the scheduled episodes of single days of single channels, where every day has its own freshness.
+ * <p>
+ * A day that has passed is settled once it has been fetched at or after its start, since the schedule of a day
+ * essentially never changes after it has aired. Settled days are reused until they are evicted. The current day and
+ * later days may still change and are only reused while they are younger than a maximum age. When the date changes,
+ * the day that was today becomes settled and only the new last day of a window has to be fetched.
+ * The cache is safe to use from any thread.
+ */
+public class ScheduleDayCache {
+
+    /**
+     * How long the current and later days are reused by default.
+     */
+    public static final Duration DEFAULT_CURRENT_DAY_MAX_AGE = Duration.ofMinutes(10);
+
+    private static final HitRatio HITS = MetricsRegistry.global().hitRatio("schedule.day-cache");
+
+    private final Clock clock;
+    private final Duration currentDayMaxAge;
+    private final ConcurrentHashMap<DayKey, DayEntry> days;
+
+    /**
+     * Constructs a new ScheduleDayCache.
+     *
+     * @param clock The clock deciding which days have passed and how old the entries are.
+     * @param currentDayMaxAge How long the current and later days are reused.
+     */
+    public ScheduleDayCache(Clock clock, Duration currentDayMaxAge) {
+        this.clock = clock;
+        this.currentDayMaxAge = currentDayMaxAge;
+        this.days = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the current date of the clock of the cache.
+     *
+     * @return Today's date.
+     */
+    public LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /**
+     * Returns the cached episodes of a day if they are still fresh.
+     *
+     * @param channelId The ID of the channel.
+     * @param date The day.
+     * @return The episodes of the day, or an empty Optional if the day has to be fetched.
+     */
+    public Optional<List<SrRadioApiScheduleItemResponse>> get(int channelId, LocalDate date) {
+        DayEntry entry = days.get(new DayKey(channelId, date));
+        if (entry == null || !isFresh(date, entry)) {
+            HITS.miss();
+            return Optional.empty();
+        }
+        HITS.hit();
+        return Optional.of(entry.episodes());
+    }
+
+    /**
+     * Stores the fetched episodes of a day.
+     *
+     * @param channelId The ID of the channel.
+     * @param date The day.
+     * @param episodes The episodes of the day.
+     */
+    public void put(int channelId, LocalDate date, List<SrRadioApiScheduleItemResponse> episodes) {
+        days.put(new DayKey(channelId, date), new DayEntry(episodes, clock.instant()));
+    }
+
+    /**
+     * Removes every day before a date.
+     *
+     * @param date The first day to keep.
+     */
+    public void evictBefore(LocalDate date) {
+        days.keySet().removeIf(key -> key.date().isBefore(date));
+    }
+
+    /**
+     * Returns the number of cached days.
+     *
+     * @return The number of days over all channels.
+     */
+    public int size() {
+        return days.size();
+    }
+
+    /**
+     * Checks if a cached day can be reused.
+     *
+     * @param date The day.
+     * @param entry The cached entry of the day.
+     * @return True if the day has passed and was fetched after it started, or it was fetched recently enough.
+     */
+    private boolean isFresh(LocalDate date, DayEntry entry) {
+        Instant now = clock.instant();
+        if (date.isBefore(LocalDate.ofInstant(now, clock.getZone())))
+            return !entry.fetchedAt().isBefore(date.atStartOfDay(clock.getZone()).toInstant());
+        return Duration.between(entry.fetchedAt(), now).compareTo(currentDayMaxAge) < 0;
+    }
+
+    /**
+     * The key of a cached day.
+     *
+     * @param channelId The ID of the channel.
+     * @param date The day.
+     */
+    private record DayKey(int channelId, LocalDate date) {
+    }
+
+    /**
+     * A cached day.
+     *
+     * @param episodes The episodes of the day.
+     * @param fetchedAt When the day was fetched.
+     */
+    private record DayEntry(List<SrRadioApiScheduleItemResponse> episodes, Instant fetchedAt) {
+    }
+}
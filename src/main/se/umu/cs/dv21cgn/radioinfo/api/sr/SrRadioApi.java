@@ -1,34 +1,158 @@
 package se.umu.cs.dv21cgn.radioinfo.api.sr;
 
+import se.umu.cs.dv21cgn.radioinfo.api.HttpClientProfile;
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApi;
-import com.google.gson.*;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.RequestLimiter;
+import se.umu.cs.dv21cgn.radioinfo.api.ResponseDecoder;
+import se.umu.cs.dv21cgn.radioinfo.jfr.ScheduleMergeEvent;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An implementation of the RadioApi abstract class for interacting with the SR (Sveriges Radio) API.
  */
 public class SrRadioApi extends RadioApi {
 
+    /**
+     * The base URL of the SR API.
+     */
+    public static final String BASE_URL = "https://api.sr.se/api/v2/";
+
+    /**
+     * The maximum number of schedule requests of a batch in flight at the same time.
+     */
+    public static final int MAX_BATCH_REQUESTS_IN_FLIGHT = 16;
+
+    /**
+     * The format of the date parameter of the scheduled episodes endpoint.
+     */
+    private static final DateTimeFormatter SCHEDULE_DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    /**
+     * The adapter reading a single scheduled episode.
+     */
+    private static final TypeAdapter<SrRadioApiScheduleItemResponse> SCHEDULE_ITEM_ADAPTER = SrRadioApiJson.GSON.getAdapter(SrRadioApiScheduleItemResponse.class);
+
+    /**
+     * The adapter reading a program.
+     */
+    private static final TypeAdapter<SrRadioApiProgramResponse> PROGRAM_ADAPTER = SrRadioApiJson.GSON.getAdapter(SrRadioApiProgramResponse.class);
+
+    /**
+     * The decoder reading the channel list straight from the response stream.
+     */
+    private static final ResponseDecoder<SrRadioApiChannelsResponse> CHANNELS_DECODER = body ->
+            SrRadioApiJson.GSON.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8), SrRadioApiChannelsResponse.class);
+
+    /**
+     * The decoder reading the program of a program response straight from the response stream.
+     */
+    private static final ResponseDecoder<SrRadioApiProgramResponse> PROGRAM_DECODER = SrRadioApi::readProgram;
+
+    /**
+     * The decoder reading the episodes of one day. The same instance is used for every request so that
+     * unchanged days can be revalidated instead of downloaded and parsed again.
+     */
+    private final ResponseDecoder<List<SrRadioApiScheduleItemResponse>> scheduleDecoder = body -> readSchedule(body, SCHEDULE_ITEM_ADAPTER);
+
+    /**
+     * The limit on schedule requests of batches in flight, shared by all batches of this instance.
+     */
+    private final RequestLimiter batchRequestLimiter = new RequestLimiter(MAX_BATCH_REQUESTS_IN_FLIGHT);
+
+    /**
+     * The episodes of the days already fetched, so that a refresh only fetches the days that may have changed.
+     */
+    private final ScheduleDayCache scheduleDayCache;
+
     /**
      * Constructs a new SrRadioApi instance with a custom HttpClient.
      *
      * @param httpClient The HttpClient instance to use for making HTTP requests.
      */
     public SrRadioApi(HttpClient httpClient) {
-        super(httpClient, "https://api.sr.se/api/v2/");
+        this(httpClient, BASE_URL);
     }
 
     /**
-     * Constructs a new SrRadioApi instance with a default HttpClient.
+     * Constructs a new SrRadioApi instance with a custom HttpClient talking to a server other than the SR API,
+     * such as a local stand-in serving the same endpoints.
+     *
+     * @param httpClient The HttpClient instance to use for making HTTP requests.
+     * @param baseUrl The base URL the endpoint paths are appended to, ending with a slash.
+     */
+    public SrRadioApi(HttpClient httpClient, String baseUrl) {
+        this(httpClient, baseUrl, newScheduleDayCache());
+    }
+
+    /**
+     * Constructs a new SrRadioApi instance with a custom HttpClient and a custom cache of fetched schedule days.
+     *
+     * @param httpClient The HttpClient instance to use for making HTTP requests.
+     * @param baseUrl The base URL the endpoint paths are appended to, ending with a slash.
+     * @param scheduleDayCache The cache of fetched schedule days, whose clock also decides which days are yesterday, today and tomorrow.
+     */
+    public SrRadioApi(HttpClient httpClient, String baseUrl, ScheduleDayCache scheduleDayCache) {
+        this(httpClient, baseUrl, HttpClientProfile.defaults(), scheduleDayCache);
+    }
+
+    /**
+     * Constructs a new SrRadioApi instance with a new HttpClient built from a profile.
+     *
+     * @param profile The profile of the client and its requests.
+     */
+    public SrRadioApi(HttpClientProfile profile) {
+        this(profile.newHttpClient(), BASE_URL, profile, newScheduleDayCache());
+    }
+
+    /**
+     * Constructs a new SrRadioApi instance.
+     *
+     * @param httpClient The HttpClient instance to use for making HTTP requests.
+     * @param baseUrl The base URL the endpoint paths are appended to, ending with a slash.
+     * @param profile The profile deciding the timeout and compression of the requests.
+     * @param scheduleDayCache The cache of fetched schedule days, whose clock also decides which days are yesterday, today and tomorrow.
+     */
+    public SrRadioApi(HttpClient httpClient, String baseUrl, HttpClientProfile profile, ScheduleDayCache scheduleDayCache) {
+        super(httpClient, baseUrl, profile);
+        this.scheduleDayCache = scheduleDayCache;
+    }
+
+    /**
+     * Constructs a new SrRadioApi instance with the HttpClient of the default profile, which is shared by every
+     * instance so that they also share its connections.
      */
     public SrRadioApi() {
-        super(HttpClient.newHttpClient(), "https://api.sr.se/api/v2/");
+        this(HttpClientProfile.sharedHttpClient(), BASE_URL);
+    }
+
+    /**
+     * Creates a schedule day cache on the system clock reusing the current day for the default maximum age.
+     *
+     * @return The new cache.
+     */
+    private static ScheduleDayCache newScheduleDayCache() {
+        return new ScheduleDayCache(Clock.systemDefaultZone(), ScheduleDayCache.DEFAULT_CURRENT_DAY_MAX_AGE);
     }
 
     /**
@@ -36,9 +160,7 @@ public class SrRadioApi extends RadioApi {
      */
     @Override
     public SrRadioApiChannelsResponse getChannels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
-        String jsonString = super.fetchData("channels?format=json&pagination=false");
-        JsonObject jsonObject = JsonParser.parseString(jsonString).getAsJsonObject();
-        return new Gson().fromJson(jsonObject, SrRadioApiChannelsResponse.class);
+        return super.fetch("channels?format=json&pagination=false", CHANNELS_DECODER);
     }
 
     /**
@@ -46,53 +168,188 @@ public class SrRadioApi extends RadioApi {
      */
     @Override
     public SrRadioApiProgramResponse getProgram(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
-        String jsonString = super.fetchData("programs/" + channelId + "?format=json");
-        JsonObject jsonObject = JsonParser.parseString(jsonString).getAsJsonObject();
-        return new Gson().fromJson(jsonObject.get("program"), SrRadioApiProgramResponse.class);
+        return super.fetch("programs/" + channelId + "?format=json", PROGRAM_DECODER);
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Blocks until the concurrent requests issued by {@link #getScheduleAsync(int)} have completed.
      */
     @Override
     public SrRadioApiScheduleResponse getSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
-        String jsonString = super.fetchData("scheduledepisodes?channelid=" + channelId + "&format=json&pagination=false");
-        String jsonStringYesterday = super.fetchData("scheduledepisodes?channelid=" + channelId + "&format=json&pagination=false&date=" + LocalDateTime.now().minusDays(1).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-        String jsonStringTomorrow = super.fetchData("scheduledepisodes?channelid=" + channelId + "&format=json&pagination=false&date=" + LocalDateTime.now().plusDays(1).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        return await(getScheduleAsync(channelId));
+    }
 
-        JsonObject jsonObject = mergeSchedule(jsonStringYesterday, jsonString, jsonStringTomorrow);
-        return new Gson().fromJson(jsonObject, SrRadioApiScheduleResponse.class);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The schedules for yesterday, today and tomorrow are requested concurrently and merged once all three have arrived,
+     * so fetching a schedule costs roughly one round-trip. Each day is parsed straight from the response stream as it
+     * arrives. Days still fresh in the schedule day cache are not requested again, so a refresh within the same day never
+     * refetches yesterday. Cancelling the returned future cancels the requests still in flight.
+     */
+    @Override
+    public CompletableFuture<SrRadioApiScheduleResponse> getScheduleAsync(int channelId) {
+        LocalDate today = scheduleDayCache.today();
+        scheduleDayCache.evictBefore(today.minusDays(1));
+        List<CompletableFuture<List<SrRadioApiScheduleItemResponse>>> dayFutures = new ArrayList<>();
+        for (LocalDate date = today.minusDays(1); !date.isAfter(today.plusDays(1)); date = date.plusDays(1)) {
+            dayFutures.add(fetchDay(channelId, date, null));
+        }
+        return mergeDays(dayFutures);
     }
 
     /**
-     * Merges schedule information from three different days into a single JsonObject.
+     * {@inheritDoc}
+     * <p>
+     * Every day of every channel is requested as its own request, and the requests are issued concurrently with at most
+     * {@link #MAX_BATCH_REQUESTS_IN_FLIGHT} in flight. Each completed request immediately starts the next one on the connection
+     * it freed, so a batch of hundreds of channels is served by a few reused connections, or a single multiplexed HTTP/2
+     * connection, rather than by opening one per request. Days still fresh in the schedule day cache are not requested
+     * again. The days of a channel are merged in date order.
      *
-     * @param schedule1 Schedule information for the first day.
-     * @param schedule2 Schedule information for the second day.
-     * @param schedule3 Schedule information for the third day.
-     * @return A JsonObject containing merged schedule information.
-     */
-    private JsonObject mergeSchedule(String schedule1, String schedule2, String schedule3) {
-        JsonObject jsonObject1 = JsonParser.parseString(schedule1).getAsJsonObject();
-        JsonObject jsonObject2 = JsonParser.parseString(schedule2).getAsJsonObject();
-        JsonObject jsonObject3 = JsonParser.parseString(schedule3).getAsJsonObject();
-
-        JsonArray scheduleArray1 = jsonObject1.getAsJsonArray("schedule");
-        JsonArray scheduleArray2 = jsonObject2.getAsJsonArray("schedule");
-        JsonArray scheduleArray3 = jsonObject3.getAsJsonArray("schedule");
-
-        for (JsonElement program : scheduleArray2) {
-            scheduleArray1.add(program);
+     * @throws IllegalArgumentException If the last day is before the first day.
+     */
+    @Override
+    public Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> getSchedulesAsync(Collection<Integer> channelIds, LocalDate from, LocalDate to) {
+        if (to.isBefore(from))
+            throw new IllegalArgumentException("The last day " + to + " is before the first day " + from);
+
+        LocalDate yesterday = scheduleDayCache.today().minusDays(1);
+        scheduleDayCache.evictBefore(from.isBefore(yesterday) ? from : yesterday);
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        for (int channelId : channelIds) {
+            if (scheduleFutures.containsKey(channelId))
+                continue;
+            List<CompletableFuture<List<SrRadioApiScheduleItemResponse>>> dayFutures = new ArrayList<>();
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                dayFutures.add(fetchDay(channelId, date, batchRequestLimiter));
+            }
+            scheduleFutures.put(channelId, mergeDays(dayFutures));
         }
+        return scheduleFutures;
+    }
+
+    /**
+     * Returns the episodes of a day of a channel from the schedule day cache if they are still fresh,
+     * otherwise fetches them and stores them in the cache.
+     *
+     * @param channelId The ID of the channel.
+     * @param date The day.
+     * @param requestLimiter The limiter the request is submitted through, or null to send it right away.
+     * @return A future completed with the episodes of the day. Cancelling it cancels the request.
+     */
+    private CompletableFuture<List<SrRadioApiScheduleItemResponse>> fetchDay(int channelId, LocalDate date, RequestLimiter requestLimiter) {
+        Optional<List<SrRadioApiScheduleItemResponse>> cachedEpisodes = scheduleDayCache.get(channelId, date);
+        if (cachedEpisodes.isPresent())
+            return CompletableFuture.completedFuture(cachedEpisodes.get());
+
+        String path = schedulePath(channelId, date);
+        CompletableFuture<List<SrRadioApiScheduleItemResponse>> dayFuture = requestLimiter == null
+                ? super.fetchAsync(path, scheduleDecoder)
+                : requestLimiter.submit(() -> super.fetchAsync(path, scheduleDecoder));
+        dayFuture.thenAccept(episodes -> scheduleDayCache.put(channelId, date, episodes));
+        return dayFuture;
+    }
 
-        for (JsonElement program : scheduleArray3) {
-            scheduleArray1.add(program);
+    /**
+     * Merges the scheduled episodes of consecutive days once every day has arrived. Cancelling the returned future
+     * cancels the days still in flight.
+     *
+     * @param dayFutures The requests for the episodes of each day, in date order.
+     * @return A future completed with the merged schedule, or exceptionally if any day fails.
+     */
+    private static CompletableFuture<SrRadioApiScheduleResponse> mergeDays(List<CompletableFuture<List<SrRadioApiScheduleItemResponse>>> dayFutures) {
+        CompletableFuture<SrRadioApiScheduleResponse> scheduleFuture = CompletableFuture.allOf(dayFutures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> mergeSchedule(dayFutures.stream().map(CompletableFuture::join).toList()));
+        scheduleFuture.whenComplete((response, throwable) -> {
+            if (scheduleFuture.isCancelled())
+                dayFutures.forEach(dayFuture -> dayFuture.cancel(true));
+        });
+        return scheduleFuture;
+    }
+
+    /**
+     * Builds the path for fetching the scheduled episodes of a channel on a specific date.
+     *
+     * @param channelId The ID of the channel.
+     * @param date The date of the schedule.
+     * @return The path to the scheduled episodes endpoint.
+     */
+    private static String schedulePath(int channelId, LocalDate date) {
+        return "scheduledepisodes?channelid=" + channelId + "&format=json&pagination=false&date=" + SCHEDULE_DATE_FORMAT.format(date);
+    }
+
+    /**
+     * Reads the program of a program response, skipping every other part of the response.
+     *
+     * @param body The response body of the program endpoint.
+     * @return The program, or null if the response has no program.
+     * @throws IOException If the body cannot be read or is not valid JSON.
+     */
+    private static SrRadioApiProgramResponse readProgram(InputStream body) throws IOException {
+        SrRadioApiProgramResponse program = null;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("program")) {
+                    program = PROGRAM_ADAPTER.read(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
         }
+        return program;
+    }
 
-        // Create a new JsonObject to merge episodes
-        JsonObject mergedEpisodes = new JsonObject();
-        mergedEpisodes.add("schedule", scheduleArray1);
+    /**
+     * Reads the scheduled episodes of a response body one at a time, skipping every other part of the response.
+     *
+     * @param body The response body of the scheduled episodes endpoint.
+     * @param itemAdapter The adapter used to read each episode.
+     * @return The scheduled episodes in the order they appear in the response.
+     * @throws IOException If the body cannot be read or is not valid JSON.
+     */
+    private static List<SrRadioApiScheduleItemResponse> readSchedule(InputStream body, TypeAdapter<SrRadioApiScheduleItemResponse> itemAdapter) throws IOException {
+        List<SrRadioApiScheduleItemResponse> schedule = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("schedule")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    schedule.add(itemAdapter.read(reader));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        return Collections.unmodifiableList(schedule);
+    }
 
-        return mergedEpisodes;
+    /**
+     * Merges schedule information from several days into a single response.
+     *
+     * @param days The schedule information of each day, in date order.
+     * @return A response containing the merged schedule information.
+     */
+    private static SrRadioApiScheduleResponse mergeSchedule(List<List<SrRadioApiScheduleItemResponse>> days) {
+        ScheduleMergeEvent event = new ScheduleMergeEvent();
+        event.begin();
+        List<SrRadioApiScheduleItemResponse> mergedEpisodes = new ArrayList<>(days.stream().mapToInt(List::size).sum());
+        for (List<SrRadioApiScheduleItemResponse> day : days) {
+            mergedEpisodes.addAll(day);
+        }
+        if (event.shouldCommit()) {
+            event.days = days.size();
+            event.episodes = mergedEpisodes.size();
+            event.commit();
+        }
+        return new SrRadioApiScheduleResponse(mergedEpisodes);
     }
 }
@@ -0,0 +1,162 @@
+package se.umu.cs.dv21cgn.radioinfo.api.sr;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * A parser for the timestamps of the SR (Sveriges Radio) API, written as {@code /Date(1700000000000)/}
+ * with the number of milliseconds since the epoch, optionally followed by an offset such as {@code +0100} that is ignored.
+ * <p>
+ * The milliseconds are read directly from the characters without creating substrings, and the zone is resolved once.
+ * The offset of the zone is remembered together with the period between its surrounding transitions, so converting
+ * timestamps that fall in the same period, such as the episodes of a few days, only allocates the resulting date and time.
+ * The parser is safe to use from any thread.
+ */
+public final class SrRadioApiDateParser {
+
+    private static final String PREFIX = "/Date(";
+
+    private static final SrRadioApiDateParser SYSTEM_DEFAULT = new SrRadioApiDateParser(ZoneId.systemDefault());
+
+    private final ZoneRules zoneRules;
+    private volatile OffsetPeriod offsetPeriod;
+
+    /**
+     * Constructs a new SrRadioApiDateParser converting timestamps to local date-times in a zone.
+     *
+     * @param zoneId The zone of the local date-times.
+     */
+    public SrRadioApiDateParser(ZoneId zoneId) {
+        this.zoneRules = zoneId.getRules();
+        this.offsetPeriod = new OffsetPeriod(Long.MIN_VALUE, Long.MIN_VALUE, ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the shared parser for the zone of the system at the time the class was loaded.
+     *
+     * @return The parser for the system default zone.
+     */
+    public static SrRadioApiDateParser systemDefault() {
+        return SYSTEM_DEFAULT;
+    }
+
+    /**
+     * Reads the milliseconds since the epoch of a timestamp.
+     *
+     * @param timestamp The timestamp, for example {@code /Date(1700000000000)/}.
+     * @return The milliseconds since the epoch.
+     * @throws IllegalArgumentException If the timestamp is not in the expected format.
+     */
+    public static long parseEpochMillis(CharSequence timestamp) {
+        int length = timestamp.length();
+        if (length <= PREFIX.length() || !startsWithPrefix(timestamp))
+            throw new IllegalArgumentException("Not an SR timestamp: " + timestamp);
+
+        int index = PREFIX.length();
+        boolean negative = timestamp.charAt(index) == '-';
+        if (negative)
+            index++;
+
+        int firstDigit = index;
+        long millis = 0;
+        while (index < length) {
+            int digit = timestamp.charAt(index) - '0';
+            if (digit < 0 || digit > 9)
+                break;
+            if (millis > (Long.MAX_VALUE - digit) / 10)
+                throw new IllegalArgumentException("SR timestamp out of range: " + timestamp);
+            millis = millis * 10 + digit;
+            index++;
+        }
+        if (index == firstDigit || index == length)
+            throw new IllegalArgumentException("Not an SR timestamp: " + timestamp);
+        return negative ? -millis : millis;
+    }
+
+    /**
+     * Converts a timestamp to a local date-time in the zone of the parser.
+     *
+     * @param timestamp The timestamp, for example {@code /Date(1700000000000)/}.
+     * @return The local date-time of the timestamp.
+     * @throws IllegalArgumentException If the timestamp is not in the expected format.
+     */
+    public LocalDateTime parse(CharSequence timestamp) {
+        return toLocalDateTime(parseEpochMillis(timestamp));
+    }
+
+    /**
+     * Converts milliseconds since the epoch to a local date-time in the zone of the parser.
+     *
+     * @param epochMillis The milliseconds since the epoch.
+     * @return The local date-time.
+     */
+    public LocalDateTime toLocalDateTime(long epochMillis) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000);
+        int nanos = Math.floorMod(epochMillis, 1000) * 1_000_000;
+        return LocalDateTime.ofEpochSecond(epochSecond, nanos, offsetAt(epochSecond));
+    }
+
+    /**
+     * Returns the offset of the zone at an instant, looking up the zone rules only when the instant
+     * falls outside the period of the offset used last.
+     *
+     * @param epochSecond The instant in seconds since the epoch.
+     * @return The offset at the instant.
+     */
+    private ZoneOffset offsetAt(long epochSecond) {
+        OffsetPeriod period = offsetPeriod;
+        if (period.contains(epochSecond))
+            return period.offset();
+
+        if (zoneRules.isFixedOffset()) {
+            period = new OffsetPeriod(Long.MIN_VALUE, Long.MAX_VALUE, zoneRules.getOffset(Instant.EPOCH));
+        } else {
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            ZoneOffsetTransition previous = zoneRules.previousTransition(instant.plusSeconds(1));
+            ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+            period = new OffsetPeriod(
+                    previous == null ? Long.MIN_VALUE : previous.toEpochSecond(),
+                    next == null ? Long.MAX_VALUE : next.toEpochSecond(),
+                    zoneRules.getOffset(instant));
+        }
+        offsetPeriod = period;
+        return period.offset();
+    }
+
+    /**
+     * Checks if a timestamp starts with {@code /Date(}.
+     *
+     * @param timestamp The timestamp.
+     * @return True if the timestamp starts with the prefix, otherwise false.
+     */
+    private static boolean startsWithPrefix(CharSequence timestamp) {
+        for (int i = 0; i < PREFIX.length(); i++) {
+            if (timestamp.charAt(i) != PREFIX.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * An offset of the zone together with the period, between two transitions, during which it applies.
+     *
+     * @param fromEpochSecond The start of the period, inclusive.
+     * @param untilEpochSecond The end of the period, exclusive.
+     * @param offset The offset during the period.
+     */
+    private record OffsetPeriod(long fromEpochSecond, long untilEpochSecond, ZoneOffset offset) {
+        /**
+         * Checks if an instant falls within the period.
+         *
+         * @param epochSecond The instant in seconds since the epoch.
+         * @return True if the instant falls within the period, otherwise false.
+         */
+        boolean contains(long epochSecond) {
+            return epochSecond >= fromEpochSecond && epochSecond < untilEpochSecond;
+        }
+    }
+}
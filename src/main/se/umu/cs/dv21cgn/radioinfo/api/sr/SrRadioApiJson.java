@@ -0,0 +1,258 @@
+package se.umu.cs.dv21cgn.radioinfo.api.sr;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JSON configuration shared by every request to the SR (Sveriges Radio) API.
+ * <p>
+ * The response records are read by hand-written type adapters registered up front, so decoding a response neither
+ * builds a new {@link Gson} nor inspects the records reflectively. Fields not used by the records are skipped.
+ * The adapters are stateless, which makes the shared instance safe to use from any thread.
+ */
+public final class SrRadioApiJson {
+
+    /**
+     * The shared Gson instance with an adapter registered for every SR response record.
+     */
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(SrRadioApiChannelsResponse.class, new ChannelsAdapter())
+            .registerTypeAdapter(SrRadioApiChannelsResponse.SrRadioApiChannelResponse.class, new ChannelAdapter())
+            .registerTypeAdapter(SrRadioApiProgramResponse.class, new ProgramAdapter())
+            .registerTypeAdapter(SrRadioApiScheduleResponse.class, new ScheduleAdapter())
+            .registerTypeAdapter(SrRadioApiScheduleItemResponse.class, new ScheduleItemAdapter())
+            .registerTypeAdapter(SrRadioApiScheduleProgramItem.class, new ScheduleProgramAdapter())
+            .create();
+
+    private SrRadioApiJson() {
+    }
+
+    /**
+     * Reads a string value, returning null for a JSON null.
+     *
+     * @param reader The reader positioned at the value.
+     * @return The string, or null.
+     * @throws IOException If the value cannot be read.
+     */
+    private static String nextNullableString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Reads an integer value, returning zero for a JSON null.
+     *
+     * @param reader The reader positioned at the value.
+     * @return The integer, or zero.
+     * @throws IOException If the value cannot be read.
+     */
+    private static int nextNullableInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    /**
+     * A type adapter that only reads, as responses are never written back to the API.
+     *
+     * @param <T> The type read by the adapter.
+     */
+    private abstract static class ReadOnlyAdapter<T> extends TypeAdapter<T> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(JsonWriter out, T value) {
+            throw new UnsupportedOperationException("SR API responses are read only");
+        }
+    }
+
+    /**
+     * Reads the response of the channels endpoint.
+     */
+    private static final class ChannelsAdapter extends ReadOnlyAdapter<SrRadioApiChannelsResponse> {
+        private final ChannelAdapter channelAdapter = new ChannelAdapter();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SrRadioApiChannelsResponse read(JsonReader reader) throws IOException {
+            List<SrRadioApiChannelsResponse.SrRadioApiChannelResponse> channels = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("channels") || reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    channels.add(channelAdapter.read(reader));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+            return new SrRadioApiChannelsResponse(channels);
+        }
+    }
+
+    /**
+     * Reads a single channel of the channels endpoint.
+     */
+    private static final class ChannelAdapter extends ReadOnlyAdapter<SrRadioApiChannelsResponse.SrRadioApiChannelResponse> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SrRadioApiChannelsResponse.SrRadioApiChannelResponse read(JsonReader reader) throws IOException {
+            int id = 0;
+            String name = null;
+            String image = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = nextNullableInt(reader);
+                    case "name" -> name = nextNullableString(reader);
+                    case "image" -> image = nextNullableString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new SrRadioApiChannelsResponse.SrRadioApiChannelResponse(id, name, image);
+        }
+    }
+
+    /**
+     * Reads the program object of the programs endpoint.
+     */
+    private static final class ProgramAdapter extends ReadOnlyAdapter<SrRadioApiProgramResponse> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SrRadioApiProgramResponse read(JsonReader reader) throws IOException {
+            int id = 0;
+            String name = null;
+            String description = null;
+            String programImage = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = nextNullableInt(reader);
+                    case "name" -> name = nextNullableString(reader);
+                    case "description" -> description = nextNullableString(reader);
+                    case "programimage" -> programImage = nextNullableString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new SrRadioApiProgramResponse(id, name, description, programImage);
+        }
+    }
+
+    /**
+     * Reads the response of the scheduled episodes endpoint.
+     */
+    private static final class ScheduleAdapter extends ReadOnlyAdapter<SrRadioApiScheduleResponse> {
+        private final ScheduleItemAdapter itemAdapter = new ScheduleItemAdapter();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SrRadioApiScheduleResponse read(JsonReader reader) throws IOException {
+            List<SrRadioApiScheduleItemResponse> schedule = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("schedule") || reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    schedule.add(itemAdapter.read(reader));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+            return new SrRadioApiScheduleResponse(schedule);
+        }
+    }
+
+    /**
+     * Reads a single scheduled episode of the scheduled episodes endpoint.
+     */
+    private static final class ScheduleItemAdapter extends ReadOnlyAdapter<SrRadioApiScheduleItemResponse> {
+        private final ScheduleProgramAdapter programAdapter = new ScheduleProgramAdapter();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SrRadioApiScheduleItemResponse read(JsonReader reader) throws IOException {
+            int episodeId = 0;
+            String title = null;
+            String description = null;
+            String startTimeUtc = null;
+            String endTimeUtc = null;
+            SrRadioApiScheduleProgramItem program = null;
+            String imageUrl = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "episodeid" -> episodeId = nextNullableInt(reader);
+                    case "title" -> title = nextNullableString(reader);
+                    case "description" -> description = nextNullableString(reader);
+                    case "starttimeutc" -> startTimeUtc = nextNullableString(reader);
+                    case "endtimeutc" -> endTimeUtc = nextNullableString(reader);
+                    case "program" -> program = programAdapter.read(reader);
+                    case "imageurl" -> imageUrl = nextNullableString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new SrRadioApiScheduleItemResponse(episodeId, title, description, startTimeUtc, endTimeUtc, program, imageUrl);
+        }
+    }
+
+    /**
+     * Reads the program a scheduled episode belongs to.
+     */
+    private static final class ScheduleProgramAdapter extends ReadOnlyAdapter<SrRadioApiScheduleProgramItem> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SrRadioApiScheduleProgramItem read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            int id = 0;
+            String name = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = nextNullableInt(reader);
+                    case "name" -> name = nextNullableString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new SrRadioApiScheduleProgramItem(id, name);
+        }
+    }
+}
@@ -2,12 +2,8 @@ package se.umu.cs.dv21cgn.radioinfo.api.sr;
 
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleItemResponse;
 import se.umu.cs.dv21cgn.radioinfo.model.Program;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.TimeZone;
-
-import static java.lang.Long.parseLong;
 
 /**
  * A record representing a program item response within the schedule response from the SR (Sveriges Radio) API.
@@ -27,19 +23,9 @@ public record SrRadioApiScheduleItemResponse(
      *  {@inheritDoc}
      */
     public Program toProgram() {
-        LocalDateTime startTime = convertDateString(starttimeutc);
-        LocalDateTime endTime = convertDateString(endtimeutc);
+        SrRadioApiDateParser dateParser = SrRadioApiDateParser.systemDefault();
+        LocalDateTime startTime = dateParser.parse(starttimeutc);
+        LocalDateTime endTime = dateParser.parse(endtimeutc);
         return new Program(episodeid, title, description, startTime, endTime, Objects.requireNonNullElse(imageurl, "none"));
     }
-
-    /**
-     * Converts a date string from the API response into a LocalDateTime object.
-     *
-     * @param dateString The date string from the API response.
-     * @return A LocalDateTime object representing the converted date.
-     */
-    private LocalDateTime convertDateString(String dateString) {
-        long timestamp = parseLong(dateString.substring(6, 19));
-        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), TimeZone.getDefault().toZoneId());
-    }
 }
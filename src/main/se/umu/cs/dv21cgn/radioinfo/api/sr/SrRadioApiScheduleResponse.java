@@ -1,6 +1,9 @@
 package se.umu.cs.dv21cgn.radioinfo.api.sr;
 
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.jfr.ScheduleBuildEvent;
+import se.umu.cs.dv21cgn.radioinfo.metrics.LatencyHistogram;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
 import se.umu.cs.dv21cgn.radioinfo.model.Program;
 import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
 import java.util.Collection;
@@ -11,15 +14,25 @@ import java.util.Collection;
  */
 public record SrRadioApiScheduleResponse(Collection<SrRadioApiScheduleItemResponse> schedule) implements RadioApiScheduleResponse {
 
+    private static final LatencyHistogram SCHEDULE_BUILD = MetricsRegistry.global().histogram("model.schedule.build");
+
     /**
      * {@inheritDoc}
      */
     public Schedule toSchedule() {
+        long startNanos = MetricsRegistry.global().startTimer();
+        ScheduleBuildEvent event = new ScheduleBuildEvent();
+        event.begin();
         Schedule schedule = new Schedule();
         for (SrRadioApiScheduleItemResponse itemResponse : this.schedule) {
             Program program = itemResponse.toProgram();
             schedule.add(program);
         }
+        SCHEDULE_BUILD.recordSince(startNanos);
+        if (event.shouldCommit()) {
+            event.programs = this.schedule.size();
+            event.commit();
+        }
         return schedule;
     }
 }
@@ -0,0 +1,23 @@
+package se.umu.cs.dv21cgn.radioinfo.controller;
+
+import java.time.Duration;
+
+/**
+ * A record describing how long schedule updates have waited for the update locks of their channels.
+ *
+ * @param acquisitions The number of times a channel update lock was acquired.
+ * @param contended The number of acquisitions that had to wait because another update of the same channel held the lock.
+ * @param totalWait The total time spent waiting for the locks.
+ * @param maxWait The longest single wait for a lock.
+ */
+public record ChannelLockStatistics(long acquisitions, long contended, Duration totalWait, Duration maxWait) {
+
+    /**
+     * Returns the average wait per acquisition, counting acquisitions that did not wait.
+     *
+     * @return The average wait, or zero if no lock has been acquired.
+     */
+    public Duration averageWait() {
+        return acquisitions == 0 ? Duration.ZERO : totalWait.dividedBy(acquisitions);
+    }
+}
@@ -0,0 +1,364 @@
+package se.umu.cs.dv21cgn.radioinfo.controller;
+
+import se.umu.cs.dv21cgn.radioinfo.model.ChannelUpdate;
+import se.umu.cs.dv21cgn.radioinfo.model.Program;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModelObserver;
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+import se.umu.cs.dv21cgn.radioinfo.model.ScheduleChange;
+import se.umu.cs.dv21cgn.radioinfo.model.ScheduleEncodings;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Pushes the state of channels to subscribers as {@link ChannelUpdate}s, so that consumers are told when a schedule
+ * changes or another program starts instead of polling the controller.
+ * <p>
+ * Every channel has its own {@link Flow.Publisher}. A subscriber is sent the current state of the channel as soon as
+ * it requests it, and then a new update whenever the programs of the channel change or the program playing now
+ * changes. Updates are conflated: a subscriber that has not requested more is never queued a backlog, but is sent
+ * only the latest state once it does, so a slow subscriber cannot hold up the model or other subscribers.
+ * Updates are delivered on the given executor, never on the thread that changed the model.
+ */
+public final class ChannelUpdatePublisher implements RadioInfoModelObserver, AutoCloseable {
+
+    private final RadioInfoModel model;
+    private final Clock clock;
+    private final Executor executor;
+    private final ScheduledExecutorService transitionTimer;
+    private final ConcurrentHashMap<Integer, ChannelFeed> feeds;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new ChannelUpdatePublisher delivering updates on the common fork-join pool and deciding what is
+     * playing now with the system clock.
+     *
+     * @param model The model to publish the channels of.
+     */
+    public ChannelUpdatePublisher(RadioInfoModel model) {
+        this(model, Clock.systemDefaultZone(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new ChannelUpdatePublisher and starts observing the model.
+     *
+     * @param model The model to publish the channels of.
+     * @param clock The clock deciding what is playing now.
+     * @param executor The executor delivering updates to subscribers.
+     */
+    public ChannelUpdatePublisher(RadioInfoModel model, Clock clock, Executor executor) {
+        this.model = model;
+        this.clock = clock;
+        this.executor = executor;
+        this.transitionTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "channel-update-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.feeds = new ConcurrentHashMap<>();
+        model.addObserver(this);
+    }
+
+    /**
+     * Returns the publisher of the updates of a channel. A channel that is not in the model yet is published once it
+     * has been added.
+     *
+     * @param channelId The ID of the channel.
+     * @return The publisher.
+     */
+    public Flow.Publisher<ChannelUpdate> channel(int channelId) {
+        return subscriber -> feeds.computeIfAbsent(channelId, ChannelFeed::new).subscribe(subscriber);
+    }
+
+    /**
+     * Publishes the new state of a channel whose schedule has been replaced.
+     *
+     * @param change The schedule change.
+     */
+    @Override
+    public void onScheduleChanged(ScheduleChange change) {
+        ChannelFeed feed = feeds.get(change.channelId());
+        if (feed != null)
+            feed.publishCurrent();
+    }
+
+    /**
+     * Publishes the new state of every subscribed channel after the channels have been replaced.
+     */
+    @Override
+    public void onChannelsChanged() {
+        for (ChannelFeed feed : feeds.values()) {
+            feed.publishCurrent();
+        }
+    }
+
+    /**
+     * Stops publishing and completes every subscription. The publisher stays registered with the model but ignores
+     * its changes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        transitionTimer.shutdownNow();
+        for (ChannelFeed feed : feeds.values()) {
+            feed.complete();
+        }
+    }
+
+    /**
+     * Reads the current state of a channel from the model.
+     *
+     * @param channelId The ID of the channel.
+     * @param now The current time.
+     * @return The update, or an empty Optional if the channel is not in the model.
+     */
+    private Optional<ChannelUpdate> currentUpdate(int channelId, LocalDateTime now) {
+        return model.getScheduleEncodings(channelId)
+                .map(encodings -> new ChannelUpdate(channelId, encodings, encodings.schedule().programAt(now).orElse(null)));
+    }
+
+    /**
+     * Checks if an update tells subscribers something new, that is if the programs of the channel or the program
+     * playing now have changed since the last update. A schedule replaced by an equal one keeps its version.
+     *
+     * @param update The update.
+     * @param lastUpdate The last update pushed, or null if none has been.
+     * @return True if the update should be pushed, otherwise false.
+     */
+    private static boolean isNewState(ChannelUpdate update, ChannelUpdate lastUpdate) {
+        return lastUpdate == null
+                || update.schedule().version() != lastUpdate.schedule().version()
+                || !Objects.equals(update.nowPlaying(), lastUpdate.nowPlaying());
+    }
+
+    /**
+     * Finds the next time another program may be playing on a channel.
+     *
+     * @param schedule The schedule of the channel.
+     * @param now The current time.
+     * @return The end of the current program or the start of the next one, or an empty Optional if there is neither.
+     */
+    private static Optional<LocalDateTime> nextTransition(Schedule schedule, LocalDateTime now) {
+        return schedule.programAt(now)
+                .map(Program::endTime)
+                .or(() -> schedule.nextN(now.plusNanos(1), 1).stream().findFirst().map(Program::startTime));
+    }
+
+    /**
+     * The subscriptions of a single channel and the last update pushed to them.
+     */
+    private final class ChannelFeed {
+        private final int channelId;
+        private final CopyOnWriteArrayList<ConflatingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+        private ChannelUpdate lastUpdate;
+        private ScheduledFuture<?> transition;
+
+        /**
+         * Constructs a new ChannelFeed.
+         *
+         * @param channelId The ID of the channel.
+         */
+        private ChannelFeed(int channelId) {
+            this.channelId = channelId;
+        }
+
+        /**
+         * Adds a subscriber and offers it the current state of the channel.
+         *
+         * @param subscriber The subscriber.
+         */
+        private void subscribe(Flow.Subscriber<? super ChannelUpdate> subscriber) {
+            ConflatingSubscription subscription = new ConflatingSubscription(subscriber, executor, this::unsubscribe);
+            subscriptions.add(subscription);
+            subscriber.onSubscribe(subscription);
+            synchronized (this) {
+                if (closed) {
+                    subscription.complete();
+                } else if (lastUpdate == null) {
+                    publishCurrent();
+                } else {
+                    subscription.offer(lastUpdate);
+                }
+            }
+        }
+
+        /**
+         * Removes a cancelled subscription.
+         *
+         * @param subscription The subscription.
+         */
+        private void unsubscribe(ConflatingSubscription subscription) {
+            subscriptions.remove(subscription);
+        }
+
+        /**
+         * Reads the state of the channel and offers it to every subscription if it differs from the last update,
+         * then schedules the next check for when another program starts. Nothing is read or scheduled while the
+         * channel has no subscribers.
+         */
+        private synchronized void publishCurrent() {
+            if (transition != null)
+                transition.cancel(false);
+            if (closed || subscriptions.isEmpty()) {
+                lastUpdate = null;
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now(clock);
+            Optional<ChannelUpdate> update = currentUpdate(channelId, now);
+            if (update.isEmpty())
+                return;
+
+            if (isNewState(update.get(), lastUpdate)) {
+                lastUpdate = update.get();
+                for (ConflatingSubscription subscription : subscriptions) {
+                    subscription.offer(lastUpdate);
+                }
+            }
+            Optional<LocalDateTime> nextTransition = nextTransition(update.get().schedule().schedule(), now);
+            if (nextTransition.isPresent()) {
+                long delayMillis = Math.max(1, Duration.between(now, nextTransition.get()).toMillis());
+                transition = transitionTimer.schedule(this::publishCurrent, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Completes every subscription of the channel.
+         */
+        private synchronized void complete() {
+            if (transition != null)
+                transition.cancel(false);
+            for (ConflatingSubscription subscription : subscriptions) {
+                subscription.complete();
+            }
+            subscriptions.clear();
+        }
+    }
+
+    /**
+     * A subscription holding at most one undelivered update, which is replaced by newer updates until the subscriber
+     * requests it. Signals to the subscriber are delivered one at a time on the executor.
+     */
+    private static final class ConflatingSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ChannelUpdate> subscriber;
+        private final Executor executor;
+        private final Consumer<ConflatingSubscription> onCancel;
+        private final AtomicReference<ChannelUpdate> pending = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean completing;
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+
+        /**
+         * Constructs a new ConflatingSubscription.
+         *
+         * @param subscriber The subscriber.
+         * @param executor The executor delivering the signals.
+         * @param onCancel Called once when the subscription is cancelled or terminated.
+         */
+        private ConflatingSubscription(Flow.Subscriber<? super ChannelUpdate> subscriber, Executor executor,
+                                       Consumer<ConflatingSubscription> onCancel) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.onCancel = onCancel;
+        }
+
+        /**
+         * Replaces the undelivered update, if any, with a newer one.
+         *
+         * @param update The newer update.
+         */
+        private void offer(ChannelUpdate update) {
+            pending.set(update);
+            signal();
+        }
+
+        /**
+         * Completes the subscription without delivering an undelivered update.
+         */
+        private void complete() {
+            completing = true;
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested a non-positive number of updates: " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                onCancel.accept(this);
+            }
+        }
+
+        /**
+         * Makes sure a delivery runs after this call, starting one unless one is already running.
+         */
+        private void signal() {
+            if (work.getAndIncrement() == 0)
+                executor.execute(this::deliver);
+        }
+
+        /**
+         * Delivers the undelivered update if it has been requested, or the terminal signal, until no more signals
+         * arrived while delivering. A subscriber throwing from onNext is cancelled.
+         */
+        private void deliver() {
+            int missed = 1;
+            do {
+                if (cancelled)
+                    return;
+                if (error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                    return;
+                }
+                if (completing) {
+                    cancel();
+                    subscriber.onComplete();
+                    return;
+                }
+                if (demand.get() > 0) {
+                    ChannelUpdate update = pending.getAndSet(null);
+                    if (update != null) {
+                        if (demand.get() != Long.MAX_VALUE)
+                            demand.decrementAndGet();
+                        try {
+                            subscriber.onNext(update);
+                        } catch (RuntimeException e) {
+                            cancel();
+                            return;
+                        }
+                    }
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
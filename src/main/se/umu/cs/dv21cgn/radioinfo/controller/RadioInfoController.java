@@ -2,13 +2,24 @@ package se.umu.cs.dv21cgn.radioinfo.controller;
 
 import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApiI;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.jfr.ChannelLockWaitEvent;
+import se.umu.cs.dv21cgn.radioinfo.jfr.ScheduleRefreshEvent;
 import se.umu.cs.dv21cgn.radioinfo.model.*;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -22,20 +33,48 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author Carl Gulliksson dv21cgn
  * @version 1.0
  */
-public class RadioInfoController {
+public class RadioInfoController implements AutoCloseable {
+    /**
+     * The number of channels refreshed at the same time when no parallelism is given.
+     */
+    public static final int DEFAULT_REFRESH_PARALLELISM = 8;
+
     private final RadioInfoModel radioInfoModel;
     private final RadioApiI radioApi;
 
-    private final ReentrantLock channelUpdateLock;
+    private final ConcurrentHashMap<Integer, ReentrantLock> channelUpdateLocks;
+    private final ScheduleRefreshEngine scheduleRefreshEngine;
+    private final AtomicInteger requestedChannelId;
+    private volatile ChannelUpdatePublisher channelUpdatePublisher;
+
+    private final LongAdder lockAcquisitions = new LongAdder();
+    private final LongAdder contendedLockAcquisitions = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final LongAccumulator maxLockWaitNanos = new LongAccumulator(Math::max, 0);
 
     public RadioInfoController(RadioInfoModel radioInfoModel, RadioApiI srRadioApi) {
+        this(radioInfoModel, srRadioApi, DEFAULT_REFRESH_PARALLELISM);
+    }
+
+    /**
+     * Constructs a new RadioInfoController with a custom refresh parallelism.
+     *
+     * @param radioInfoModel The model holding the radio information.
+     * @param srRadioApi The API used to fetch radio information.
+     * @param refreshParallelism The maximum number of channels whose schedules are fetched, and the maximum number published, at the same time by {@link #updateCachedSchedules()}.
+     */
+    public RadioInfoController(RadioInfoModel radioInfoModel, RadioApiI srRadioApi, int refreshParallelism) {
         this.radioInfoModel = radioInfoModel;
         this.radioApi = srRadioApi;
-        this.channelUpdateLock = new ReentrantLock();
+        this.channelUpdateLocks = new ConcurrentHashMap<>();
+        this.scheduleRefreshEngine = new ScheduleRefreshEngine(refreshParallelism);
+        this.requestedChannelId = new AtomicInteger(radioInfoModel.getSelectedChannelId());
     }
 
     /**
      * Fetches the list of radio channels and updates the se.umu.cs.dv21cgn.radioinfo.model.
+     * Schedules already known for channels that are still present, for example restored from a
+     * {@link ChannelCacheFile}, are kept.
      *
      * @throws HttpBadRequestException If the request is bad.
      * @throws IOException            If an I/O error occurs.
@@ -44,11 +83,46 @@ public class RadioInfoController {
      */
     public void fetchChannels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
         LinkedHashMap<Integer, Channel> channels = radioApi.getChannels().toChannelMap();
+        radioInfoModel.updateChannels(channels);
+    }
+
+    /**
+     * Restores the channels, schedules and selected channel saved in a channel cache file, without fetching anything.
+     *
+     * @param channelCacheFile The file to restore from.
+     * @return True if the file held channels that were restored, otherwise false.
+     */
+    public boolean restoreChannels(ChannelCacheFile channelCacheFile) {
+        Optional<ChannelCacheFile.Contents> contents = channelCacheFile.load();
+        if (contents.isEmpty() || contents.get().channels().isEmpty())
+            return false;
+
+        LinkedHashMap<Integer, Channel> channels = contents.get().channels();
+        int selectedChannelId = contents.get().selectedChannelId();
+        radioInfoModel.setSelectedChannelId(channels.containsKey(selectedChannelId) ? selectedChannelId : channels.keySet().iterator().next());
         radioInfoModel.setChannels(channels);
+        return true;
+    }
+
+    /**
+     * Saves the channels, schedules and selected channel to a channel cache file.
+     * Nothing is saved while no channels are known, so an earlier file is never replaced by an empty one.
+     *
+     * @param channelCacheFile The file to save to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveChannels(ChannelCacheFile channelCacheFile) throws IOException {
+        Map<Integer, Channel> channels = radioInfoModel.getChannelSnapshot();
+        if (!channels.isEmpty())
+            channelCacheFile.save(channels, radioInfoModel.getSelectedChannelId());
     }
 
     /**
      * Selects a radio channel and fetches its schedule if it is empty.
+     * <p>
+     * Only the most recently requested channel is selected. A selection superseded by a later one while its schedule
+     * was being fetched still stores the schedule but leaves the selection alone, and a superseded selection that is
+     * interrupted while waiting gives up without fetching. Concurrent selections of the same channel fetch its schedule once.
      *
      * @param channelId The ID of the selected channel.
      * @throws HttpBadRequestException If the request is bad.
@@ -57,11 +131,12 @@ public class RadioInfoController {
      * @throws InterruptedException   If the thread is interrupted while waiting.
      */
     public void selectChannel(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        requestedChannelId.set(channelId);
         if(!scheduleIsEmpty(channelId)) {
             radioInfoModel.setSelectedChannelId(channelId);
             return;
         }
-        fetchSchedule(channelId);
+        fetchSchedule(channelId, true);
     }
 
     /**
@@ -74,51 +149,212 @@ public class RadioInfoController {
      * @throws InterruptedException   If the thread is interrupted while waiting.
      */
     public void fetchSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
-        channelUpdateLock.lock();
-        try {
-            Schedule schedule = radioApi.getSchedule(channelId).toSchedule();
-            LinkedHashMap<Integer, Channel> channels = radioInfoModel.getChannels();
-            channels.replace(channelId, new Channel(channelId, radioInfoModel.getChannels().get(channelId).name(), schedule));
-            radioInfoModel.setSelectedChannelId(channelId);
-            radioInfoModel.setChannels(channels);
-        } finally {
-            channelUpdateLock.unlock();
-        }
+        requestedChannelId.set(channelId);
+        fetchSchedule(channelId, false);
     }
 
     /**
-     * Updates cached schedules for all channels.
+     * Fetches the schedule for a channel, replaces it in the model and selects the channel unless another channel
+     * has been requested since.
      *
+     * @param channelId The ID of the channel to fetch the schedule for.
+     * @param onlyIfEmpty True if the fetch should be skipped when the schedule was filled while waiting for the update lock.
      * @throws HttpBadRequestException If the request is bad.
      * @throws IOException            If an I/O error occurs.
      * @throws URISyntaxException     If there is a syntax error in a URI.
      * @throws InterruptedException   If the thread is interrupted while waiting.
      */
-    public void updateCachedSchedules() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
-        channelUpdateLock.lock();
+    private void fetchSchedule(int channelId, boolean onlyIfEmpty) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        ReentrantLock channelUpdateLock = lockChannelUpdates(channelId);
         try {
-            LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
-            for (Channel channel : radioInfoModel.getChannels().values()) {
-                if(!scheduleIsEmpty(channel.id())) {
-                    Schedule schedule = radioApi.getSchedule(channel.id()).toSchedule();
-                    channels.put(channel.id(), new Channel(channel.id(), channel.name(), schedule));
-                } else {
-                    channels.put(channel.id(), channel);
-                }
+            if (!onlyIfEmpty || scheduleIsEmpty(channelId)) {
+                Schedule schedule = radioApi.getSchedule(channelId).toSchedule();
+                selectIfStillRequested(channelId);
+                radioInfoModel.replaceSchedule(channelId, schedule);
+            } else {
+                selectIfStillRequested(channelId);
             }
-            radioInfoModel.setChannels(channels);
         } finally {
             channelUpdateLock.unlock();
         }
     }
 
     /**
-     * Returns a map of all radio channels.
+     * Selects a channel unless another channel has been requested since.
+     *
+     * @param channelId The ID of the channel to select.
+     */
+    private void selectIfStillRequested(int channelId) {
+        if (requestedChannelId.get() == channelId)
+            radioInfoModel.setSelectedChannelId(channelId);
+    }
+
+    /**
+     * Updates cached schedules for all channels. The schedules of yesterday through tomorrow of every cached channel
+     * are fetched in a single batch, and each new schedule is published to the model as soon as it has arrived.
+     * A channel that fails to refresh keeps its old schedule and is listed in the returned report instead of aborting
+     * the refresh of the other channels, and a channel given a stale schedule by the API is listed as stale. This is
+     * used both to refresh the schedules periodically and to warm up the schedules restored at startup.
+     *
+     * @return A report with the duration and outcome of every refreshed channel.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public ScheduleRefreshReport updateCachedSchedules() throws InterruptedException {
+        List<Integer> cachedChannelIds = radioInfoModel.getChannelSnapshot().values().stream()
+                .filter(channel -> !channel.schedule().isEmpty())
+                .map(Channel::id)
+                .toList();
+        return updateSchedules(cachedChannelIds);
+    }
+
+    /**
+     * Updates the schedules of every channel, including channels whose schedules have never been fetched, in the
+     * same way as {@link #updateCachedSchedules()}. This keeps every schedule warm when the model is served to
+     * clients that may ask for any channel rather than shown for a selected one.
+     *
+     * @return A report with the duration and outcome of every refreshed channel.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public ScheduleRefreshReport updateAllSchedules() throws InterruptedException {
+        return updateSchedules(List.copyOf(radioInfoModel.getChannelSnapshot().keySet()));
+    }
+
+    /**
+     * Fetches the schedules of yesterday through tomorrow of the given channels in a single batch and publishes each of
+     * them to the model as soon as it has arrived.
+     *
+     * @param channelIds The IDs of the channels to update.
+     * @return A report with the duration and outcome of every refreshed channel.
+     * @throws InterruptedException   If the thread is interrupted while waiting.
+     */
+    private ScheduleRefreshReport updateSchedules(List<Integer> channelIds) throws InterruptedException {
+        if (channelIds.isEmpty())
+            return new ScheduleRefreshReport(Duration.ZERO, List.of());
+
+        ScheduleRefreshEvent event = new ScheduleRefreshEvent();
+        event.begin();
+        LocalDate today = LocalDate.now();
+        Map<Integer, Channel> channelsAtFetch = radioInfoModel.getChannelSnapshot();
+        ScheduleRefreshReport report = scheduleRefreshEngine.refresh(channelIds,
+                ids -> radioApi.getSchedulesAsync(ids, today.minusDays(1), today.plusDays(1)),
+                (channelId, scheduleResponse) -> publishSchedule(channelId, scheduleResponse, channelsAtFetch.get(channelId)));
+        if (event.shouldCommit()) {
+            event.channels = channelIds.size();
+            event.failures = report.failures().size();
+            event.commit();
+        }
+        return report;
+    }
+
+    /**
+     * Replaces the schedule of a cached channel in the model with the one fetched for it in a batch,
+     * without changing the selected channel. If another schedule has been stored for the channel since the batch
+     * was started, for example by selecting the channel, that schedule is kept instead of being overwritten by
+     * one that may be older.
+     *
+     * @param channelId The ID of the channel to publish the schedule of.
+     * @param scheduleResponse The schedule fetched for the channel.
+     * @param channelAtFetch The channel as it was when the batch was started, or null if it was not known then.
+     * @return True if the published schedule is stale, having been returned in place of a fresh one that could not be
+     *         fetched, otherwise false.
+     * @throws InterruptedException   If the thread is interrupted while waiting for the update lock.
+     */
+    private boolean publishSchedule(int channelId, RadioApiScheduleResponse scheduleResponse, Channel channelAtFetch) throws InterruptedException {
+        Schedule schedule = scheduleResponse.toSchedule();
+        ReentrantLock channelUpdateLock = lockChannelUpdates(channelId);
+        try {
+            Channel channel = radioInfoModel.getChannelSnapshot().get(channelId);
+            if (channelAtFetch == null || channel == null || isReplacedSince(channelAtFetch.schedule(), channel.schedule()))
+                return false;
+            radioInfoModel.replaceSchedule(channelId, schedule);
+            return scheduleResponse.isStale();
+        } finally {
+            channelUpdateLock.unlock();
+        }
+    }
+
+    /**
+     * Checks if a schedule has been stored for a channel since an earlier read. A channel list update replacing an empty
+     * schedule with another empty one does not count.
+     *
+     * @param earlier The schedule of the channel at the earlier read.
+     * @param current The current schedule of the channel.
+     * @return True if another schedule has been stored, otherwise false.
+     */
+    private static boolean isReplacedSince(Schedule earlier, Schedule current) {
+        return current != earlier && !(current.isEmpty() && earlier.isEmpty());
+    }
+
+    /**
+     * Returns the lock serializing schedule updates of a channel, so that updates of different channels can run in parallel.
+     *
+     * @param channelId The ID of the channel.
+     * @return The update lock of the channel.
+     */
+    private ReentrantLock channelUpdateLock(int channelId) {
+        return channelUpdateLocks.computeIfAbsent(channelId, id -> new ReentrantLock());
+    }
+
+    /**
+     * Acquires the update lock of a channel, recording how long the acquisition had to wait.
+     *
+     * @param channelId The ID of the channel.
+     * @return The acquired update lock of the channel, to be unlocked by the caller.
+     * @throws InterruptedException If the thread is interrupted while waiting for the lock.
+     */
+    private ReentrantLock lockChannelUpdates(int channelId) throws InterruptedException {
+        ReentrantLock channelUpdateLock = channelUpdateLock(channelId);
+        if (channelUpdateLock.tryLock()) {
+            lockAcquisitions.increment();
+            return channelUpdateLock;
+        }
+
+        long waitStart = System.nanoTime();
+        ChannelLockWaitEvent event = new ChannelLockWaitEvent();
+        event.begin();
+        channelUpdateLock.lockInterruptibly();
+        long waited = System.nanoTime() - waitStart;
+        lockAcquisitions.increment();
+        if (event.shouldCommit()) {
+            event.channelId = channelId;
+            event.commit();
+        }
+        contendedLockAcquisitions.increment();
+        lockWaitNanos.add(waited);
+        maxLockWaitNanos.accumulate(waited);
+        return channelUpdateLock;
+    }
+
+    /**
+     * Stops the worker threads refreshing the schedules and the publisher of channel updates, if it was created.
+     * Refreshes already running are allowed to finish.
+     */
+    @Override
+    public void close() {
+        scheduleRefreshEngine.shutdown();
+        synchronized (this) {
+            if (channelUpdatePublisher != null)
+                channelUpdatePublisher.close();
+        }
+    }
+
+    /**
+     * Returns how long schedule updates have waited for the update locks of their channels since the controller was created.
+     *
+     * @return The lock wait statistics.
+     */
+    public ChannelLockStatistics getChannelLockStatistics() {
+        return new ChannelLockStatistics(lockAcquisitions.sum(), contendedLockAcquisitions.sum(),
+                Duration.ofNanos(lockWaitNanos.sum()), Duration.ofNanos(maxLockWaitNanos.get()));
+    }
+
+    /**
+     * Returns a map of all radio channels. The map is an immutable snapshot that is not affected by later updates.
      *
      * @return A map of channel IDs to their corresponding Channel objects.
      */
     public Map<Integer, Channel> getChannels() {
-        return radioInfoModel.getChannels();
+        return radioInfoModel.getChannelSnapshot();
     }
 
     /**
@@ -128,7 +364,40 @@ public class RadioInfoController {
      * @return The schedule of the specified channel.
      */
     public Schedule getSchedule(int channelId) {
-        return radioInfoModel.getChannels().get(channelId).schedule();
+        return radioInfoModel.getChannelSnapshot().get(channelId).schedule();
+    }
+
+    /**
+     * Returns the current version of the schedule of a channel with its encoded forms, which are cached until the
+     * programs of the channel change.
+     *
+     * @param channelId The ID of the channel.
+     * @return The encodings of the schedule, or an empty Optional if there is no such channel.
+     */
+    public Optional<ScheduleEncodings> getScheduleEncodings(int channelId) {
+        return radioInfoModel.getScheduleEncodings(channelId);
+    }
+
+    /**
+     * Returns a publisher pushing the schedule and the program playing now of a channel whenever either changes.
+     * Slow subscribers are only sent the latest state. See {@link ChannelUpdatePublisher}. The publisher is created
+     * the first time updates are asked for, so a controller nobody subscribes to never starts its timer thread.
+     *
+     * @param channelId The ID of the channel.
+     * @return The publisher of the updates of the channel.
+     */
+    public Flow.Publisher<ChannelUpdate> channelUpdates(int channelId) {
+        ChannelUpdatePublisher publisher = channelUpdatePublisher;
+        if (publisher == null) {
+            synchronized (this) {
+                publisher = channelUpdatePublisher;
+                if (publisher == null) {
+                    publisher = new ChannelUpdatePublisher(radioInfoModel);
+                    channelUpdatePublisher = publisher;
+                }
+            }
+        }
+        return publisher.channel(channelId);
     }
 
     /**
@@ -138,7 +407,16 @@ public class RadioInfoController {
      * @return The Channel object corresponding to the given ID.
      */
     public Channel getChannel(int channelId) {
-        return radioInfoModel.getChannels().get(channelId);
+        return radioInfoModel.getChannelSnapshot().get(channelId);
+    }
+
+    /**
+     * Returns the ID of the selected channel.
+     *
+     * @return The ID of the selected channel.
+     */
+    public int getSelectedChannelId() {
+        return radioInfoModel.getSelectedChannelId();
     }
 
     /**
@@ -157,7 +435,8 @@ public class RadioInfoController {
      * @return True if the schedule is empty, otherwise false.
      */
     public boolean scheduleIsEmpty(int channelId) {
-        return getChannels().containsKey(channelId) && getChannels().get(channelId).schedule().isEmpty();
+        Channel channel = radioInfoModel.getChannelSnapshot().get(channelId);
+        return channel != null && channel.schedule().isEmpty();
     }
 
     /**
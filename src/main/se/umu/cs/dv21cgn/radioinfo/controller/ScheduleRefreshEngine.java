@@ -0,0 +1,325 @@
+package se.umu.cs.dv21cgn.radioinfo.controller;
+
+import se.umu.cs.dv21cgn.radioinfo.jfr.ChannelRefreshEvent;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs the refresh of many channels concurrently, fetching and publishing at most a bounded number of channels at the
+ * same time. Each channel is refreshed independently, so a failing channel is recorded in the report instead of
+ * aborting the refresh of the others.
+ */
+public class ScheduleRefreshEngine {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new ScheduleRefreshEngine.
+     *
+     * @param parallelism The maximum number of channels of a refresh fetched at the same time, and the maximum number
+     *                    of channels published at the same time.
+     */
+    public ScheduleRefreshEngine(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+
+        this.parallelism = parallelism;
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "schedule-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Refreshes the given channels and waits for all of them to finish. At most as many channels as the parallelism
+     * of the engine are fetched at the same time: the first ones are fetched together in one batch, and each completed
+     * fetch frees its slot for the channels still waiting, which are fetched in batches of the slots free at that time.
+     * Each channel is published by a worker thread as soon as its own fetch has completed, so a slow channel never
+     * delays publishing the others.
+     *
+     * @param channelIds The IDs of the channels to refresh.
+     * @param fetch Starts fetching the given channels, returning the fetch of each channel by channel ID.
+     * @param task The task publishing what was fetched for a single channel.
+     * @param <T> The type of what is fetched for a channel.
+     * @return A report with the duration and outcome of every channel, from the start of its fetch until it was published.
+     * @throws InterruptedException If the thread is interrupted while waiting. Channels not yet refreshed are cancelled.
+     */
+    public <T> ScheduleRefreshReport refresh(Collection<Integer> channelIds, Function<Collection<Integer>, Map<Integer, ? extends CompletableFuture<? extends T>>> fetch,
+                                             ChannelRefreshTask<T> task) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Integer> distinctChannelIds = List.copyOf(new LinkedHashSet<>(channelIds));
+        BoundedFetches<T> fetches = new BoundedFetches<>(distinctChannelIds, fetch, parallelism);
+        List<CompletableFuture<ScheduleRefreshReport.ChannelRefresh>> refreshes = new ArrayList<>();
+        for (int channelId : distinctChannelIds) {
+            ChannelFetch<T> channelFetch = fetches.get(channelId);
+            refreshes.add(channelFetch.fetched().handleAsync((value, throwable) -> refreshChannel(channelId, value, throwable, task, channelFetch), executor));
+        }
+        fetches.startWaiting();
+
+        List<ScheduleRefreshReport.ChannelRefresh> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<ScheduleRefreshReport.ChannelRefresh> refresh : refreshes) {
+                results.add(refresh.get());
+            }
+        } catch (InterruptedException e) {
+            fetches.cancel();
+            refreshes.forEach(refresh -> refresh.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Channel refresh failed unexpectedly", e.getCause());
+        }
+        return new ScheduleRefreshReport(Duration.ofNanos(System.nanoTime() - start), results);
+    }
+
+    /**
+     * Publishes what was fetched for a single channel and records how long the channel took since its fetch started
+     * and whether it failed.
+     *
+     * @param channelId The ID of the channel to refresh.
+     * @param fetched What was fetched for the channel, or null if the fetch failed.
+     * @param fetchFailure The exception the fetch failed with, or null if it succeeded.
+     * @param task The task publishing what was fetched.
+     * @param channelFetch The fetch of the channel.
+     * @param <T> The type of what is fetched for a channel.
+     * @return The outcome of the channel refresh.
+     */
+    private static <T> ScheduleRefreshReport.ChannelRefresh refreshChannel(int channelId, T fetched, Throwable fetchFailure, ChannelRefreshTask<T> task,
+                                                                          ChannelFetch<T> channelFetch) {
+        Exception failure = null;
+        boolean stale = false;
+        try {
+            if (fetchFailure != null)
+                throw unwrap(fetchFailure);
+            stale = task.refresh(channelId, fetched);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (Exception e) {
+            failure = e;
+        }
+        ChannelRefreshEvent event = channelFetch.event();
+        if (event.shouldCommit()) {
+            event.channelId = channelId;
+            event.failure = failure == null ? null : failure.getClass().getName();
+            event.commit();
+        }
+        return new ScheduleRefreshReport.ChannelRefresh(channelId, channelFetch.elapsed(), failure, stale);
+    }
+
+    /**
+     * Finds the exception that made a fetch fail.
+     *
+     * @param failure The exception the fetch completed with.
+     * @return The cause of the failure.
+     */
+    private static Exception unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception e ? e : new IOException(cause);
+    }
+
+    /**
+     * Stops the worker threads of the engine. Refreshes already running are allowed to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * The fetch of a single channel of a refresh.
+     *
+     * @param fetched A future completed with what was fetched for the channel. Cancelling it cancels the fetch, or drops
+     *                it if it has not started yet.
+     * @param event The event spanning the refresh of the channel, begun when its fetch starts.
+     * @param startNanos The value of {@link System#nanoTime()} when the fetch started, or 0 if it has not started.
+     * @param <T> The type of what is fetched for a channel.
+     */
+    private record ChannelFetch<T>(CompletableFuture<T> fetched, ChannelRefreshEvent event, AtomicLong startNanos) {
+
+        /**
+         * Marks the fetch as started.
+         */
+        void start() {
+            event.begin();
+            startNanos.set(System.nanoTime());
+        }
+
+        /**
+         * Returns the time since the fetch started, or zero if it never started.
+         *
+         * @return The elapsed time.
+         */
+        Duration elapsed() {
+            long started = startNanos.get();
+            return started == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * The fetches of the channels of a refresh, started in batches so that at most a bounded number of them are in
+     * flight at the same time.
+     *
+     * @param <T> The type of what is fetched for a channel.
+     */
+    private static final class BoundedFetches<T> {
+        private final Function<Collection<Integer>, Map<Integer, ? extends CompletableFuture<? extends T>>> fetch;
+        private final Map<Integer, ChannelFetch<T>> channelFetches;
+        private final ArrayDeque<Integer> waiting;
+        private int freeSlots;
+
+        /**
+         * Constructs new BoundedFetches for the given channels. No fetch is started before {@link #startWaiting()}.
+         *
+         * @param channelIds The distinct IDs of the channels to fetch.
+         * @param fetch Starts fetching the given channels, returning the fetch of each channel by channel ID.
+         * @param maxInFlight The maximum number of channels fetched at the same time.
+         */
+        BoundedFetches(List<Integer> channelIds, Function<Collection<Integer>, Map<Integer, ? extends CompletableFuture<? extends T>>> fetch,
+                       int maxInFlight) {
+            this.fetch = fetch;
+            this.channelFetches = new LinkedHashMap<>();
+            for (int channelId : channelIds) {
+                channelFetches.put(channelId, new ChannelFetch<>(new CompletableFuture<>(), new ChannelRefreshEvent(), new AtomicLong()));
+            }
+            this.waiting = new ArrayDeque<>(channelIds);
+            this.freeSlots = maxInFlight;
+        }
+
+        /**
+         * Returns the fetch of a channel.
+         *
+         * @param channelId The ID of the channel.
+         * @return The fetch of the channel.
+         */
+        ChannelFetch<T> get(int channelId) {
+            return channelFetches.get(channelId);
+        }
+
+        /**
+         * Starts fetching as many waiting channels as there are free slots, in one batch.
+         */
+        void startWaiting() {
+            List<Integer> batch = new ArrayList<>();
+            synchronized (this) {
+                while (freeSlots > 0 && !waiting.isEmpty()) {
+                    int channelId = waiting.poll();
+                    if (channelFetches.get(channelId).fetched().isDone())
+                        continue;
+                    freeSlots--;
+                    batch.add(channelId);
+                }
+            }
+            if (batch.isEmpty())
+                return;
+
+            batch.forEach(channelId -> channelFetches.get(channelId).start());
+            Map<Integer, ? extends CompletableFuture<? extends T>> started;
+            try {
+                started = fetch.apply(batch);
+            } catch (RuntimeException e) {
+                started = Map.of();
+                batch.forEach(channelId -> channelFetches.get(channelId).fetched().completeExceptionally(e));
+            }
+            for (int channelId : batch) {
+                CompletableFuture<? extends T> source = started.get(channelId);
+                if (source == null)
+                    source = CompletableFuture.failedFuture(new IOException("No schedule was fetched for channel " + channelId));
+                forward(source, channelFetches.get(channelId).fetched());
+            }
+        }
+
+        /**
+         * Completes the fetch of a channel with the outcome of the fetch started for it, cancels that fetch if the
+         * fetch of the channel is cancelled, and frees the slot of the channel once it is done.
+         *
+         * @param source The fetch started for the channel.
+         * @param target The fetch of the channel.
+         */
+        private void forward(CompletableFuture<? extends T> source, CompletableFuture<T> target) {
+            source.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    target.completeExceptionally(throwable);
+                } else {
+                    target.complete(value);
+                }
+                release();
+            });
+            target.whenComplete((value, throwable) -> {
+                if (target.isCancelled())
+                    source.cancel(true);
+            });
+        }
+
+        /**
+         * Frees the slot of a completed fetch and starts the channels waiting for it. They are started on the common
+         * pool so that a long chain of fetches completing at once does not grow the stack.
+         */
+        private void release() {
+            boolean startMore;
+            synchronized (this) {
+                freeSlots++;
+                startMore = !waiting.isEmpty();
+            }
+            if (startMore)
+                ForkJoinPool.commonPool().execute(this::startWaiting);
+        }
+
+        /**
+         * Cancels every fetch that has not completed yet, dropping the ones that have not started.
+         */
+        void cancel() {
+            synchronized (this) {
+                waiting.clear();
+            }
+            channelFetches.values().forEach(channelFetch -> channelFetch.fetched().cancel(true));
+        }
+    }
+
+    /**
+     * A task publishing what was fetched for a single channel.
+     *
+     * @param <T> The type of what is fetched for a channel.
+     */
+    @FunctionalInterface
+    public interface ChannelRefreshTask<T> {
+
+        /**
+         * Publishes what was fetched for a channel.
+         *
+         * @param channelId The ID of the channel to refresh.
+         * @param fetched What was fetched for the channel.
+         * @return True if what was published is stale, having been returned in place of a fresh schedule that could
+         *         not be fetched, otherwise false.
+         * @throws HttpBadRequestException If the request is bad.
+         * @throws IOException            If an I/O error occurs.
+         * @throws URISyntaxException     If there is a syntax error in a URI.
+         * @throws InterruptedException   If the thread is interrupted while waiting.
+         */
+        boolean refresh(int channelId, T fetched) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException;
+    }
+}
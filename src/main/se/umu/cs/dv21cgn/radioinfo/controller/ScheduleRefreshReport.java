@@ -0,0 +1,70 @@
+package se.umu.cs.dv21cgn.radioinfo.controller;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A record describing the outcome of a bulk schedule refresh.
+ *
+ * @param duration The wall-clock duration of the whole refresh.
+ * @param channels The outcome of each refreshed channel, in the order the channels were given.
+ */
+public record ScheduleRefreshReport(Duration duration, List<ChannelRefresh> channels) {
+
+    /**
+     * Returns the channels whose refresh failed.
+     *
+     * @return The failed channel refreshes.
+     */
+    public List<ChannelRefresh> failures() {
+        return channels.stream().filter(channel -> !channel.succeeded()).toList();
+    }
+
+    /**
+     * Returns the channels that were given a stale schedule because a fresh one could not be fetched.
+     *
+     * @return The channel refreshes that published a stale schedule.
+     */
+    public List<ChannelRefresh> stale() {
+        return channels.stream().filter(ChannelRefresh::stale).toList();
+    }
+
+    /**
+     * Checks if any channel was given a stale schedule.
+     *
+     * @return True if at least one channel published a stale schedule, otherwise false.
+     */
+    public boolean hasStale() {
+        return channels.stream().anyMatch(ChannelRefresh::stale);
+    }
+
+    /**
+     * Checks if any channel failed to refresh.
+     *
+     * @return True if at least one channel failed, otherwise false.
+     */
+    public boolean hasFailures() {
+        return channels.stream().anyMatch(channel -> !channel.succeeded());
+    }
+
+    /**
+     * A record describing the outcome of refreshing a single channel.
+     *
+     * @param channelId The ID of the refreshed channel.
+     * @param duration The time from the start of the fetch of the channel until its schedule was published, including
+     *                 waiting for its update lock.
+     * @param failure The exception that made the refresh fail, or null if it succeeded.
+     * @param stale True if the refresh succeeded with a stale schedule returned in place of a fresh one, otherwise false.
+     */
+    public record ChannelRefresh(int channelId, Duration duration, Exception failure, boolean stale) {
+
+        /**
+         * Checks if the channel was refreshed successfully.
+         *
+         * @return True if the refresh succeeded, otherwise false.
+         */
+        public boolean succeeded() {
+            return failure == null;
+        }
+    }
+}
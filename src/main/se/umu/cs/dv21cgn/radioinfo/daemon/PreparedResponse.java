@@ -0,0 +1,63 @@
+package se.umu.cs.dv21cgn.radioinfo.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A JSON response body serialized once and served as is to every client asking for it until the data behind it
+ * changes. The body is also kept gzip compressed, so compressing it is not repeated for every request either.
+ *
+ * @param body The UTF-8 encoded JSON body.
+ * @param gzipBody The body gzip compressed.
+ * @param etag The entity tag of the body, derived from its contents so that it survives restarts of the server.
+ * @param gzipEtag The entity tag of the compressed body, which is a different representation and so needs a tag of
+ *                 its own.
+ * @param validUntil The time after which the body must be rebuilt even if the data behind it has not changed,
+ *                   or null if it only depends on the data.
+ */
+public record PreparedResponse(byte[] body, byte[] gzipBody, String etag, String gzipEtag, LocalDateTime validUntil) {
+
+    /**
+     * Prepares a response body.
+     *
+     * @param body The UTF-8 encoded JSON body.
+     * @param validUntil The time after which the body must be rebuilt, or null if it only depends on the data.
+     * @return The prepared response.
+     */
+    public static PreparedResponse of(byte[] body, LocalDateTime validUntil) {
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+        String tag = Long.toHexString(checksum.getValue()) + "-" + Integer.toHexString(body.length);
+        return new PreparedResponse(body, gzip(body), "\"" + tag + "\"", "\"" + tag + "-gz\"", validUntil);
+    }
+
+    /**
+     * Checks if the body is still valid at the given time.
+     *
+     * @param now The current time.
+     * @return True if the body does not expire or expires after the given time, otherwise false.
+     */
+    public boolean isValidAt(LocalDateTime now) {
+        return validUntil == null || now.isBefore(validUntil);
+    }
+
+    /**
+     * Compresses a body with gzip.
+     *
+     * @param body The body.
+     * @return The compressed body.
+     */
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,113 @@
+package se.umu.cs.dv21cgn.radioinfo.daemon;
+
+import se.umu.cs.dv21cgn.radioinfo.controller.RadioInfoController;
+import se.umu.cs.dv21cgn.radioinfo.controller.ScheduleRefreshReport;
+import se.umu.cs.dv21cgn.radioinfo.model.ChannelCacheFile;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the model and controller without a user interface, keeping the schedules of every channel warm and serving
+ * them to local clients through a {@link ScheduleEndpoint}.
+ * <p>
+ * On start the channels saved in the channel cache file are restored, so that clients are served the last known
+ * state at once. The channels and the schedules of every channel are then refreshed right away and periodically
+ * after that, and saved to the cache file after every refresh.
+ */
+public class RadioInfoDaemon implements AutoCloseable {
+
+    /**
+     * The port the daemon listens on when no port is given.
+     */
+    public static final int DEFAULT_PORT = 8765;
+
+    /**
+     * How often the schedules are refreshed when no interval is given.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofHours(1);
+
+    private final RadioInfoController controller;
+    private final ChannelCacheFile channelCacheFile;
+    private final Duration refreshInterval;
+    private final ScheduleEndpoint endpoint;
+    private final ScheduledExecutorService refreshScheduler;
+
+    /**
+     * Constructs a new RadioInfoDaemon and starts its endpoint. Nothing is restored or fetched until {@link #start()}
+     * is called.
+     *
+     * @param model The model to keep warm and serve.
+     * @param controller The controller updating the model.
+     * @param channelCacheFile The file the channels are restored from and saved to.
+     * @param port The port to listen on, or 0 for any free port.
+     * @param refreshInterval How often the channels and schedules are refreshed.
+     * @throws IOException If the endpoint cannot be started.
+     */
+    public RadioInfoDaemon(RadioInfoModel model, RadioInfoController controller, ChannelCacheFile channelCacheFile, int port, Duration refreshInterval) throws IOException {
+        if (!refreshInterval.isPositive())
+            throw new IllegalArgumentException("The refresh interval must be positive: " + refreshInterval);
+        this.controller = controller;
+        this.channelCacheFile = channelCacheFile;
+        this.refreshInterval = refreshInterval;
+        this.endpoint = new ScheduleEndpoint(new SnapshotResponses(model), controller::channelUpdates, port);
+        this.refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "radioinfo-daemon-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores the saved channels and schedules the refreshes, the first of which runs immediately.
+     */
+    public void start() {
+        controller.restoreChannels(channelCacheFile);
+        refreshScheduler.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the port the daemon listens on.
+     *
+     * @return The port.
+     */
+    public int port() {
+        return endpoint.port();
+    }
+
+    /**
+     * Stops refreshing and serving.
+     */
+    @Override
+    public void close() {
+        refreshScheduler.shutdownNow();
+        endpoint.close();
+    }
+
+    /**
+     * Refreshes the channels and the schedules of every channel and saves them. Failures are reported and the
+     * refresh is tried again at the next interval, while the last known state is still served. Runtime exceptions
+     * are caught as well, since they would otherwise cancel every later refresh.
+     */
+    private void refresh() {
+        try {
+            controller.fetchChannels();
+            ScheduleRefreshReport report = controller.updateAllSchedules();
+            if (report.hasFailures())
+                System.err.println("Could not refresh the schedules of " + report.failures().size() + " channels");
+            if (report.hasStale())
+                System.err.println("Serving the last known schedules of " + report.stale().size() + " channels");
+            controller.saveChannels(channelCacheFile);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (HttpBadRequestException | IOException | URISyntaxException | RuntimeException e) {
+            System.err.println("Could not refresh the channels: " + e.getMessage());
+        }
+    }
+}
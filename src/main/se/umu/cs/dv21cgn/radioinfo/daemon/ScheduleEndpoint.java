@@ -0,0 +1,363 @@
+package se.umu.cs.dv21cgn.radioinfo.daemon;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import se.umu.cs.dv21cgn.radioinfo.model.ChannelUpdate;
+import se.umu.cs.dv21cgn.radioinfo.model.ScheduleEncodings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * A HTTP server on the loopback interface serving the channels, schedules and programs playing now of a model
+ * as JSON, so that local clients can poll a headless application instead of each asking the radio API.
+ * <ul>
+ *     <li>{@code GET /channels} returns the ID and name of every channel.</li>
+ *     <li>{@code GET /channels/{id}/schedule} returns every program known for a channel.</li>
+ *     <li>{@code GET /now-playing} returns the program playing now on every channel.</li>
+ *     <li>{@code GET /channels/{id}/updates} streams the program playing now and the schedule of a channel as
+ *     server-sent events, sending a new event whenever either changes.</li>
+ * </ul>
+ * The bodies are prepared by {@link SnapshotResponses} and written as they are, uncompressed or gzip compressed
+ * depending on the Accept-Encoding of the request. Every response carries an ETag, and a request whose
+ * If-None-Match header matches it is answered 304 (Not Modified) without a body. Event streams request one update at
+ * a time and only ask for the next once the last has been written, so a slow client is sent the latest state when it
+ * catches up rather than every update it missed.
+ * <p>
+ * Requests are handled on virtual threads when the runtime supports them, so that many slow clients do not tie up
+ * platform threads, and on a cached thread pool otherwise.
+ */
+public class ScheduleEndpoint implements AutoCloseable {
+
+    /**
+     * How long an event stream may be idle before a comment is sent to keep it open and to notice a closed client.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 15;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SnapshotResponses responses;
+    private final IntFunction<Flow.Publisher<ChannelUpdate>> channelUpdates;
+
+    /**
+     * Constructs and starts a new ScheduleEndpoint on the loopback interface.
+     *
+     * @param responses The responses to serve.
+     * @param channelUpdates The publishers of the updates of each channel, streamed to clients as events.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the server cannot be started.
+     */
+    public ScheduleEndpoint(SnapshotResponses responses, IntFunction<Flow.Publisher<ChannelUpdate>> channelUpdates, int port) throws IOException {
+        this.responses = responses;
+        this.channelUpdates = channelUpdates;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/channels", this::handleChannels);
+        server.createContext("/now-playing", exchange -> respond(exchange, Optional.of(responses.nowPlaying())));
+        server.start();
+    }
+
+    /**
+     * Returns the port the endpoint listens on.
+     *
+     * @return The port.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the endpoint and ends every event stream.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates the executor handling the requests, with a virtual thread per request if the runtime supports virtual
+     * threads. They are looked up reflectively, since they are a preview feature of the Java version the application
+     * is compiled for.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Answers a request for the channel list or the schedule of a channel.
+     *
+     * @param exchange The request.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handleChannels(HttpExchange exchange) throws IOException {
+        String[] segments = exchange.getRequestURI().getPath().split("/");
+        if (segments.length < 2 || !segments[1].equals("channels")) {
+            respond(exchange, Optional.empty());
+        } else if (segments.length == 2) {
+            respond(exchange, Optional.of(responses.channels()));
+        } else if (segments.length == 4 && segments[3].equals("schedule")) {
+            Optional<PreparedResponse> schedule;
+            try {
+                schedule = responses.schedule(Integer.parseInt(segments[2]));
+            } catch (NumberFormatException e) {
+                schedule = Optional.empty();
+            }
+            respond(exchange, schedule);
+        } else if (segments.length == 4 && segments[3].equals("updates")) {
+            int channelId;
+            try {
+                channelId = Integer.parseInt(segments[2]);
+            } catch (NumberFormatException e) {
+                respond(exchange, Optional.empty());
+                return;
+            }
+            if (responses.schedule(channelId).isEmpty()) {
+                respond(exchange, Optional.empty());
+                return;
+            }
+            streamUpdates(exchange, channelId);
+        } else {
+            respond(exchange, Optional.empty());
+        }
+    }
+
+    /**
+     * Streams the updates of a channel to a client as server-sent events until the client goes away or the endpoint
+     * is closed. Each event holds the ID of the channel, the version of its schedule, the program playing now and
+     * the schedule itself.
+     *
+     * @param exchange The request.
+     * @param channelId The ID of the channel.
+     * @throws IOException If the response cannot be started.
+     */
+    private void streamUpdates(HttpExchange exchange, int channelId) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+
+            UpdateHandoff handoff = new UpdateHandoff();
+            channelUpdates.apply(channelId).subscribe(handoff);
+            try (OutputStream output = exchange.getResponseBody()) {
+                while (true) {
+                    ChannelUpdate update = handoff.next();
+                    if (update == null) {
+                        if (handoff.isDone())
+                            return;
+                        output.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        output.write(event(update));
+                        handoff.requestNext();
+                    }
+                    output.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // The client went away or the endpoint was closed.
+            } finally {
+                handoff.cancel();
+            }
+        }
+    }
+
+    /**
+     * Encodes an update as a server-sent event. The cached JSON of the schedule is copied into the event as it is.
+     *
+     * @param update The update.
+     * @return The UTF-8 encoded event.
+     * @throws IOException If the JSON cannot be written.
+     */
+    private static byte[] event(ChannelUpdate update) throws IOException {
+        ByteArrayOutputStream event = new ByteArrayOutputStream();
+        event.write("event: update\ndata: ".getBytes(StandardCharsets.UTF_8));
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(event, StandardCharsets.UTF_8));
+        writer.beginObject();
+        writer.name("channelId").value(update.channelId());
+        writer.name("version").value(update.schedule().version());
+        writer.name("nowPlaying");
+        if (update.nowPlaying() != null) {
+            ScheduleEncodings.writeProgram(writer, update.nowPlaying());
+        } else {
+            writer.nullValue();
+        }
+        writer.flush();
+        event.write(",\"schedule\":".getBytes(StandardCharsets.UTF_8));
+        event.write(update.schedule().json());
+        event.write("}\n\n".getBytes(StandardCharsets.UTF_8));
+        return event.toByteArray();
+    }
+
+    /**
+     * Answers a request with a prepared response, 304 (Not Modified) if the client already has it, 404 (Not Found) if
+     * there is none, or 405 (Method Not Allowed) if the request is not a GET request.
+     *
+     * @param exchange The request.
+     * @param response The prepared response, or an empty Optional if the resource does not exist.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void respond(HttpExchange exchange, Optional<PreparedResponse> response) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (response.isEmpty()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            PreparedResponse prepared = response.get();
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Headers responseHeaders = exchange.getResponseHeaders();
+            String acceptEncoding = requestHeaders.getFirst("Accept-Encoding");
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            String etag = gzip ? prepared.gzipEtag() : prepared.etag();
+            responseHeaders.set("ETag", etag);
+            responseHeaders.set("Cache-Control", "no-cache");
+            responseHeaders.set("Vary", "Accept-Encoding");
+            if (matchesAny(requestHeaders.get("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body = gzip ? prepared.gzipBody() : prepared.body();
+            responseHeaders.set("Content-Type", "application/json; charset=utf-8");
+            if (gzip)
+                responseHeaders.set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    /**
+     * Checks if the If-None-Match headers of a request match an entity tag. Each header may list several entity tags
+     * separated by commas, and {@code *} matches any tag. Tags are compared weakly as If-None-Match requires, so a tag
+     * given as weak with {@code W/} matches the strong tag with the same value.
+     *
+     * @param ifNoneMatch The values of the If-None-Match headers, or null if there are none.
+     * @param etag The strong entity tag of the response, including its quotes.
+     * @return True if any listed tag matches, otherwise false.
+     */
+    private static boolean matchesAny(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String header : ifNoneMatch) {
+            int i = 0;
+            while (i < header.length()) {
+                char c = header.charAt(i);
+                if (c == ',' || c == ' ' || c == '\t') {
+                    i++;
+                    continue;
+                }
+                if (c == '*')
+                    return true;
+                if (header.startsWith("W/", i))
+                    i += 2;
+                if (i < header.length() && header.charAt(i) == '"') {
+                    int end = header.indexOf('"', i + 1);
+                    if (end < 0)
+                        return false;
+                    if (header.regionMatches(i, etag, 0, etag.length()) && end + 1 == i + etag.length())
+                        return true;
+                    i = end + 1;
+                } else {
+                    int end = header.indexOf(',', i);
+                    i = end < 0 ? header.length() : end + 1;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A subscriber handing updates over to the thread writing an event stream, one requested update at a time.
+     */
+    private static final class UpdateHandoff implements Flow.Subscriber<ChannelUpdate> {
+        private final BlockingQueue<ChannelUpdate> updates = new ArrayBlockingQueue<>(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean done;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ChannelUpdate update) {
+            updates.offer(update);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done = true;
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+        }
+
+        /**
+         * Waits for the requested update.
+         *
+         * @return The update, or null if none arrived before it was time to keep the stream alive.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        private ChannelUpdate next() throws InterruptedException {
+            return updates.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Requests the next update once the last has been written.
+         */
+        private void requestNext() {
+            subscription.request(1);
+        }
+
+        /**
+         * Checks if the publisher has ended the stream.
+         *
+         * @return True if no more updates will arrive, otherwise false.
+         */
+        private boolean isDone() {
+            return done && updates.isEmpty();
+        }
+
+        /**
+         * Stops the updates.
+         */
+        private void cancel() {
+            subscription.cancel();
+        }
+    }
+}
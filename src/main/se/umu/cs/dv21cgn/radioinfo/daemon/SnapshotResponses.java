@@ -0,0 +1,222 @@
+package se.umu.cs.dv21cgn.radioinfo.daemon;
+
+import com.google.gson.stream.JsonWriter;
+import se.umu.cs.dv21cgn.radioinfo.model.Channel;
+import se.umu.cs.dv21cgn.radioinfo.model.Program;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+import se.umu.cs.dv21cgn.radioinfo.model.ScheduleEncodings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JSON responses served for the current snapshot of a {@link RadioInfoModel}.
+ * <p>
+ * Every response is serialized the first time it is asked for after the data behind it has changed and is then
+ * shared by every request until the next change, so polling clients cost a lookup instead of a serialization.
+ * The channel list is rebuilt when the channel snapshot of the model is replaced. Schedules are served from the
+ * {@link ScheduleEncodings} of the model and kept per schedule version, so they are only reprepared when the
+ * programs of their channel change, and a bulk refresh that replaces schedules with equal ones reprepares nothing.
+ * What is playing now also depends on the time and is rebuilt when the earliest current program ends or the
+ * earliest next program starts.
+ * <p>
+ * Two threads noticing the same change at the same time may both serialize the response. Both results are equal,
+ * so this only wastes work and is cheaper than making every lookup wait for a lock.
+ */
+public class SnapshotResponses {
+
+    private final RadioInfoModel model;
+    private final Clock clock;
+    private volatile Prepared<Map<Integer, Channel>> channels;
+    private volatile Prepared<Map<Integer, Channel>> nowPlaying;
+    private final ConcurrentHashMap<Integer, Prepared<Long>> schedules;
+
+    /**
+     * Constructs new SnapshotResponses for a model, deciding what is playing now with the system clock.
+     *
+     * @param model The model to serve.
+     */
+    public SnapshotResponses(RadioInfoModel model) {
+        this(model, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs new SnapshotResponses for a model.
+     *
+     * @param model The model to serve.
+     * @param clock The clock deciding what is playing now.
+     */
+    public SnapshotResponses(RadioInfoModel model, Clock clock) {
+        this.model = model;
+        this.clock = clock;
+        this.schedules = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the list of channels, each with its ID and name.
+     *
+     * @return The prepared response.
+     */
+    public PreparedResponse channels() {
+        Map<Integer, Channel> snapshot = model.getChannelSnapshot();
+        Prepared<Map<Integer, Channel>> prepared = channels;
+        if (prepared == null || prepared.source() != snapshot) {
+            prepared = new Prepared<>(snapshot, serialize(writer -> writeChannels(writer, snapshot), null));
+            channels = prepared;
+        }
+        return prepared.response();
+    }
+
+    /**
+     * Returns every program retained in the schedule of a channel.
+     *
+     * @param channelId The ID of the channel.
+     * @return The prepared response, or an empty Optional if there is no such channel.
+     */
+    public Optional<PreparedResponse> schedule(int channelId) {
+        Optional<ScheduleEncodings> encodings = model.getScheduleEncodings(channelId);
+        if (encodings.isEmpty()) {
+            schedules.remove(channelId);
+            return Optional.empty();
+        }
+
+        long version = encodings.get().version();
+        Prepared<Long> prepared = schedules.get(channelId);
+        if (prepared == null || prepared.source() != version) {
+            prepared = new Prepared<>(version, PreparedResponse.of(encodings.get().json(), null));
+            schedules.put(channelId, prepared);
+        }
+        return Optional.of(prepared.response());
+    }
+
+    /**
+     * Returns the program playing now on every channel, or null for channels with nothing on air.
+     *
+     * @return The prepared response.
+     */
+    public PreparedResponse nowPlaying() {
+        Map<Integer, Channel> snapshot = model.getChannelSnapshot();
+        LocalDateTime now = LocalDateTime.now(clock);
+        Prepared<Map<Integer, Channel>> prepared = nowPlaying;
+        if (prepared == null || prepared.source() != snapshot || !prepared.response().isValidAt(now)) {
+            LocalDateTime validUntil = nextChange(snapshot, now);
+            prepared = new Prepared<>(snapshot, serialize(writer -> writeNowPlaying(writer, snapshot, now), validUntil));
+            nowPlaying = prepared;
+        }
+        return prepared.response();
+    }
+
+    /**
+     * Finds the earliest time after which another program may be playing on any of the channels.
+     *
+     * @param snapshot The channels.
+     * @param now The current time.
+     * @return The earliest end of a current program or start of a next program, or null if no program will change.
+     */
+    private static LocalDateTime nextChange(Map<Integer, Channel> snapshot, LocalDateTime now) {
+        LocalDateTime nextChange = null;
+        for (Channel channel : snapshot.values()) {
+            Schedule schedule = channel.schedule();
+            Optional<LocalDateTime> change = schedule.programAt(now)
+                    .map(Program::endTime)
+                    .or(() -> schedule.nextN(now, 1).stream().findFirst().map(Program::startTime));
+            if (change.isPresent() && (nextChange == null || change.get().isBefore(nextChange)))
+                nextChange = change.get();
+        }
+        return nextChange;
+    }
+
+    /**
+     * Writes the list of channels.
+     *
+     * @param writer The writer to write to.
+     * @param snapshot The channels.
+     * @throws IOException If the JSON cannot be written.
+     */
+    private static void writeChannels(JsonWriter writer, Map<Integer, Channel> snapshot) throws IOException {
+        writer.beginArray();
+        for (Channel channel : snapshot.values()) {
+            writer.beginObject();
+            writer.name("id").value(channel.id());
+            writer.name("name").value(channel.name());
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Writes the program playing now on every channel.
+     *
+     * @param writer The writer to write to.
+     * @param snapshot The channels.
+     * @param now The current time.
+     * @throws IOException If the JSON cannot be written.
+     */
+    private static void writeNowPlaying(JsonWriter writer, Map<Integer, Channel> snapshot, LocalDateTime now) throws IOException {
+        writer.beginArray();
+        for (Channel channel : snapshot.values()) {
+            writer.beginObject();
+            writer.name("channelId").value(channel.id());
+            writer.name("program");
+            Optional<Program> program = channel.schedule().programAt(now);
+            if (program.isPresent()) {
+                ScheduleEncodings.writeProgram(writer, program.get());
+            } else {
+                writer.nullValue();
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Serializes a JSON body and prepares it for serving.
+     *
+     * @param content The code writing the JSON.
+     * @param validUntil The time after which the body must be rebuilt, or null if it only depends on the data.
+     * @return The prepared response.
+     */
+    private static PreparedResponse serialize(JsonContent content, LocalDateTime validUntil) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+            content.write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return PreparedResponse.of(body.toByteArray(), validUntil);
+    }
+
+    /**
+     * Code writing the JSON of a response.
+     */
+    @FunctionalInterface
+    private interface JsonContent {
+
+        /**
+         * Writes the JSON.
+         *
+         * @param writer The writer to write to.
+         * @throws IOException If the JSON cannot be written.
+         */
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * A record holding a prepared response together with the data it was built from, which is compared by identity,
+     * or for schedules by version, to tell if the response is still current.
+     *
+     * @param source The data the response was built from.
+     * @param response The prepared response.
+     * @param <T> The type of the data.
+     */
+    private record Prepared<T>(T source, PreparedResponse response) { }
+}
@@ -0,0 +1,60 @@
+package se.umu.cs.dv21cgn.radioinfo.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers for replacing files without ever leaving a partly written file behind.
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Writes a file by writing a temporary file next to it first and then moving it into place, atomically where the
+     * file system supports it and with a plain move otherwise. A failed write leaves the previous file untouched and
+     * removes the temporary file.
+     *
+     * @param file The file to write.
+     * @param content Writes the content of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, Content content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+                content.writeTo(output);
+            }
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    public interface Content {
+
+        /**
+         * Writes the content to a stream. The stream is buffered and is closed by the caller.
+         *
+         * @param output The stream to write to.
+         * @throws IOException If the content cannot be written.
+         */
+        void writeTo(OutputStream output) throws IOException;
+    }
+}
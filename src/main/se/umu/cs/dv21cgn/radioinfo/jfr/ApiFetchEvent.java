@@ -0,0 +1,56 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning a request to the radio API, from sending it until its body has been decoded.
+ * <p>
+ * Flight Recorder attributes an event to the thread committing it. A blocking request is committed by the thread that
+ * made it, but an asynchronous request begins on the calling thread and is committed by the thread completing it,
+ * usually one of the HTTP client. Such events are marked as asynchronous, so that their thread is not mistaken for
+ * the one waiting for the request.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ApiFetch")
+@Label("API Fetch")
+@Category({"RadioInfo", "API"})
+@Description("A request to the radio API, from sending it until its body has been decoded")
+@StackTrace(false)
+public class ApiFetchEvent extends Event {
+
+    /**
+     * The path of the request.
+     */
+    @Label("Path")
+    public String path;
+
+    /**
+     * The status code of the response, or 0 if no response was received.
+     */
+    @Label("Status Code")
+    public int statusCode;
+
+    /**
+     * The number of bytes of the response body received, before decompression.
+     */
+    @Label("Bytes Received")
+    @DataAmount
+    public long bytesReceived;
+
+    /**
+     * Whether the request was made asynchronously, in which case the event is recorded on the thread completing it.
+     */
+    @Label("Asynchronous")
+    public boolean asynchronous;
+
+    /**
+     * The class of the exception the request failed with, or null if it succeeded.
+     */
+    @Label("Failure")
+    public String failure;
+}
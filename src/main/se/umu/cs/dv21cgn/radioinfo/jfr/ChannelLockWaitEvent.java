@@ -0,0 +1,26 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning a wait for the update lock of a channel held by another thread.
+ * Uncontended acquisitions emit no event.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ChannelLockWait")
+@Label("Channel Lock Wait")
+@Category({"RadioInfo", "Controller"})
+@Description("A wait for the update lock of a channel held by another thread")
+@StackTrace(false)
+public class ChannelLockWaitEvent extends Event {
+
+    /**
+     * The ID of the channel.
+     */
+    @Label("Channel ID")
+    public int channelId;
+}
@@ -0,0 +1,36 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning the refresh of a single channel within a bulk refresh, from the start of its fetch
+ * until its schedule was published. The event begins on the thread starting the fetch and is committed by the worker
+ * thread publishing the channel, so it is recorded on the publishing thread.
+ * Runs shorter than a millisecond are not recorded unless the recording lowers the threshold.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ChannelRefresh")
+@Label("Channel Refresh")
+@Category({"RadioInfo", "Controller"})
+@Description("The refresh of a single channel within a bulk refresh, from the start of its fetch until its schedule was published")
+@StackTrace(false)
+@Threshold("1 ms")
+public class ChannelRefreshEvent extends Event {
+
+    /**
+     * The ID of the channel.
+     */
+    @Label("Channel ID")
+    public int channelId;
+
+    /**
+     * The class of the exception the refresh failed with, or null if it succeeded.
+     */
+    @Label("Failure")
+    public String failure;
+}
@@ -0,0 +1,28 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning the decoding of a response body, which reads the body as it streams in.
+ * Runs shorter than a millisecond are not recorded unless the recording lowers the threshold.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ResponseDecode")
+@Label("Response Decode")
+@Category({"RadioInfo", "API"})
+@Description("Parsing of a response body of the radio API while it is received")
+@StackTrace(false)
+@Threshold("1 ms")
+public class ResponseDecodeEvent extends Event {
+
+    /**
+     * The path of the request.
+     */
+    @Label("Path")
+    public String path;
+}
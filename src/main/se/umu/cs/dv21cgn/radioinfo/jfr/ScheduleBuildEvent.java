@@ -0,0 +1,28 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning the construction of a model schedule from a schedule response.
+ * Runs shorter than a millisecond are not recorded unless the recording lowers the threshold.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ScheduleBuild")
+@Label("Schedule Build")
+@Category({"RadioInfo", "Model"})
+@Description("Construction of a model schedule from a schedule response")
+@StackTrace(false)
+@Threshold("1 ms")
+public class ScheduleBuildEvent extends Event {
+
+    /**
+     * The number of programs of the schedule.
+     */
+    @Label("Programs")
+    public int programs;
+}
@@ -0,0 +1,34 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning the merge of the fetched days of a schedule into one response.
+ * Runs shorter than a millisecond are not recorded unless the recording lowers the threshold.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ScheduleMerge")
+@Label("Schedule Merge")
+@Category({"RadioInfo", "API"})
+@Description("Merging of the fetched days of a schedule into one response")
+@StackTrace(false)
+@Threshold("1 ms")
+public class ScheduleMergeEvent extends Event {
+
+    /**
+     * The number of days merged.
+     */
+    @Label("Days")
+    public int days;
+
+    /**
+     * The number of episodes of all days.
+     */
+    @Label("Episodes")
+    public int episodes;
+}
@@ -0,0 +1,32 @@
+package se.umu.cs.dv21cgn.radioinfo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning a bulk refresh of the cached schedules, from fetching the batch until every
+ * channel has been published.
+ */
+@Name("se.umu.cs.dv21cgn.radioinfo.ScheduleRefresh")
+@Label("Schedule Refresh")
+@Category({"RadioInfo", "Controller"})
+@Description("A bulk refresh of the cached schedules, from fetching them until every channel has been published")
+@StackTrace(false)
+public class ScheduleRefreshEvent extends Event {
+
+    /**
+     * The number of channels refreshed.
+     */
+    @Label("Channels")
+    public int channels;
+
+    /**
+     * The number of channels whose refresh failed.
+     */
+    @Label("Failures")
+    public int failures;
+}
@@ -0,0 +1,50 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter of a {@link MetricsRegistry} that only counts while the registry is enabled.
+ * It is cheap to update from many threads at the same time.
+ */
+public class Counter {
+
+    private final MetricsRegistry registry;
+    private final LongAdder count;
+
+    /**
+     * Constructs a new Counter.
+     *
+     * @param registry The registry the counter belongs to.
+     */
+    Counter(MetricsRegistry registry) {
+        this.registry = registry;
+        this.count = new LongAdder();
+    }
+
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        if (registry.isEnabled())
+            count.increment();
+    }
+
+    /**
+     * Adds an amount to the counter.
+     *
+     * @param amount The amount to add.
+     */
+    public void add(long amount) {
+        if (registry.isEnabled())
+            count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return The sum of everything counted.
+     */
+    public long get() {
+        return count.sum();
+    }
+}
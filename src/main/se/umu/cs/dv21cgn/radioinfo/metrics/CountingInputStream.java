@@ -0,0 +1,63 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream adding the number of bytes read through it to a {@link Counter}.
+ * The stream also keeps its own count, which is kept even while the registry of the counter is disabled.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final Counter counter;
+    private long count;
+
+    /**
+     * Constructs a new CountingInputStream.
+     *
+     * @param in The stream to read from.
+     * @param counter The counter of the bytes read.
+     */
+    public CountingInputStream(InputStream in, Counter counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    /**
+     * Returns the number of bytes read through this stream.
+     *
+     * @return The number of bytes read or skipped.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count++;
+            counter.increment();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            count += read;
+            counter.add(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        counter.add(skipped);
+        return skipped;
+    }
+}
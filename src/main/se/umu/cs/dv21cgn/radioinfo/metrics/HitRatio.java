@@ -0,0 +1,49 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pair of counters of a {@link MetricsRegistry} counting the hits and misses of a cache while the registry is enabled.
+ */
+public class HitRatio {
+
+    private final MetricsRegistry registry;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructs a new HitRatio.
+     *
+     * @param registry The registry the hit ratio belongs to.
+     */
+    HitRatio(MetricsRegistry registry) {
+        this.registry = registry;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Counts a lookup that was served by the cache.
+     */
+    public void hit() {
+        if (registry.isEnabled())
+            hits.increment();
+    }
+
+    /**
+     * Counts a lookup that was not served by the cache.
+     */
+    public void miss() {
+        if (registry.isEnabled())
+            misses.increment();
+    }
+
+    /**
+     * Takes a snapshot of the counts.
+     *
+     * @return The current hits and misses.
+     */
+    public MetricsSnapshot.Ratio snapshot() {
+        return new MetricsSnapshot.Ratio(hits.sum(), misses.sum());
+    }
+}
@@ -0,0 +1,137 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds of a {@link MetricsRegistry}, recording only while the registry is enabled.
+ * <p>
+ * Like HdrHistogram, the histogram has a fixed number of buckets laid out log-linearly: every power of two is split
+ * into 32 equally wide buckets, so any value from a nanosecond to centuries is kept within about 3 % of its true value
+ * in under 16 KB, and recording is a single increment no matter how many values have been recorded.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final MetricsRegistry registry;
+    private final AtomicLongArray buckets;
+    private final LongAdder total;
+    private final LongAccumulator max;
+
+    /**
+     * Constructs a new empty LatencyHistogram.
+     *
+     * @param registry The registry the histogram belongs to.
+     */
+    LatencyHistogram(MetricsRegistry registry) {
+        this.registry = registry;
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Long::max, 0);
+    }
+
+    /**
+     * Records a duration. Negative durations are recorded as zero.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (!registry.isEnabled())
+            return;
+
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(indexOf(value));
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time passed since a timer was started with {@link MetricsRegistry#startTimer()}.
+     * Nothing is recorded if the registry was disabled when the timer was started.
+     *
+     * @param startNanos The value returned by {@link MetricsRegistry#startTimer()}.
+     */
+    public void recordSince(long startNanos) {
+        if (startNanos != MetricsRegistry.TIMER_DISABLED)
+            record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Takes a snapshot of the histogram. Values recorded while the snapshot is taken may or may not be part of it.
+     *
+     * @return The count, mean, percentiles and maximum of the recorded durations.
+     */
+    public MetricsSnapshot.Latency snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        long maxNanos = max.get();
+        return new MetricsSnapshot.Latency(
+                count,
+                count == 0 ? 0 : total.sum() / count,
+                percentile(counts, count, 50, maxNanos),
+                percentile(counts, count, 90, maxNanos),
+                percentile(counts, count, 99, maxNanos),
+                percentile(counts, count, 99.9, maxNanos),
+                maxNanos);
+    }
+
+    /**
+     * Finds the value at a percentile of the recorded values.
+     *
+     * @param counts The number of values in each bucket.
+     * @param count The total number of values.
+     * @param percentile The percentile, between 0 and 100.
+     * @param maxNanos The largest value recorded.
+     * @return The highest value of the bucket holding the percentile, but no more than the largest value recorded.
+     */
+    private static long percentile(long[] counts, long count, double percentile, long maxNanos) {
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestValueOf(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param value The value, not negative.
+     * @return The index of the bucket.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The highest value of the bucket.
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,78 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A small HTTP server publishing snapshots of a {@link MetricsRegistry}, so that dashboards can scrape a running
+ * application. {@code GET /metrics} returns the snapshot as JSON and {@code GET /metrics?format=text} as a table.
+ */
+public class MetricsEndpoint implements AutoCloseable {
+
+    /**
+     * The system property holding the port the application publishes the global registry on, if set.
+     */
+    public static final String PORT_PROPERTY = "radioinfo.metrics.port";
+
+    private final HttpServer server;
+
+    /**
+     * Constructs and starts a new MetricsEndpoint on the loopback interface.
+     *
+     * @param registry The registry to publish.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the server cannot be started.
+     */
+    public MetricsEndpoint(MetricsRegistry registry, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, registry));
+        server.start();
+    }
+
+    /**
+     * Returns the port the endpoint listens on.
+     *
+     * @return The port.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the endpoint.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Answers a request with a snapshot of the registry.
+     *
+     * @param exchange The request.
+     * @param registry The registry to publish.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void respond(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            boolean text = query != null && query.contains("format=text");
+            MetricsSnapshot snapshot = registry.snapshot();
+            byte[] body = (text ? snapshot.format() : snapshot.toJson()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", text ? "text/plain; charset=utf-8" : "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+}
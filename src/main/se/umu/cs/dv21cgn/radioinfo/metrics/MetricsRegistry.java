@@ -0,0 +1,164 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import se.umu.cs.dv21cgn.radioinfo.io.AtomicFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A registry of named counters, latency histograms and hit ratios measuring the hot paths of the application.
+ * <p>
+ * Metrics are created on first use and kept for the lifetime of the registry, so instrumented classes look them up
+ * once and keep them in constants. While the registry is disabled, updating a metric costs a single volatile read and
+ * timers do not even read the clock. The {@link #global()} registry, used by the instrumented classes, is enabled by
+ * starting the application with {@code -Dradioinfo.metrics=true}.
+ */
+public class MetricsRegistry {
+
+    /**
+     * The system property enabling the global registry when set to true.
+     */
+    public static final String ENABLED_PROPERTY = "radioinfo.metrics";
+
+    /**
+     * The system property holding the file the application writes a snapshot of the global registry to when it exits, if set.
+     */
+    public static final String FILE_PROPERTY = "radioinfo.metrics.file";
+
+    /**
+     * The value returned by {@link #startTimer()} while the registry is disabled.
+     */
+    public static final long TIMER_DISABLED = Long.MIN_VALUE;
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry(Boolean.getBoolean(ENABLED_PROPERTY));
+
+    private volatile boolean enabled;
+    private final ConcurrentHashMap<String, Counter> counters;
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies;
+    private final ConcurrentHashMap<String, HitRatio> ratios;
+
+    /**
+     * Constructs a new empty MetricsRegistry.
+     *
+     * @param enabled True if the metrics record what they are told, false if they ignore it.
+     */
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+        this.counters = new ConcurrentHashMap<>();
+        this.latencies = new ConcurrentHashMap<>();
+        this.ratios = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the registry used by the instrumented classes of the application.
+     *
+     * @return The global registry.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Checks if the metrics of the registry record what they are told.
+     *
+     * @return True if the registry is enabled, otherwise false.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off. Values recorded so far are kept.
+     *
+     * @param enabled True to record, false to ignore updates.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter with a name, creating it if it does not exist yet.
+     *
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter(this));
+    }
+
+    /**
+     * Returns the latency histogram with a name, creating it if it does not exist yet.
+     *
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        return latencies.computeIfAbsent(name, key -> new LatencyHistogram(this));
+    }
+
+    /**
+     * Returns the hit ratio with a name, creating it if it does not exist yet.
+     *
+     * @param name The name of the hit ratio.
+     * @return The hit ratio.
+     */
+    public HitRatio hitRatio(String name) {
+        return ratios.computeIfAbsent(name, key -> new HitRatio(this));
+    }
+
+    /**
+     * Starts timing an operation, to be recorded with {@link LatencyHistogram#recordSince(long)}.
+     *
+     * @return The current value of {@link System#nanoTime()}, or {@link #TIMER_DISABLED} if the registry is disabled.
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : TIMER_DISABLED;
+    }
+
+    /**
+     * Takes a snapshot of every metric, sorted by name.
+     *
+     * @return The snapshot.
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(
+                Instant.now(),
+                sorted(counters, Counter::get),
+                sorted(latencies, LatencyHistogram::snapshot),
+                sorted(ratios, HitRatio::snapshot));
+    }
+
+    /**
+     * Writes a snapshot of every metric as JSON to a file, replacing it with {@link AtomicFiles#write} so that a
+     * reader never sees a partly written file.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        byte[] json = snapshot().toJson().getBytes(StandardCharsets.UTF_8);
+        AtomicFiles.write(file, output -> output.write(json));
+    }
+
+    /**
+     * Reads the values of a kind of metric into a map sorted by name.
+     *
+     * @param metrics The metrics by name.
+     * @param value Reads the value of a metric.
+     * @param <M> The type of the metrics.
+     * @param <V> The type of their values.
+     * @return The values by name.
+     */
+    private static <M, V> Map<String, V> sorted(Map<String, M> metrics, Function<M, V> value) {
+        TreeMap<String, V> values = new TreeMap<>();
+        metrics.forEach((name, metric) -> values.put(name, value.apply(metric)));
+        return Collections.unmodifiableMap(values);
+    }
+}
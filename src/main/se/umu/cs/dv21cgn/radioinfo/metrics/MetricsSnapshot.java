@@ -0,0 +1,102 @@
+package se.umu.cs.dv21cgn.radioinfo.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A record holding the values of every metric of a {@link MetricsRegistry} at one point in time, by metric name.
+ *
+ * @param takenAt When the snapshot was taken.
+ * @param counters The counts of the counters.
+ * @param latencies The summaries of the latency histograms.
+ * @param ratios The hits and misses of the hit ratios.
+ */
+public record MetricsSnapshot(Instant takenAt, Map<String, Long> counters, Map<String, Latency> latencies, Map<String, Ratio> ratios) {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * Formats the snapshot as a human-readable table with durations in milliseconds.
+     *
+     * @return The formatted snapshot.
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("metrics at ").append(takenAt).append('\n');
+        if (!latencies.isEmpty()) {
+            builder.append(String.format("%-32s %10s %10s %10s %10s %10s %10s %10s%n", "latency", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            latencies.forEach((name, latency) -> builder.append(String.format("%-32s %10d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n", name, latency.count(),
+                    millis(latency.meanNanos()), millis(latency.p50Nanos()), millis(latency.p90Nanos()), millis(latency.p99Nanos()), millis(latency.p999Nanos()), millis(latency.maxNanos()))));
+        }
+        if (!counters.isEmpty()) {
+            builder.append(String.format("%-32s %10s%n", "counter", "count"));
+            counters.forEach((name, count) -> builder.append(String.format("%-32s %10d%n", name, count)));
+        }
+        if (!ratios.isEmpty()) {
+            builder.append(String.format("%-32s %10s %10s %10s%n", "hit ratio", "hits", "misses", "ratio"));
+            ratios.forEach((name, ratio) -> builder.append(String.format("%-32s %10d %10d %10.3f%n", name, ratio.hits(), ratio.misses(), ratio.ratio())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Formats the snapshot as JSON, with durations in nanoseconds, for dashboards and other tools.
+     *
+     * @return The snapshot as a JSON object.
+     */
+    public String toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("takenAt", takenAt.toString());
+        json.put("counters", counters);
+        json.put("latencies", latencies);
+        json.put("ratios", ratios);
+        return GSON.toJson(json);
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The duration in milliseconds.
+     */
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * A record summarizing the durations recorded by a latency histogram.
+     *
+     * @param count The number of durations recorded.
+     * @param meanNanos The mean duration.
+     * @param p50Nanos The median duration.
+     * @param p90Nanos The 90th percentile of the durations.
+     * @param p99Nanos The 99th percentile of the durations.
+     * @param p999Nanos The 99.9th percentile of the durations.
+     * @param maxNanos The longest duration.
+     */
+    public record Latency(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+    }
+
+    /**
+     * A record holding the hits and misses counted by a hit ratio.
+     *
+     * @param hits The number of lookups served by the cache.
+     * @param misses The number of lookups not served by the cache.
+     */
+    public record Ratio(long hits, long misses) {
+
+        /**
+         * Returns the share of lookups served by the cache.
+         *
+         * @return The hits divided by all lookups, or 0 if there were none.
+         */
+        public double ratio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package se.umu.cs.dv21cgn.radioinfo.model;
+
+import se.umu.cs.dv21cgn.radioinfo.io.AtomicFiles;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A file holding a compact binary copy of the channels, their schedules and the selected channel,
+ * so that the last known state can be shown immediately at startup before anything has been fetched.
+ */
+public class ChannelCacheFile {
+
+    /**
+     * The magic number identifying a channel cache file.
+     */
+    private static final int MAGIC = 0x52494346;
+
+    /**
+     * The version of the file format. Files of other versions are ignored.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path path;
+
+    /**
+     * Constructs a new ChannelCacheFile.
+     *
+     * @param path The path of the file.
+     */
+    public ChannelCacheFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the channel cache file in the default location, in the .radioinfo directory of the user's home directory.
+     *
+     * @return The channel cache file in the default location.
+     */
+    public static ChannelCacheFile atDefaultLocation() {
+        return new ChannelCacheFile(Path.of(System.getProperty("user.home"), ".radioinfo", "channels.cache"));
+    }
+
+    /**
+     * Loads the channels saved in the file.
+     *
+     * @return The saved channels, or an empty Optional if the file does not exist or cannot be read.
+     */
+    public Optional<Contents> load() {
+        if (!Files.isRegularFile(path))
+            return Optional.empty();
+
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION)
+                return Optional.empty();
+
+            ZoneId zone = ZoneId.systemDefault();
+            int selectedChannelId = input.readInt();
+            int channelCount = input.readInt();
+            LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+            for (int i = 0; i < channelCount; i++) {
+                int channelId = input.readInt();
+                String name = readNullableString(input);
+                int programCount = input.readInt();
+                Schedule schedule = new Schedule();
+                for (int j = 0; j < programCount; j++) {
+                    int programId = input.readInt();
+                    String title = readNullableString(input);
+                    String description = readNullableString(input);
+                    LocalDateTime startTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(input.readLong()), zone);
+                    LocalDateTime endTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(input.readLong()), zone);
+                    String icon = readNullableString(input);
+                    schedule.add(new Program(programId, title, description, startTime, endTime, icon));
+                }
+                channels.put(channelId, new Channel(channelId, name, schedule));
+            }
+            return Optional.of(new Contents(channels, selectedChannelId));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves the channels to the file. The file is replaced with {@link AtomicFiles#write}, so a failed save never
+     * leaves a partial file behind.
+     *
+     * @param channels The channels to save.
+     * @param selectedChannelId The ID of the selected channel.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Map<Integer, Channel> channels, int selectedChannelId) throws IOException {
+        AtomicFiles.write(path, stream -> {
+            DataOutputStream output = new DataOutputStream(stream);
+            ZoneId zone = ZoneId.systemDefault();
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(selectedChannelId);
+            output.writeInt(channels.size());
+            for (Channel channel : channels.values()) {
+                output.writeInt(channel.id());
+                writeNullableString(output, channel.name());
+                List<Program> programs = channel.schedule().getAllPrograms();
+                output.writeInt(programs.size());
+                for (Program program : programs) {
+                    output.writeInt(program.id());
+                    writeNullableString(output, program.title());
+                    writeNullableString(output, program.description());
+                    output.writeLong(program.startTime().atZone(zone).toInstant().toEpochMilli());
+                    output.writeLong(program.endTime().atZone(zone).toInstant().toEpochMilli());
+                    writeNullableString(output, program.icon());
+                }
+            }
+            output.flush();
+        });
+    }
+
+    /**
+     * Reads a string that may be null.
+     *
+     * @param input The stream to read from.
+     * @return The string, or null.
+     * @throws IOException If the string cannot be read.
+     */
+    private static String readNullableString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a string that may be null.
+     *
+     * @param output The stream to write to.
+     * @param value The string, or null.
+     * @throws IOException If the string cannot be written.
+     */
+    private static void writeNullableString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * A record holding the contents of a channel cache file.
+     *
+     * @param channels The saved channels and their schedules.
+     * @param selectedChannelId The ID of the channel that was selected when the file was saved.
+     */
+    public record Contents(LinkedHashMap<Integer, Channel> channels, int selectedChannelId) { }
+}
@@ -0,0 +1,15 @@
+package se.umu.cs.dv21cgn.radioinfo.model;
+
+/**
+ * A record representing the state of a channel pushed to subscribers: the current version of its schedule and the
+ * program playing now. A new update is pushed when the programs of the channel change or another program starts.
+ *
+ * @param channelId The ID of the channel.
+ * @param schedule The current version of the schedule with its encoded forms.
+ * @param nowPlaying The program playing now, or null if nothing is on air.
+ */
+public record ChannelUpdate(
+        int channelId,
+        ScheduleEncodings schedule,
+        Program nowPlaying
+) { }
@@ -0,0 +1,40 @@
+package se.umu.cs.dv21cgn.radioinfo.model;
+
+import java.io.IOException;
+
+/**
+ * An exception class representing an HTTP response with an unexpected status code, such as a server error.
+ */
+public class HttpStatusException extends IOException {
+
+    private final int statusCode;
+
+    /**
+     * Constructs a new HttpStatusException.
+     *
+     * @param statusCode The status code of the response.
+     * @param path The path that was requested.
+     */
+    public HttpStatusException(int statusCode, String path) {
+        super("Unexpected HTTP status " + statusCode + " for " + path);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Returns the status code of the response.
+     *
+     * @return The status code.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Checks if the status code says the server failed or is overloaded, so that the same request may succeed later.
+     *
+     * @return True if the status code is 429 (Too Many Requests) or a 5xx server error, otherwise false.
+     */
+    public boolean isTransient() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -1,23 +1,42 @@
 package se.umu.cs.dv21cgn.radioinfo.model;
+import se.umu.cs.dv21cgn.radioinfo.metrics.LatencyHistogram;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A se.umu.cs.dv21cgn.radioinfo.model class representing radio information and channel selection.
+ * <p>
+ * The channel data is published as immutable snapshots through a single atomic reference. Readers take the current
+ * snapshot without locking or copying, and writers build a new snapshot and swap it in, so a reader never contends
+ * with a writer and always sees a consistent set of channels.
+ * <p>
+ * The schedule of every channel is also versioned, with encoded forms of each version built on demand and cached
+ * until the programs of the channel change. See {@link ScheduleEncodings}.
  */
 public class RadioInfoModel {
 
-    private LinkedHashMap<Integer, Channel> channels;
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
+    private static final LatencyHistogram SET_CHANNELS = METRICS.histogram("model.channels.set");
+    private static final LatencyHistogram UPDATE_CHANNELS = METRICS.histogram("model.channels.update");
+    private static final LatencyHistogram REPLACE_SCHEDULE = METRICS.histogram("model.schedule.replace");
+
+    private final AtomicReference<Map<Integer, Channel>> channels;
     private final AtomicInteger selectedChannel;
     private final List<RadioInfoModelObserver> observers;
+    private final ConcurrentHashMap<Integer, ScheduleEncodings> scheduleEncodings;
+    private final AtomicLong scheduleVersions;
 
     /**
      * Constructs a new RadioInfoModel instance with default values.
      */
     public RadioInfoModel() {
-        this.channels = new LinkedHashMap<>();
-        this.selectedChannel = new AtomicInteger(1);
-        this.observers = new ArrayList<>();
+        this(new LinkedHashMap<>());
     }
 
     /**
@@ -26,9 +45,11 @@ public class RadioInfoModel {
      * @param channels The initial channel data.
      */
     public RadioInfoModel(LinkedHashMap<Integer, Channel> channels) {
-        this.channels = channels;
+        this.channels = new AtomicReference<>(snapshotOf(channels));
         this.selectedChannel = new AtomicInteger(1);
-        this.observers = new ArrayList<>();
+        this.observers = new CopyOnWriteArrayList<>();
+        this.scheduleEncodings = new ConcurrentHashMap<>();
+        this.scheduleVersions = new AtomicLong();
     }
 
     /**
@@ -36,26 +57,59 @@ public class RadioInfoModel {
      *
      * @param observer The observer to be added.
      */
-    public synchronized void addObserver(RadioInfoModelObserver observer) {
+    public void addObserver(RadioInfoModelObserver observer) {
         observers.add(observer);
     }
 
     /**
-     * Notifies all registered observers that radio data has changed.
+     * Notifies all registered observers that the list of channels has been replaced.
+     */
+    private void notifyChannelsChanged() {
+        for (RadioInfoModelObserver observer : observers) {
+            observer.onChannelsChanged();
+        }
+    }
+
+    /**
+     * Notifies all registered observers that the schedule of a channel has been replaced.
+     *
+     * @param change The schedule change.
      */
-    private void notifyObservers() {
+    private void notifyScheduleChanged(ScheduleChange change) {
         for (RadioInfoModelObserver observer : observers) {
-            observer.onRadioDataChanged();
+            observer.onScheduleChanged(change);
         }
     }
 
     /**
-     * Returns a copy of the stored channel data.
+     * Notifies all registered observers that another channel has been selected.
+     *
+     * @param previousChannelId The ID of the previously selected channel.
+     * @param selectedChannelId The ID of the newly selected channel.
+     */
+    private void notifySelectedChannelChanged(int previousChannelId, int selectedChannelId) {
+        for (RadioInfoModelObserver observer : observers) {
+            observer.onSelectedChannelChanged(previousChannelId, selectedChannelId);
+        }
+    }
+
+    /**
+     * Returns the current snapshot of the channel data. The snapshot is immutable and is never changed by later updates.
+     *
+     * @return The current snapshot of the channel data.
+     */
+    public Map<Integer, Channel> getChannelSnapshot() {
+        return channels.get();
+    }
+
+    /**
+     * Returns a modifiable copy of the current snapshot of the channel data.
+     * Readers should prefer {@link #getChannelSnapshot()}, which does not copy.
      *
      * @return A copy of the stored channel data.
      */
-    public synchronized LinkedHashMap<Integer, Channel> getChannels() {
-        return new LinkedHashMap<>(channels);
+    public LinkedHashMap<Integer, Channel> getChannels() {
+        return new LinkedHashMap<>(channels.get());
     }
 
     /**
@@ -63,9 +117,93 @@ public class RadioInfoModel {
      *
      * @param channels The new channel data.
      */
-    public synchronized void setChannels(LinkedHashMap<Integer, Channel> channels) {
-        this.channels = channels;
-        notifyObservers();
+    public void setChannels(LinkedHashMap<Integer, Channel> channels) {
+        long startNanos = METRICS.startTimer();
+        this.channels.set(snapshotOf(channels));
+        notifyChannelsChanged();
+        SET_CHANNELS.recordSince(startNanos);
+    }
+
+    /**
+     * Sets the channel data while keeping the schedules already known for channels that are still present,
+     * and notifies observers of the change.
+     *
+     * @param channels The new channel data. Schedules of channels already present replace empty schedules in it.
+     */
+    public void updateChannels(LinkedHashMap<Integer, Channel> channels) {
+        long startNanos = METRICS.startTimer();
+        this.channels.updateAndGet(current -> {
+            LinkedHashMap<Integer, Channel> updated = new LinkedHashMap<>(channels);
+            updated.replaceAll((id, channel) -> {
+                Channel knownChannel = current.get(id);
+                if (knownChannel == null || knownChannel.schedule().isEmpty() || !channel.schedule().isEmpty())
+                    return channel;
+                return new Channel(id, channel.name(), knownChannel.schedule());
+            });
+            return Collections.unmodifiableMap(updated);
+        });
+        notifyChannelsChanged();
+        UPDATE_CHANNELS.recordSince(startNanos);
+    }
+
+    /**
+     * Replaces the schedule of a single channel and notifies observers of the change.
+     * Channels that are not part of the channel data, and schedules that are already in place, are ignored.
+     *
+     * @param channelId The ID of the channel.
+     * @param schedule The new schedule of the channel.
+     */
+    public void replaceSchedule(int channelId, Schedule schedule) {
+        long startNanos = METRICS.startTimer();
+        Map<Integer, Channel> current;
+        Map<Integer, Channel> updated;
+        Channel channel;
+        do {
+            current = channels.get();
+            channel = current.get(channelId);
+            if (channel == null || channel.schedule() == schedule)
+                return;
+
+            LinkedHashMap<Integer, Channel> copy = new LinkedHashMap<>(current);
+            copy.put(channelId, new Channel(channelId, channel.name(), schedule));
+            updated = Collections.unmodifiableMap(copy);
+        } while (!channels.compareAndSet(current, updated));
+        notifyScheduleChanged(new ScheduleChange(channelId, channel.schedule(), schedule));
+        REPLACE_SCHEDULE.recordSince(startNanos);
+    }
+
+    /**
+     * Returns the current version of the schedule of a channel with its encoded forms.
+     * <p>
+     * Reading a channel whose schedule has not been replaced since the last read costs a map lookup and returns the
+     * same instance, with the encoded forms already built. When the schedule has been replaced, its programs are
+     * compared with those of the last version, which is kept if they are equal. Only a schedule with other programs
+     * gets a new version whose encoded forms are built anew.
+     *
+     * @param channelId The ID of the channel.
+     * @return The encodings of the schedule, or an empty Optional if there is no such channel.
+     */
+    public Optional<ScheduleEncodings> getScheduleEncodings(int channelId) {
+        Channel channel = channels.get().get(channelId);
+        if (channel == null) {
+            scheduleEncodings.remove(channelId);
+            return Optional.empty();
+        }
+
+        Schedule schedule = channel.schedule();
+        ScheduleEncodings encodings = scheduleEncodings.get(channelId);
+        if (encodings != null && encodings.schedule() == schedule)
+            return Optional.of(encodings);
+
+        return Optional.of(scheduleEncodings.compute(channelId, (id, current) -> {
+            if (current == null)
+                return new ScheduleEncodings(id, scheduleVersions.incrementAndGet(), schedule);
+            if (current.schedule() == schedule)
+                return current;
+            if (current.programs().equals(schedule.getAllPrograms()))
+                return current.withSchedule(schedule);
+            return new ScheduleEncodings(id, scheduleVersions.incrementAndGet(), schedule);
+        }));
     }
 
     /**
@@ -78,12 +216,23 @@ public class RadioInfoModel {
     }
 
     /**
-     * Sets the ID of the currently selected channel and notifies observers of the change.
+     * Sets the ID of the currently selected channel and notifies observers if the selection changed.
      *
      * @param selectedChannel The ID of the newly selected channel.
      */
     public void setSelectedChannelId(int selectedChannel) {
-        this.selectedChannel.set(selectedChannel);
-        notifyObservers();
+        int previousChannel = this.selectedChannel.getAndSet(selectedChannel);
+        if (previousChannel != selectedChannel)
+            notifySelectedChannelChanged(previousChannel, selectedChannel);
+    }
+
+    /**
+     * Creates an immutable snapshot of the given channel data, keeping its order.
+     *
+     * @param channels The channel data.
+     * @return An immutable copy of the channel data.
+     */
+    private static Map<Integer, Channel> snapshotOf(Map<Integer, Channel> channels) {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(channels));
     }
-}
\ No newline at end of file
+}
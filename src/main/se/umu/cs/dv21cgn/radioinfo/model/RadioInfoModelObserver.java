@@ -2,6 +2,10 @@ package se.umu.cs.dv21cgn.radioinfo.model;
 
 /**
  * An interface to be implemented by classes that observe changes in the RadioInfoModel.
+ * <p>
+ * Each kind of change has its own method. By default they all forward to {@link #onRadioDataChanged()}, so an
+ * observer that only needs to know that something changed can implement that method alone, while an observer that
+ * wants to react to specific changes overrides the specific methods.
  */
 public interface RadioInfoModelObserver {
 
@@ -9,5 +13,31 @@ public interface RadioInfoModelObserver {
      * This method is called when radio data in the associated RadioInfoModel has changed.
      * Observers should use this method to update their UI or perform other necessary actions.
      */
-    void onRadioDataChanged();
+    default void onRadioDataChanged() { }
+
+    /**
+     * This method is called when the list of channels in the associated RadioInfoModel has been replaced.
+     */
+    default void onChannelsChanged() {
+        onRadioDataChanged();
+    }
+
+    /**
+     * This method is called when the schedule of a single channel in the associated RadioInfoModel has been replaced.
+     *
+     * @param change The change, describing which channel changed and which programs were added, removed or changed.
+     */
+    default void onScheduleChanged(ScheduleChange change) {
+        onRadioDataChanged();
+    }
+
+    /**
+     * This method is called when another channel has been selected in the associated RadioInfoModel.
+     *
+     * @param previousChannelId The ID of the previously selected channel.
+     * @param selectedChannelId The ID of the newly selected channel.
+     */
+    default void onSelectedChannelChanged(int previousChannelId, int selectedChannelId) {
+        onRadioDataChanged();
+    }
 }
@@ -1,53 +1,202 @@
 package se.umu.cs.dv21cgn.radioinfo.model;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * A class representing a schedule of programs.
+ * The programs are kept sorted on their start time, so lookups by time are done with a binary search.
+ * <p>
+ * Every added program is retained, while {@link #getPrograms()} and {@link #isEmpty()} only consider the programs
+ * starting within a visible window around the current time of the schedule's clock. The window moves with the clock,
+ * so a schedule does not go stale as long as its retained programs cover the window.
  */
 public class Schedule {
 
+    /**
+     * How far before the current time the visible window starts by default.
+     */
+    public static final Duration DEFAULT_WINDOW_BEFORE = Duration.ofHours(12);
+
+    /**
+     * How far after the current time the visible window ends by default.
+     */
+    public static final Duration DEFAULT_WINDOW_AFTER = Duration.ofHours(6);
+
     private final ArrayList<Program> programs = new ArrayList<>();
+    private final Clock clock;
+    private final Duration windowBefore;
+    private final Duration windowAfter;
+
+    /**
+     * Constructs a new Schedule with the system clock and the default visible window,
+     * between 12 hours before and 6 hours after the current time.
+     */
+    public Schedule() {
+        this(Clock.systemDefaultZone(), DEFAULT_WINDOW_BEFORE, DEFAULT_WINDOW_AFTER);
+    }
+
+    /**
+     * Constructs a new Schedule with a custom clock and visible window.
+     *
+     * @param clock The clock providing the current time the visible window is relative to.
+     * @param windowBefore How far before the current time the visible window starts.
+     * @param windowAfter How far after the current time the visible window ends.
+     */
+    public Schedule(Clock clock, Duration windowBefore, Duration windowAfter) {
+        this.clock = clock;
+        this.windowBefore = windowBefore;
+        this.windowAfter = windowAfter;
+    }
 
     /**
-     * Returns a copy of the list of programs in the schedule.
+     * Returns a copy of the list of programs starting within the visible window, sorted on their start time.
      *
-     * @return A copy of the list of programs.
+     * @return A copy of the list of visible programs.
      */
     public synchronized ArrayList<Program> getPrograms() {
-        return new ArrayList<>(programs);
+        Window window = visibleWindow();
+        return new ArrayList<>(programs.subList(window.fromIndex(), window.toIndex()));
+    }
+
+    /**
+     * Returns where the programs starting within the visible window are in the list returned by
+     * {@link #getAllPrograms()}, so that data kept in the same order as all programs can be cut to the window
+     * without looking at the programs.
+     *
+     * @return The index range of the visible programs.
+     */
+    public synchronized Window visibleWindow() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int fromIndex = firstStartingAtOrAfter(now.minus(windowBefore));
+        int toIndex = Math.max(fromIndex, firstStartingAfter(now.plus(windowAfter)));
+        return new Window(fromIndex, toIndex);
     }
 
     /**
-     * Adds a program to the schedule if it passes validation.
+     * Returns a copy of the list of all programs in the schedule, including those outside the visible window,
+     * sorted on their start time.
+     *
+     * @return A copy of the list of all programs.
+     */
+    public synchronized List<Program> getAllPrograms() {
+        return List.copyOf(programs);
+    }
+
+    /**
+     * Adds a program to the schedule. Programs with the same start time are kept in the order they were added.
      *
      * @param program The program to be added.
      */
     public synchronized void add(Program program) {
-        if (validate_program(program)) {
+        if (programs.isEmpty() || !programs.get(programs.size() - 1).startTime().isAfter(program.startTime())) {
             programs.add(program);
+        } else {
+            programs.add(firstStartingAfter(program.startTime()), program);
+        }
+    }
+
+    /**
+     * Returns the program being broadcast at the given time, that is the program that started most recently
+     * at or before the time, provided it has not yet ended.
+     *
+     * @param time The time to look up.
+     * @return The program being broadcast at the time, or an empty Optional if there is none.
+     */
+    public synchronized Optional<Program> programAt(LocalDateTime time) {
+        int index = firstStartingAfter(time) - 1;
+        if (index < 0)
+            return Optional.empty();
+
+        Program program = programs.get(index);
+        return program.endTime().isAfter(time) ? Optional.of(program) : Optional.empty();
+    }
+
+    /**
+     * Returns the next programs starting at or after the given time.
+     *
+     * @param time The time to look from.
+     * @param count The maximum number of programs to return.
+     * @return Up to count programs, sorted on their start time.
+     */
+    public synchronized List<Program> nextN(LocalDateTime time, int count) {
+        int fromIndex = firstStartingAtOrAfter(time);
+        int toIndex = (int) Math.min(programs.size(), (long) fromIndex + Math.max(count, 0));
+        return List.copyOf(programs.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Returns the programs starting in the given time range.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The programs starting in the range, sorted on their start time.
+     */
+    public synchronized List<Program> range(LocalDateTime from, LocalDateTime to) {
+        int fromIndex = firstStartingAtOrAfter(from);
+        int toIndex = Math.max(fromIndex, firstStartingAtOrAfter(to));
+        return List.copyOf(programs.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Finds the index of the first program starting at or after the given time.
+     *
+     * @param time The time to search for.
+     * @return The index of the first program starting at or after the time, or the number of programs if there is none.
+     */
+    private int firstStartingAtOrAfter(LocalDateTime time) {
+        int low = 0;
+        int high = programs.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (programs.get(middle).startTime().isBefore(time)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
+        return low;
     }
 
     /**
-     * Validates if a program is within a valid time range.
-     * The time range in this case is between 12 hours before and 6 hours after the current time.
+     * Finds the index of the first program starting after the given time.
      *
-     * @param program The program to be validated.
-     * @return True if the program is within the valid time range, otherwise false.
+     * @param time The time to search for.
+     * @return The index of the first program starting after the time, or the number of programs if there is none.
      */
-    private static boolean validate_program(Program program) {
-        LocalDateTime twelveHoursBefore = LocalDateTime.now().minusHours(12);
-        LocalDateTime sixHoursAfter = LocalDateTime.now().plusHours(6);
-        return !program.startTime().isBefore(twelveHoursBefore) && !program.startTime().isAfter(sixHoursAfter);
+    private int firstStartingAfter(LocalDateTime time) {
+        int low = 0;
+        int high = programs.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (programs.get(middle).startTime().isAfter(time)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
     }
 
     /**
-     * Checks if the schedule is empty.
+     * Checks if the schedule has no programs starting within the visible window.
      *
-     * @return True if the schedule is empty, otherwise false.
+     * @return True if no program starts within the visible window, otherwise false.
      */
     public synchronized boolean isEmpty() {
-        return programs.isEmpty();
+        LocalDateTime now = LocalDateTime.now(clock);
+        int index = firstStartingAtOrAfter(now.minus(windowBefore));
+        return index == programs.size() || programs.get(index).startTime().isAfter(now.plus(windowAfter));
     }
+
+    /**
+     * A record holding an index range of the programs of a schedule, sorted on their start time.
+     *
+     * @param fromIndex The index of the first program in the range, inclusive.
+     * @param toIndex The index after the last program in the range, exclusive.
+     */
+    public record Window(int fromIndex, int toIndex) { }
 }
@@ -0,0 +1,149 @@
+package se.umu.cs.dv21cgn.radioinfo.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class describing the replacement of a channel's schedule, including which programs were added, removed or changed.
+ * Programs are matched on their ID together with their start time, since programs without an episode ID all have the
+ * ID 0 and a rerun of an episode has the ID of the episode. The difference is computed the first time it is asked for, so observers that
+ * are not interested in the channel do not pay for it.
+ */
+public class ScheduleChange {
+
+    private final int channelId;
+    private final Schedule previousSchedule;
+    private final Schedule schedule;
+    private List<Program> addedPrograms;
+    private List<Program> removedPrograms;
+    private List<Program> changedPrograms;
+
+    /**
+     * Constructs a new ScheduleChange.
+     *
+     * @param channelId The ID of the channel whose schedule was replaced.
+     * @param previousSchedule The schedule before the change.
+     * @param schedule The schedule after the change.
+     */
+    public ScheduleChange(int channelId, Schedule previousSchedule, Schedule schedule) {
+        this.channelId = channelId;
+        this.previousSchedule = previousSchedule;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Returns the ID of the channel whose schedule was replaced.
+     *
+     * @return The ID of the channel.
+     */
+    public int channelId() {
+        return channelId;
+    }
+
+    /**
+     * Returns the schedule before the change.
+     *
+     * @return The previous schedule.
+     */
+    public Schedule previousSchedule() {
+        return previousSchedule;
+    }
+
+    /**
+     * Returns the schedule after the change.
+     *
+     * @return The new schedule.
+     */
+    public Schedule schedule() {
+        return schedule;
+    }
+
+    /**
+     * Returns the programs in the new schedule whose IDs and start times were not in the previous schedule.
+     *
+     * @return The added programs, sorted on their start time.
+     */
+    public synchronized List<Program> addedPrograms() {
+        computeDifference();
+        return addedPrograms;
+    }
+
+    /**
+     * Returns the programs in the previous schedule whose IDs and start times are not in the new schedule.
+     *
+     * @return The removed programs, sorted on their start time.
+     */
+    public synchronized List<Program> removedPrograms() {
+        computeDifference();
+        return removedPrograms;
+    }
+
+    /**
+     * Returns the programs in the new schedule that differ from the program with the same ID and start time in the previous
+     * schedule.
+     *
+     * @return The changed programs as they are in the new schedule, sorted on their start time.
+     */
+    public synchronized List<Program> changedPrograms() {
+        computeDifference();
+        return changedPrograms;
+    }
+
+    /**
+     * Checks if the new schedule holds exactly the same programs as the previous schedule.
+     *
+     * @return True if no program was added, removed or changed, otherwise false.
+     */
+    public boolean isEmpty() {
+        return addedPrograms().isEmpty() && removedPrograms().isEmpty() && changedPrograms().isEmpty();
+    }
+
+    /**
+     * Computes the added, removed and changed programs unless they have already been computed.
+     */
+    private void computeDifference() {
+        if (addedPrograms != null)
+            return;
+
+        Map<ProgramKey, Program> previousPrograms = new LinkedHashMap<>();
+        for (Program program : previousSchedule.getAllPrograms()) {
+            previousPrograms.put(ProgramKey.of(program), program);
+        }
+
+        List<Program> added = new ArrayList<>();
+        List<Program> changed = new ArrayList<>();
+        for (Program program : schedule.getAllPrograms()) {
+            Program previousProgram = previousPrograms.remove(ProgramKey.of(program));
+            if (previousProgram == null) {
+                added.add(program);
+            } else if (!previousProgram.equals(program)) {
+                changed.add(program);
+            }
+        }
+        addedPrograms = List.copyOf(added);
+        changedPrograms = List.copyOf(changed);
+        removedPrograms = List.copyOf(previousPrograms.values());
+    }
+
+    /**
+     * A record identifying a program within the schedules of a channel.
+     *
+     * @param id The ID of the program.
+     * @param startTime The start time of the program.
+     */
+    private record ProgramKey(int id, LocalDateTime startTime) {
+
+        /**
+         * Returns the key of a program.
+         *
+         * @param program The program.
+         * @return The key.
+         */
+        static ProgramKey of(Program program) {
+            return new ProgramKey(program.id(), program.startTime());
+        }
+    }
+}
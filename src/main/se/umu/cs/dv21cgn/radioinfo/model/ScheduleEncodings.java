@@ -0,0 +1,190 @@
+package se.umu.cs.dv21cgn.radioinfo.model;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A version of the schedule of a channel together with encoded forms of it, so that consumers showing or serving
+ * the schedule do not walk its programs and format their times on every read.
+ * <p>
+ * The encoded forms are built the first time they are asked for and then shared by every reader of the version.
+ * A new version is only made when the programs of the channel actually change, so a schedule replaced by an equal
+ * one keeps its version and its encoded forms. Instances are obtained from {@link RadioInfoModel#getScheduleEncodings(int)}.
+ * <p>
+ * Two threads asking for an encoded form that has not been built yet may both build it. Both results are equal,
+ * so this only wastes work and is cheaper than making every read wait for a lock.
+ */
+public class ScheduleEncodings {
+
+    private final int channelId;
+    private final long version;
+    private final Schedule schedule;
+    private final List<Program> programs;
+    private final Encoded encoded;
+
+    /**
+     * Constructs new ScheduleEncodings for a new version of a schedule.
+     *
+     * @param channelId The ID of the channel.
+     * @param version The version of the schedule.
+     * @param schedule The schedule.
+     */
+    ScheduleEncodings(int channelId, long version, Schedule schedule) {
+        this(channelId, version, schedule, schedule.getAllPrograms(), new Encoded());
+    }
+
+    /**
+     * Constructs new ScheduleEncodings.
+     *
+     * @param channelId The ID of the channel.
+     * @param version The version of the schedule.
+     * @param schedule The schedule.
+     * @param programs Every program of the schedule.
+     * @param encoded The holder of the encoded forms, shared by every schedule of the version.
+     */
+    private ScheduleEncodings(int channelId, long version, Schedule schedule, List<Program> programs, Encoded encoded) {
+        this.channelId = channelId;
+        this.version = version;
+        this.schedule = schedule;
+        this.programs = programs;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Returns encodings of the same version for a schedule holding the same programs, sharing the encoded forms
+     * already built.
+     *
+     * @param schedule The schedule with the same programs.
+     * @return The encodings of the schedule.
+     */
+    ScheduleEncodings withSchedule(Schedule schedule) {
+        return new ScheduleEncodings(channelId, version, schedule, programs, encoded);
+    }
+
+    /**
+     * Returns the ID of the channel.
+     *
+     * @return The ID of the channel.
+     */
+    public int channelId() {
+        return channelId;
+    }
+
+    /**
+     * Returns the version of the schedule. Versions of a channel increase every time its programs change, and are
+     * never shared between channels.
+     *
+     * @return The version.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the schedule the encodings were made for.
+     *
+     * @return The schedule.
+     */
+    public Schedule schedule() {
+        return schedule;
+    }
+
+    /**
+     * Returns every program of the schedule, sorted on their start time.
+     *
+     * @return The programs.
+     */
+    public List<Program> programs() {
+        return programs;
+    }
+
+    /**
+     * Returns the schedule as UTF-8 encoded JSON: an object with the channel ID and every program of the schedule.
+     * The returned array is shared and must not be modified.
+     *
+     * @return The JSON bytes.
+     */
+    public byte[] json() {
+        byte[] json = encoded.json;
+        if (json == null) {
+            json = encodeJson();
+            encoded.json = json;
+        }
+        return json;
+    }
+
+    /**
+     * Returns a table row of every program, in the same order as {@link #programs()}, holding its title and its
+     * start and end times. The returned arrays are shared and must not be modified.
+     *
+     * @return The table rows.
+     */
+    public Object[][] rows() {
+        Object[][] rows = encoded.rows;
+        if (rows == null) {
+            rows = new Object[programs.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                Program program = programs.get(i);
+                rows[i] = new Object[] {program.title(), program.startTime(), program.endTime()};
+            }
+            encoded.rows = rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Writes a program as a JSON object, with its times in ISO-8601 local date-time format. This is the format of
+     * the programs in {@link #json()}, for other JSON documents holding programs.
+     *
+     * @param writer The writer to write to.
+     * @param program The program.
+     * @throws IOException If the JSON cannot be written.
+     */
+    public static void writeProgram(JsonWriter writer, Program program) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(program.id());
+        writer.name("title").value(program.title());
+        writer.name("description").value(program.description());
+        writer.name("startTime").value(program.startTime().toString());
+        writer.name("endTime").value(program.endTime().toString());
+        writer.name("icon").value(program.icon());
+        writer.endObject();
+    }
+
+    /**
+     * Encodes the schedule as JSON.
+     *
+     * @return The JSON bytes.
+     */
+    private byte[] encodeJson() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("channelId").value(channelId);
+            writer.name("version").value(version);
+            writer.name("programs").beginArray();
+            for (Program program : programs) {
+                writeProgram(writer, program);
+            }
+            writer.endArray();
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toByteArray();
+    }
+
+    /**
+     * Holds the encoded forms of a version once they have been built.
+     */
+    private static final class Encoded {
+        private volatile byte[] json;
+        private volatile Object[][] rows;
+    }
+}
@@ -1,6 +1,7 @@
 package se.umu.cs.dv21cgn.radioinfo.view;
 import com.formdev.flatlaf.FlatDarkLaf;
 import se.umu.cs.dv21cgn.radioinfo.controller.RadioInfoController;
+import se.umu.cs.dv21cgn.radioinfo.controller.ScheduleRefreshReport;
 import se.umu.cs.dv21cgn.radioinfo.model.*;
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
@@ -10,15 +11,21 @@ import javax.swing.text.StyledDocument;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -30,44 +37,121 @@ public class RadioInfoView implements RadioInfoModelObserver {
     private RadioInfoTableModel radioInfoTableModel;
     private DefaultComboBoxModel<Object> comboBoxModel;
     private Timer scheduleTimer;
+    private final ChannelCacheFile channelCacheFile;
+    private SwingWorker<Void, Void> channelSelectionWorker;
 
     /**
-     * Constructs the se.umu.cs.dv21cgn.radioinfo.view and sets up the main UI components.
+     * Constructs the se.umu.cs.dv21cgn.radioinfo.view and sets up the main UI components, using the channel cache file in the default location.
      *
      * @param radioInfoController The se.umu.cs.dv21cgn.radioinfo.controller responsible for managing interactions between the se.umu.cs.dv21cgn.radioinfo.view and the se.umu.cs.dv21cgn.radioinfo.model.
      */
     public RadioInfoView(RadioInfoController radioInfoController) {
+        this(radioInfoController, ChannelCacheFile.atDefaultLocation());
+    }
+
+    /**
+     * Constructs the se.umu.cs.dv21cgn.radioinfo.view and sets up the main UI components.
+     * Channels and schedules saved in the channel cache file are shown immediately and then reconciled with the API in the background.
+     *
+     * @param radioInfoController The se.umu.cs.dv21cgn.radioinfo.controller responsible for managing interactions between the se.umu.cs.dv21cgn.radioinfo.view and the se.umu.cs.dv21cgn.radioinfo.model.
+     * @param channelCacheFile The file the channels are restored from at startup and saved to after updates.
+     */
+    public RadioInfoView(RadioInfoController radioInfoController, ChannelCacheFile channelCacheFile) {
         this.radioInfoController = radioInfoController;
+        this.channelCacheFile = channelCacheFile;
 
         SwingUtilities.invokeLater(() -> {
             FlatDarkLaf.setup();
             createAndShowMainFrame();
         });
 
-        new SwingWorker<Collection<Channel>, Void>() {
+        new SwingWorker<Collection<Channel>, Collection<Channel>>() {
             @Override
             protected Collection<Channel> doInBackground() throws Exception {
+                boolean restored = radioInfoController.restoreChannels(channelCacheFile);
+                if (restored) {
+                    radioInfoController.addModelObserver(RadioInfoView.this);
+                    onRadioDataChanged();
+                    publish(radioInfoController.getChannels().values());
+                }
+
                 radioInfoController.fetchChannels();
-                radioInfoController.addModelObserver(RadioInfoView.this);
-                radioInfoController.selectChannel(132);
+                if (restored) {
+                    radioInfoController.updateCachedSchedules();
+                } else {
+                    radioInfoController.addModelObserver(RadioInfoView.this);
+                    radioInfoController.selectChannel(132);
+                }
+                saveChannels();
                 return radioInfoController.getChannels().values();
             }
 
+            @Override
+            protected void process(List<Collection<Channel>> chunks) {
+                showChannels(chunks.get(chunks.size() - 1));
+            }
+
             @Override
             protected void done() {
                 try {
-                    Collection<Channel> channels = get();
-                    comboBoxModel.addAll(channels);
-                    comboBoxModel.removeElement("Loading...");
-                    scheduleTimer = createTimer();
-                    scheduleTimer.start();
+                    showChannels(get());
                 } catch (InterruptedException | ExecutionException e) {
                     JOptionPane.showMessageDialog(null, "Something went wrong while fetching channels", "Error", JOptionPane.ERROR_MESSAGE);
                 }
+                scheduleTimer = createTimer();
+                scheduleTimer.start();
             }
         }.execute();
     }
 
+    /**
+     * Shows the given channels in the channel dropdown, keeping channels already shown in place and
+     * selecting the selected channel the first time channels are shown.
+     * This method should only be called on the EDT.
+     *
+     * @param channels The channels to show.
+     */
+    private void showChannels(Collection<Channel> channels) {
+        Set<Integer> channelIds = new HashSet<>();
+        for (Channel channel : channels) {
+            channelIds.add(channel.id());
+        }
+
+        Set<Integer> shownChannelIds = new HashSet<>();
+        for (int i = comboBoxModel.getSize() - 1; i >= 0; i--) {
+            if (comboBoxModel.getElementAt(i) instanceof Channel channel) {
+                if (channelIds.contains(channel.id())) {
+                    shownChannelIds.add(channel.id());
+                } else {
+                    comboBoxModel.removeElementAt(i);
+                }
+            }
+        }
+        for (Channel channel : channels) {
+            if (!shownChannelIds.contains(channel.id()))
+                comboBoxModel.addElement(channel);
+        }
+
+        if (!(comboBoxModel.getSelectedItem() instanceof Channel)) {
+            for (Channel channel : channels) {
+                if (channel.id() == radioInfoController.getSelectedChannelId())
+                    comboBoxModel.setSelectedItem(channel);
+            }
+        }
+        comboBoxModel.removeElement("Loading...");
+    }
+
+    /**
+     * Saves the channels to the channel cache file. Failures are only logged, since the cache is an optimization.
+     */
+    private void saveChannels() {
+        try {
+            radioInfoController.saveChannels(channelCacheFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Creates and returns a Swing Timer that triggers the execution of a
      * {@link SwingWorker} to reload the schedule data at a regular interval.
@@ -84,18 +168,25 @@ public class RadioInfoView implements RadioInfoModelObserver {
      *
      * @return A SwingWorker configured to update the schedule data and handle exceptions.
      */
-    private SwingWorker<Void, Void> createReloadScheduleWorker() {
+    private SwingWorker<ScheduleRefreshReport, Void> createReloadScheduleWorker() {
         return new SwingWorker<>() {
             @Override
-            protected Void doInBackground() throws Exception {
-                radioInfoController.updateCachedSchedules();
-                return null;
+            protected ScheduleRefreshReport doInBackground() throws Exception {
+                ScheduleRefreshReport report = radioInfoController.updateCachedSchedules();
+                saveChannels();
+                return report;
             }
 
             @Override
             protected void done() {
                 try {
-                    get();
+                    ScheduleRefreshReport report = get();
+                    if (report.hasFailures()) {
+                        report.failures().forEach(failure -> failure.failure().printStackTrace());
+                        JOptionPane.showMessageDialog(null, report.failures().size() + " schedule(s) could not be updated", "Error", JOptionPane.ERROR_MESSAGE);
+                    } else if (report.hasStale()) {
+                        JOptionPane.showMessageDialog(null, report.stale().size() + " schedule(s) could not be updated and show their last known programs", "Warning", JOptionPane.WARNING_MESSAGE);
+                    }
                 } catch (Exception e) {
                     e.printStackTrace();
                     JOptionPane.showMessageDialog(null, "An error occurred during schedule update", "Error", JOptionPane.ERROR_MESSAGE);
@@ -122,6 +213,13 @@ public class RadioInfoView implements RadioInfoModelObserver {
         mainFrame.setLocationRelativeTo(null);
         mainFrame.setJMenuBar(menuBar);
         mainFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        mainFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveChannels();
+                radioInfoController.close();
+            }
+        });
         mainFrame.setVisible(true);
     }
 
@@ -242,25 +340,33 @@ public class RadioInfoView implements RadioInfoModelObserver {
                 return this;
             }
         });
-        channelSelector.addActionListener((e) -> new SwingWorker<Void, Void> () {
-            @Override
-            protected Void doInBackground() throws Exception {
-                Channel selectedChannel = (Channel) channelSelector.getSelectedItem();
-                assert selectedChannel != null;
-                radioInfoController.selectChannel(selectedChannel.id());
-                return null;
-            }
+        channelSelector.addActionListener((e) -> {
+            if (!(channelSelector.getSelectedItem() instanceof Channel selectedChannel))
+                return;
+
+            if (channelSelectionWorker != null)
+                channelSelectionWorker.cancel(true);
+            channelSelectionWorker = new SwingWorker<>() {
+                @Override
+                protected Void doInBackground() throws Exception {
+                    radioInfoController.selectChannel(selectedChannel.id());
+                    return null;
+                }
 
-            @Override
-            protected void done() {
-                try {
-                    get();
-                } catch (Exception e) {
-                    JOptionPane.showMessageDialog(null, "Något gick fel vid hämtning av tablåer", "Error", JOptionPane.ERROR_MESSAGE);
+                @Override
+                protected void done() {
+                    if (isCancelled())
+                        return;
+                    try {
+                        get();
+                    } catch (Exception e) {
+                        JOptionPane.showMessageDialog(null, "Något gick fel vid hämtning av tablåer", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
                 }
-            }
 
-        }.execute());
+            };
+            channelSelectionWorker.execute();
+        });
         return channelSelector;
     }
 
@@ -269,18 +375,42 @@ public class RadioInfoView implements RadioInfoModelObserver {
      */
     @Override
     public void onRadioDataChanged() {
-        ArrayList<Program> schedule = (ArrayList<Program>) radioInfoController.getSelectedChannelSchedule();
+        Optional<ScheduleEncodings> encodings = radioInfoController.getScheduleEncodings(radioInfoController.getSelectedChannelId());
+        ScheduleRows schedule = encodings.map(ScheduleRows::visibleIn).orElse(ScheduleRows.EMPTY);
         SwingUtilities.invokeLater(() -> {
             radioInfoTableModel.setSchedule(schedule);
         });
     }
 
+    /**
+     * Receives notifications when the schedule of a channel has been replaced. The table is only updated
+     * if the schedule belongs to the selected channel. The visible window is cut again even if the programs did not
+     * change, since it moves with time, and the table is only notified of the rows that differ.
+     *
+     * @param change The schedule change.
+     */
+    @Override
+    public void onScheduleChanged(ScheduleChange change) {
+        if (change.channelId() != radioInfoController.getSelectedChannelId())
+            return;
+
+        Optional<ScheduleEncodings> encodings = radioInfoController.getScheduleEncodings(change.channelId());
+        if (encodings.isEmpty())
+            return;
+
+        ScheduleRows schedule = ScheduleRows.visibleIn(encodings.get());
+        SwingUtilities.invokeLater(() -> {
+            radioInfoTableModel.updateSchedule(schedule);
+        });
+    }
+
     /**
      * A custom table se.umu.cs.dv21cgn.radioinfo.model to display schedule information.
      */
     private static class RadioInfoTableModel extends AbstractTableModel {
         public static final String[] columnNames = {"Program", "Starttid", "Sluttid"};
-        private ArrayList<Program> schedule = new ArrayList<>();
+        private List<Program> schedule = List.of();
+        private Object[][] rows = new Object[0][];
         @Override
         public int getRowCount() {
             return schedule.size();
@@ -296,19 +426,44 @@ public class RadioInfoView implements RadioInfoModelObserver {
          * This method should only be called on the EDT for thread safety.
          * @param schedule The new schedule data to be displayed in the table.
          */
-        public void setSchedule(ArrayList<Program> schedule) {
-            this.schedule = schedule;
+        public void setSchedule(ScheduleRows schedule) {
+            this.schedule = schedule.programs();
+            this.rows = schedule.rows();
             this.fireTableDataChanged();
         }
 
+        /**
+         * Updates the schedule data, notifying the table only of the rows that changed when the
+         * same programs are still shown in the same rows, and of a full data change otherwise.
+         * This method should only be called on the EDT for thread safety.
+         * @param schedule The new schedule data to be displayed in the table.
+         */
+        public void updateSchedule(ScheduleRows scheduleRows) {
+            List<Program> previousSchedule = this.schedule;
+            List<Program> schedule = scheduleRows.programs();
+            this.schedule = schedule;
+            this.rows = scheduleRows.rows();
+            if (previousSchedule.size() != schedule.size()) {
+                this.fireTableDataChanged();
+                return;
+            }
+            for (int row = 0; row < schedule.size(); row++) {
+                Program previousProgram = previousSchedule.get(row);
+                Program program = schedule.get(row);
+                if (previousProgram.id() != program.id() || !previousProgram.startTime().equals(program.startTime())) {
+                    this.fireTableDataChanged();
+                    return;
+                }
+            }
+            for (int row = 0; row < schedule.size(); row++) {
+                if (!previousSchedule.get(row).equals(schedule.get(row)))
+                    this.fireTableRowsUpdated(row, row);
+            }
+        }
+
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            return switch (columnIndex) {
-                case 0 -> schedule.get(rowIndex).title();
-                case 1 -> schedule.get(rowIndex).startTime();
-                case 2 -> schedule.get(rowIndex).endTime();
-                default -> null;
-            };
+            return columnIndex < columnNames.length ? rows[rowIndex][columnIndex] : null;
         }
 
         public Program getProgramAtRow(int rowIndex) {
@@ -320,4 +475,27 @@ public class RadioInfoView implements RadioInfoModelObserver {
             return columnNames[column];
         }
     }
+
+    /**
+     * A record holding the programs shown in the table together with their table rows.
+     *
+     * @param programs The programs, sorted on their start time.
+     * @param rows The rows of the programs, in the same order.
+     */
+    private record ScheduleRows(List<Program> programs, Object[][] rows) {
+        private static final ScheduleRows EMPTY = new ScheduleRows(List.of(), new Object[0][]);
+
+        /**
+         * Cuts the programs of the visible window of a schedule, and their rows, from its cached encodings
+         * without building anything.
+         *
+         * @param encodings The encodings of the schedule.
+         * @return The visible programs and their rows.
+         */
+        private static ScheduleRows visibleIn(ScheduleEncodings encodings) {
+            Schedule.Window window = encodings.schedule().visibleWindow();
+            return new ScheduleRows(encodings.programs().subList(window.fromIndex(), window.toIndex()),
+                    Arrays.copyOfRange(encodings.rows(), window.fromIndex(), window.toIndex()));
+        }
+    }
 }
@@ -0,0 +1,150 @@
+import se.umu.cs.dv21cgn.radioinfo.controller.ChannelUpdatePublisher;
+import se.umu.cs.dv21cgn.radioinfo.model.Channel;
+import se.umu.cs.dv21cgn.radioinfo.model.ChannelUpdate;
+import se.umu.cs.dv21cgn.radioinfo.model.Program;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelUpdatePublisherTest {
+    LocalDateTime now = LocalDateTime.now();
+    RadioInfoModel model;
+    ChannelUpdatePublisher publisher;
+
+    private Schedule schedule(Program... programs) {
+        Schedule schedule = new Schedule();
+        for (Program program : programs) {
+            schedule.add(program);
+        }
+        return schedule;
+    }
+
+    private Program program(int id, String title, LocalDateTime start, LocalDateTime end) {
+        return new Program(id, title, "", start, end, null);
+    }
+
+    private void setUp(Schedule schedule, Executor executor) {
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        channels.put(132, new Channel(132, "P1", schedule));
+        model = new RadioInfoModel(channels);
+        publisher = new ChannelUpdatePublisher(model, Clock.systemDefaultZone(), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+    }
+
+    /**
+     * A subscriber recording what it is sent and requesting nothing by itself.
+     */
+    static class RecordingSubscriber implements Flow.Subscriber<ChannelUpdate> {
+        Flow.Subscription subscription;
+        List<ChannelUpdate> updates = new CopyOnWriteArrayList<>();
+        LinkedBlockingQueue<ChannelUpdate> received = new LinkedBlockingQueue<>();
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ChannelUpdate update) {
+            updates.add(update);
+            received.add(update);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    void shouldSendOnlyLatestStateToSlowSubscriber() {
+        setUp(schedule(program(1, "Morgon", now.minusHours(1), now.plusHours(1))), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.channel(132).subscribe(subscriber);
+        assertTrue(subscriber.updates.isEmpty());
+
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.updates.size());
+        assertEquals("Morgon", subscriber.updates.get(0).nowPlaying().title());
+
+        model.replaceSchedule(132, schedule(program(2, "Först", now.minusHours(1), now.plusHours(1))));
+        model.replaceSchedule(132, schedule(program(3, "Sedan", now.minusHours(1), now.plusHours(1))));
+        model.replaceSchedule(132, schedule(program(4, "Sist", now.minusHours(1), now.plusHours(1))));
+        assertEquals(1, subscriber.updates.size());
+
+        subscriber.subscription.request(5);
+        assertEquals(2, subscriber.updates.size());
+        assertEquals("Sist", subscriber.updates.get(1).nowPlaying().title());
+    }
+
+    @Test
+    void shouldNotPushScheduleReplacedByEqualOne() {
+        setUp(schedule(program(1, "Morgon", now.minusHours(1), now.plusHours(1))), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.channel(132).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        model.replaceSchedule(132, schedule(program(1, "Morgon", now.minusHours(1), now.plusHours(1))));
+
+        assertEquals(1, subscriber.updates.size());
+    }
+
+    @Test
+    void shouldPushNowPlayingTransition() throws InterruptedException {
+        LocalDateTime switchTime = LocalDateTime.now().plusNanos(300_000_000);
+        setUp(schedule(
+                program(1, "Morgon", now.minusHours(1), switchTime),
+                program(2, "Förmiddag", switchTime, switchTime.plusHours(1))), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.channel(132).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals("Morgon", subscriber.received.poll(5, TimeUnit.SECONDS).nowPlaying().title());
+        ChannelUpdate transition = subscriber.received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(transition);
+        assertEquals("Förmiddag", transition.nowPlaying().title());
+    }
+
+    @Test
+    void shouldStopAfterCancelAndCompleteOnClose() {
+        setUp(schedule(program(1, "Morgon", now.minusHours(1), now.plusHours(1))), Runnable::run);
+        RecordingSubscriber cancelled = new RecordingSubscriber();
+        RecordingSubscriber open = new RecordingSubscriber();
+        publisher.channel(132).subscribe(cancelled);
+        publisher.channel(132).subscribe(open);
+        cancelled.subscription.request(Long.MAX_VALUE);
+        open.subscription.request(Long.MAX_VALUE);
+        cancelled.subscription.cancel();
+
+        model.replaceSchedule(132, schedule(program(2, "Ny", now.minusHours(1), now.plusHours(1))));
+        publisher.close();
+
+        assertEquals(1, cancelled.updates.size());
+        assertEquals(2, open.updates.size());
+        assertTrue(open.completed);
+        assertFalse(cancelled.completed);
+    }
+}
@@ -1,19 +1,36 @@
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.StaleScheduleResponse;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleItemResponse;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleProgramItem;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleResponse;
 import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.controller.ChannelLockStatistics;
 import se.umu.cs.dv21cgn.radioinfo.controller.RadioInfoController;
+import se.umu.cs.dv21cgn.radioinfo.controller.ScheduleRefreshReport;
 import se.umu.cs.dv21cgn.radioinfo.model.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,6 +60,49 @@ public class ControllerTests {
         assertTrue(schedule.getPrograms().contains(program));
     }
 
+    @Test
+    void shouldRetainProgramsOutsideConfiguredWindow() {
+        LocalDateTime now = LocalDateTime.of(2023, 8, 6, 8, 0);
+        Clock clock = Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        Schedule schedule = new Schedule(clock, Duration.ofHours(1), Duration.ofHours(2));
+        Program lastNight = new Program(1, "last night", "test", now.minusHours(9), now.minusHours(8), null);
+        Program current = new Program(2, "current", "test", now.minusMinutes(30), now.plusMinutes(30), null);
+        Program tonight = new Program(3, "tonight", "test", now.plusHours(12), now.plusHours(13), null);
+        schedule.add(lastNight);
+        schedule.add(current);
+        schedule.add(tonight);
+
+        assertEquals(List.of(current), schedule.getPrograms());
+        assertEquals(List.of(lastNight, current, tonight), schedule.getAllPrograms());
+        assertFalse(schedule.isEmpty());
+
+        Schedule laterSchedule = new Schedule(Clock.offset(clock, Duration.ofHours(12)), Duration.ofHours(1), Duration.ofHours(2));
+        schedule.getAllPrograms().forEach(laterSchedule::add);
+        assertEquals(List.of(tonight), laterSchedule.getPrograms());
+    }
+
+    @Test
+    void shouldLookUpProgramsByTime() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Program previous = new Program(1, "previous", "test", now.minusHours(2), now.minusHours(1), null);
+        Program current = new Program(2, "current", "test", now.minusHours(1), now.plusHours(1), null);
+        Program next = new Program(3, "next", "test", now.plusHours(1), now.plusHours(2), null);
+        Program later = new Program(4, "later", "test", now.plusHours(2), now.plusHours(3), null);
+        Schedule schedule = new Schedule();
+        schedule.add(later);
+        schedule.add(previous);
+        schedule.add(next);
+        schedule.add(current);
+
+        assertEquals(List.of(previous, current, next, later), schedule.getPrograms());
+        assertEquals(current, schedule.programAt(now).orElseThrow());
+        assertTrue(schedule.programAt(now.minusHours(3)).isEmpty());
+        assertTrue(schedule.programAt(now.plusHours(4)).isEmpty());
+        assertEquals(List.of(next, later), schedule.nextN(now, 5));
+        assertEquals(List.of(next), schedule.nextN(now.plusHours(1), 1));
+        assertEquals(List.of(current, next), schedule.range(now.minusHours(1), now.plusHours(2)));
+    }
+
     @Test
     void shouldNotAddProgramsOnExceptionThrown() {
         RadioApi radioApi = mock(RadioApi.class);
@@ -90,12 +150,308 @@ public class ControllerTests {
         SrRadioApiScheduleItemResponse updatedItem = new SrRadioApiScheduleItemResponse(10, "updated", "updated", "/Date(" + LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli() + ")/", "/Date(" + LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli() + ")/", new SrRadioApiScheduleProgramItem(1, "lol"), "Image" );
         ArrayList<SrRadioApiScheduleItemResponse> updatedSchedule = new ArrayList<>();
         updatedSchedule.add(updatedItem);
-        when(radioApi.getSchedule(anyInt())).thenReturn(new SrRadioApiScheduleResponse(updatedSchedule));
+        SrRadioApiScheduleResponse updatedResponse = new SrRadioApiScheduleResponse(updatedSchedule);
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        scheduleFutures.put(200, CompletableFuture.completedFuture(updatedResponse));
+        scheduleFutures.put(132, CompletableFuture.completedFuture(updatedResponse));
+        when(radioApi.getSchedulesAsync(any(), any(), any())).thenReturn(scheduleFutures);
 
         RadioInfoController radioInfoController = new RadioInfoController(new RadioInfoModel(channels), radioApi);
         radioInfoController.updateCachedSchedules();
 
-        verify(radioApi, times(2)).getSchedule(anyInt());
+        verify(radioApi, times(1)).getSchedulesAsync(eq(List.of(200, 132)), eq(LocalDate.now().minusDays(1)), eq(LocalDate.now().plusDays(1)));
+        verify(radioApi, never()).getSchedule(anyInt());
+    }
+
+    @Test
+    void shouldKeepRefreshingOtherChannelsWhenOneFails() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        Schedule schedule = new Schedule();
+        schedule.add(new Program(1, "test", "test", LocalDateTime.now(), LocalDateTime.now(), null));
+        channels.put(200, new Channel(200,"P4 Jämtland", schedule));
+        channels.put(132, new Channel(132,"P1", schedule));
+
+        SrRadioApiScheduleItemResponse updatedItem = new SrRadioApiScheduleItemResponse(10, "updated", "updated", "/Date(" + System.currentTimeMillis() + ")/", "/Date(" + System.currentTimeMillis() + ")/", new SrRadioApiScheduleProgramItem(1, "lol"), "Image" );
+        ArrayList<SrRadioApiScheduleItemResponse> updatedSchedule = new ArrayList<>();
+        updatedSchedule.add(updatedItem);
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        scheduleFutures.put(200, CompletableFuture.failedFuture(new IOException("Service unavailable")));
+        scheduleFutures.put(132, CompletableFuture.completedFuture(new SrRadioApiScheduleResponse(updatedSchedule)));
+        when(radioApi.getSchedulesAsync(any(), any(), any())).thenReturn(scheduleFutures);
+
+        RadioInfoModel radioInfoModel = new RadioInfoModel(channels);
+        RadioInfoController radioInfoController = new RadioInfoController(radioInfoModel, radioApi, 2);
+        ScheduleRefreshReport report = radioInfoController.updateCachedSchedules();
+
+        assertEquals(2, report.channels().size());
+        assertEquals(1, report.failures().size());
+        assertEquals(200, report.failures().get(0).channelId());
+        assertEquals("updated", radioInfoModel.getChannels().get(132).schedule().getPrograms().get(0).title());
+        assertSame(schedule, radioInfoModel.getChannels().get(200).schedule());
+    }
+
+    @Test
+    void shouldFetchAtMostParallelismChannelsAtTheSameTime() throws Exception {
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        channels.put(200, new Channel(200,"P4 Jämtland", new Schedule()));
+        channels.put(132, new Channel(132,"P1", new Schedule()));
+        channels.put(164, new Channel(164,"P3", new Schedule()));
+        Map<Integer, CompletableFuture<SrRadioApiScheduleResponse>> pending = new ConcurrentHashMap<>();
+        when(radioApi.getSchedulesAsync(any(), any(), any())).thenAnswer(invocation -> {
+            Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+            for (int channelId : invocation.<Collection<Integer>>getArgument(0)) {
+                CompletableFuture<SrRadioApiScheduleResponse> schedule = new CompletableFuture<>();
+                pending.put(channelId, schedule);
+                scheduleFutures.put(channelId, schedule);
+            }
+            return scheduleFutures;
+        });
+
+        RadioInfoController radioInfoController = new RadioInfoController(new RadioInfoModel(channels), radioApi, 2);
+        CompletableFuture<ScheduleRefreshReport> report = CompletableFuture.supplyAsync(() -> {
+            try {
+                return radioInfoController.updateAllSchedules();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        verify(radioApi, timeout(5000)).getSchedulesAsync(eq(List.of(200, 132)), any(), any());
+        Thread.sleep(50);
+        assertEquals(Set.of(200, 132), pending.keySet());
+
+        pending.get(200).complete(new SrRadioApiScheduleResponse(new ArrayList<>()));
+        verify(radioApi, timeout(5000)).getSchedulesAsync(eq(List.of(164)), any(), any());
+        pending.get(132).complete(new SrRadioApiScheduleResponse(new ArrayList<>()));
+        pending.get(164).complete(new SrRadioApiScheduleResponse(new ArrayList<>()));
+
+        assertFalse(report.get(5, TimeUnit.SECONDS).hasFailures());
+        radioInfoController.close();
+    }
+
+    @Test
+    void shouldReportStaleSchedules() throws InterruptedException {
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        Schedule schedule = new Schedule();
+        schedule.add(new Program(1, "test", "test", LocalDateTime.now(), LocalDateTime.now(), null));
+        channels.put(132, new Channel(132,"P1", schedule));
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        scheduleFutures.put(132, CompletableFuture.completedFuture(new StaleScheduleResponse(new SrRadioApiScheduleResponse(new ArrayList<>()), new IOException("Service unavailable"))));
+        when(radioApi.getSchedulesAsync(any(), any(), any())).thenReturn(scheduleFutures);
+
+        ScheduleRefreshReport report = new RadioInfoController(new RadioInfoModel(channels), radioApi).updateCachedSchedules();
+
+        assertFalse(report.hasFailures());
+        assertEquals(List.of(132), report.stale().stream().map(ScheduleRefreshReport.ChannelRefresh::channelId).toList());
+    }
+
+    @Test
+    void shouldPublishEachChannelAsSoonAsItsScheduleArrives() throws Exception {
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        Schedule schedule = new Schedule();
+        schedule.add(new Program(1, "test", "test", LocalDateTime.now(), LocalDateTime.now(), null));
+        channels.put(200, new Channel(200,"P4 Jämtland", schedule));
+        channels.put(132, new Channel(132,"P1", schedule));
+
+        SrRadioApiScheduleItemResponse updatedItem = new SrRadioApiScheduleItemResponse(10, "updated", "updated", "/Date(" + System.currentTimeMillis() + ")/", "/Date(" + System.currentTimeMillis() + ")/", new SrRadioApiScheduleProgramItem(1, "lol"), "Image" );
+        ArrayList<SrRadioApiScheduleItemResponse> updatedSchedule = new ArrayList<>();
+        updatedSchedule.add(updatedItem);
+        CompletableFuture<SrRadioApiScheduleResponse> slowSchedule = new CompletableFuture<>();
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+        scheduleFutures.put(200, slowSchedule);
+        scheduleFutures.put(132, CompletableFuture.completedFuture(new SrRadioApiScheduleResponse(updatedSchedule)));
+        when(radioApi.getSchedulesAsync(any(), any(), any())).thenReturn(scheduleFutures);
+
+        RadioInfoModel radioInfoModel = new RadioInfoModel(channels);
+        RadioInfoController radioInfoController = new RadioInfoController(radioInfoModel, radioApi);
+        CompletableFuture<ScheduleRefreshReport> report = CompletableFuture.supplyAsync(() -> {
+            try {
+                return radioInfoController.updateCachedSchedules();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (radioInfoModel.getChannelSnapshot().get(132).schedule() == schedule && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("updated", radioInfoModel.getChannelSnapshot().get(132).schedule().getPrograms().get(0).title());
+        assertSame(schedule, radioInfoModel.getChannelSnapshot().get(200).schedule());
+        assertFalse(report.isDone());
+
+        slowSchedule.complete(new SrRadioApiScheduleResponse(updatedSchedule));
+        assertFalse(report.get(5, TimeUnit.SECONDS).hasFailures());
+        assertEquals("updated", radioInfoModel.getChannelSnapshot().get(200).schedule().getPrograms().get(0).title());
+    }
+
+    @Test
+    void shouldKeepScheduleStoredWhileBatchWasFetching() throws InterruptedException {
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        Schedule schedule = new Schedule();
+        schedule.add(new Program(1, "test", "test", LocalDateTime.now(), LocalDateTime.now(), null));
+        channels.put(200, new Channel(200,"P4 Jämtland", schedule));
+        RadioInfoModel radioInfoModel = new RadioInfoModel(channels);
+
+        Schedule selectedSchedule = new Schedule();
+        selectedSchedule.add(new Program(2, "selected", "selected", LocalDateTime.now(), LocalDateTime.now(), null));
+        SrRadioApiScheduleItemResponse batchItem = new SrRadioApiScheduleItemResponse(10, "batch", "batch", "/Date(" + System.currentTimeMillis() + ")/", "/Date(" + System.currentTimeMillis() + ")/", new SrRadioApiScheduleProgramItem(1, "lol"), "Image" );
+        ArrayList<SrRadioApiScheduleItemResponse> batchSchedule = new ArrayList<>();
+        batchSchedule.add(batchItem);
+        when(radioApi.getSchedulesAsync(any(), any(), any())).thenAnswer(invocation -> {
+            radioInfoModel.replaceSchedule(200, selectedSchedule);
+            Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> scheduleFutures = new LinkedHashMap<>();
+            scheduleFutures.put(200, CompletableFuture.completedFuture(new SrRadioApiScheduleResponse(batchSchedule)));
+            return scheduleFutures;
+        });
+
+        ScheduleRefreshReport report = new RadioInfoController(radioInfoModel, radioApi).updateCachedSchedules();
+
+        assertFalse(report.hasFailures());
+        assertSame(selectedSchedule, radioInfoModel.getChannelSnapshot().get(200).schedule());
+    }
+
+    @Test
+    void shouldRecordWaitsForChannelUpdateLock() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        channels.put(200, new Channel(200,"P4 Jämtland", new Schedule()));
+        CountDownLatch fetching = new CountDownLatch(1);
+        when(radioApi.getSchedule(200)).thenAnswer(invocation -> {
+            fetching.countDown();
+            Thread.sleep(50);
+            return new SrRadioApiScheduleResponse(new ArrayList<>());
+        });
+
+        RadioInfoController radioInfoController = new RadioInfoController(new RadioInfoModel(channels), radioApi);
+        Thread first = new Thread(() -> {
+            try {
+                radioInfoController.fetchSchedule(200);
+            } catch (HttpBadRequestException | IOException | URISyntaxException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        first.start();
+        fetching.await();
+        radioInfoController.fetchSchedule(200);
+        first.join();
+
+        ChannelLockStatistics statistics = radioInfoController.getChannelLockStatistics();
+        assertEquals(2, statistics.acquisitions());
+        assertEquals(1, statistics.contended());
+        assertTrue(statistics.maxWait().toMillis() > 0);
+        assertEquals(statistics.totalWait(), statistics.maxWait());
+    }
+
+    @Test
+    void shouldRestoreSavedChannelsWithoutFetching(@TempDir Path directory) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+        ChannelCacheFile channelCacheFile = new ChannelCacheFile(directory.resolve("channels.cache"));
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        Schedule schedule = new Schedule();
+        Program program = new Program(1, "Ekot", null, LocalDateTime.now().withNano(0), LocalDateTime.now().plusHours(1).withNano(0), "none");
+        schedule.add(program);
+        channels.put(132, new Channel(132, "P1", schedule));
+        channels.put(200, new Channel(200, "P4 Jämtland", new Schedule()));
+        RadioInfoModel savedModel = new RadioInfoModel(channels);
+        savedModel.setSelectedChannelId(132);
+        new RadioInfoController(savedModel, mock(SrRadioApi.class)).saveChannels(channelCacheFile);
+
+        SrRadioApi radioApi = mock(SrRadioApi.class);
+        RadioInfoController radioInfoController = new RadioInfoController(new RadioInfoModel(), radioApi);
+        assertTrue(radioInfoController.restoreChannels(channelCacheFile));
+        radioInfoController.selectChannel(132);
+
+        verify(radioApi, never()).getSchedule(anyInt());
+        assertEquals(132, radioInfoController.getSelectedChannelId());
+        assertEquals(2, radioInfoController.getChannels().size());
+        assertEquals(program, radioInfoController.getSelectedChannelSchedule().get(0));
+    }
+
+    @Test
+    void shouldKeepChannelSnapshotUnchangedByLaterUpdates() {
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        Schedule schedule = new Schedule();
+        channels.put(132, new Channel(132, "P1", schedule));
+        RadioInfoModel radioInfoModel = new RadioInfoModel(channels);
+
+        Map<Integer, Channel> snapshot = radioInfoModel.getChannelSnapshot();
+        radioInfoModel.replaceSchedule(132, new Schedule());
+
+        assertSame(schedule, snapshot.get(132).schedule());
+        assertNotSame(schedule, radioInfoModel.getChannelSnapshot().get(132).schedule());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put(200, new Channel(200, "P4 Jämtland", new Schedule())));
+    }
+
+    @Test
+    void shouldNotifyObserversOfScheduleDifference() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Program kept = new Program(1, "kept", "test", now, now.plusHours(1), null);
+        Program renamed = new Program(2, "before", "test", now.plusHours(1), now.plusHours(2), null);
+        Program dropped = new Program(3, "dropped", "test", now.plusHours(2), now.plusHours(3), null);
+        Program added = new Program(4, "added", "test", now.plusHours(2), now.plusHours(3), null);
+        Schedule previousSchedule = new Schedule();
+        previousSchedule.add(kept);
+        previousSchedule.add(renamed);
+        previousSchedule.add(dropped);
+        Schedule schedule = new Schedule();
+        schedule.add(kept);
+        schedule.add(new Program(2, "after", "test", now.plusHours(1), now.plusHours(2), null));
+        schedule.add(added);
+
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        channels.put(132, new Channel(132, "P1", previousSchedule));
+        RadioInfoModel radioInfoModel = new RadioInfoModel(channels);
+        List<ScheduleChange> changes = new ArrayList<>();
+        List<Integer> selections = new ArrayList<>();
+        radioInfoModel.addObserver(new RadioInfoModelObserver() {
+            @Override
+            public void onScheduleChanged(ScheduleChange change) {
+                changes.add(change);
+            }
+
+            @Override
+            public void onSelectedChannelChanged(int previousChannelId, int selectedChannelId) {
+                selections.add(selectedChannelId);
+            }
+        });
+
+        radioInfoModel.setSelectedChannelId(132);
+        radioInfoModel.setSelectedChannelId(132);
+        radioInfoModel.replaceSchedule(132, schedule);
+        radioInfoModel.replaceSchedule(132, schedule);
+
+        assertEquals(List.of(132), selections);
+        assertEquals(1, changes.size());
+        assertEquals(List.of(added), changes.get(0).addedPrograms());
+        assertEquals(List.of(dropped), changes.get(0).removedPrograms());
+        assertEquals("after", changes.get(0).changedPrograms().get(0).title());
+    }
+
+    @Test
+    void shouldMatchProgramsWithoutIdOnStartTime() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Program news = new Program(0, "Ekot", "test", now, now.plusMinutes(10), null);
+        Program music = new Program(0, "Musik", "test", now.plusMinutes(10), now.plusHours(1), null);
+        Program laterNews = new Program(0, "Ekot", "test", now.plusHours(1), now.plusHours(1).plusMinutes(10), null);
+        Schedule previousSchedule = new Schedule();
+        previousSchedule.add(news);
+        previousSchedule.add(music);
+        Schedule schedule = new Schedule();
+        schedule.add(news);
+        schedule.add(new Program(0, "Mer musik", "test", now.plusMinutes(10), now.plusHours(1), null));
+        schedule.add(laterNews);
+
+        ScheduleChange change = new ScheduleChange(132, previousSchedule, schedule);
+
+        assertEquals(List.of(laterNews), change.addedPrograms());
+        assertEquals(List.of(), change.removedPrograms());
+        assertEquals("Mer musik", change.changedPrograms().get(0).title());
+        assertEquals(1, change.changedPrograms().size());
     }
 
     @Test
@@ -129,7 +485,7 @@ public class ControllerTests {
             Thread t2 = new Thread(() -> {
                 try {
                     controller.updateCachedSchedules();
-                } catch (HttpBadRequestException | IOException | URISyntaxException | InterruptedException e) {
+                } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
             });
@@ -2,24 +2,41 @@ import se.umu.cs.dv21cgn.radioinfo.api.RadioApi;
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApiChannelsResponse;
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApiProgramResponse;
 import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.ResponseDecoder;
 import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpStatusException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class FetchApiDataTest {
     HttpClient httpClient;
-    HttpResponse<String> httpResponse;
+    HttpResponse<InputStream> httpResponse;
     RadioApi radioApi;
     String baseUrl = "https://example.com";
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
     @BeforeEach
     void setUp() {
         httpClient = mock(HttpClient.class);
@@ -48,7 +65,7 @@ public class FetchApiDataTest {
         String channelsApiPath = "";
 
         when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
-        when(httpResponse.body()).thenReturn("{\n" +
+        when(httpResponse.body()).thenReturn(stream("{\n" +
                 "  \"copyright\": \"Copyright Sveriges Radio 2023. All rights reserved.\",\n" +
                 "  \"channel\": {\n" +
                 "    \"image\": \"https://static-cdn.sr.se/images/132/2186745_512_512.jpg?preset=api-default-square\",\n" +
@@ -67,8 +84,9 @@ public class FetchApiDataTest {
                 "    \"id\": 132,\n" +
                 "    \"name\": \"P1\"\n" +
                 "  }\n" +
-                "}");
+                "}"));
         when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
 
         String radioApiResponse = null;
 
@@ -81,6 +99,89 @@ public class FetchApiDataTest {
          assertNotNull(radioApiResponse);
     }
 
+    @Test
+    void shouldReturnPreviousBodyWhenNotModified() throws Exception {
+        HttpResponse<InputStream> notModifiedResponse = mock(HttpResponse.class);
+        when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of("ETag", List.of("\"v1\"")), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(stream("{\"channels\": []}"));
+        when(notModifiedResponse.statusCode()).thenReturn(304);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse, notModifiedResponse);
+
+        String firstBody = radioApi.fetchData("channels");
+        String secondBody = radioApi.fetchData("channels");
+
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).send(requests.capture(), any(HttpResponse.BodyHandler.class));
+        assertTrue(requests.getAllValues().get(0).headers().firstValue("If-None-Match").isEmpty());
+        assertEquals("\"v1\"", requests.getAllValues().get(1).headers().firstValue("If-None-Match").orElseThrow());
+        assertSame(firstBody, secondBody);
+    }
+
+    @Test
+    void shouldRepeatRequestWhenNotModifiedResultWasForgotten() throws Exception {
+        ResponseDecoder<String> decoder = stream -> new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        AtomicInteger sends = new AtomicInteger();
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenAnswer(invocation -> switch (sends.incrementAndGet()) {
+            case 1 -> response(200, Map.of("ETag", List.of("\"v1\"")), "first");
+            case 2 -> {
+                // Another decoder fetches the path without validators while the conditional request is in flight.
+                radioApi.fetchData("channels");
+                yield response(304, Map.of(), "");
+            }
+            case 3 -> response(200, Map.of(), "other");
+            default -> response(200, Map.of("ETag", List.of("\"v2\"")), "second");
+        });
+
+        radioApi.fetch("channels", decoder);
+        String body = radioApi.fetch("channels", decoder);
+
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(4)).send(requests.capture(), any(HttpResponse.BodyHandler.class));
+        assertEquals("\"v1\"", requests.getAllValues().get(1).headers().firstValue("If-None-Match").orElseThrow());
+        assertTrue(requests.getAllValues().get(3).headers().firstValue("If-None-Match").isEmpty());
+        assertEquals("second", body);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<InputStream> response(int statusCode, Map<String, List<String>> headers, String body) {
+        HttpResponse<InputStream> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(statusCode);
+        when(response.headers()).thenReturn(HttpHeaders.of(headers, (name, value) -> true));
+        when(response.body()).thenReturn(stream(body));
+        return response;
+    }
+
+    @Test
+    void shouldDecodeGzipBodyWhileStreaming() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("{\"channels\": [\"P1\"]}".getBytes(StandardCharsets.UTF_8));
+        }
+        when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Encoding", List.of("gzip")), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(new ByteArrayInputStream(compressed.toByteArray()));
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
+
+        String body = radioApi.fetch("channels", stream -> new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).send(request.capture(), any(HttpResponse.BodyHandler.class));
+        assertEquals("gzip", request.getValue().headers().firstValue("Accept-Encoding").orElseThrow());
+        assertEquals("{\"channels\": [\"P1\"]}", body);
+    }
+
+    @Test
+    void shouldThrowHttpStatusExceptionOnServerError() throws IOException, InterruptedException {
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
+        when(httpResponse.statusCode()).thenReturn(503);
+        when(httpResponse.body()).thenReturn(stream("<html>Service Unavailable</html>"));
+
+        HttpStatusException exception = assertThrows(HttpStatusException.class, () -> radioApi.fetchData("channels"));
+        assertEquals(503, exception.getStatusCode());
+        assertTrue(exception.isTransient());
+    }
+
     @Test
     void shouldThrowHttpBadRequestException() throws IOException, InterruptedException {
         when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
@@ -0,0 +1,155 @@
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiChannelsResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiProgramResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class FlightRecorderEventsTest {
+    private static final String API_FETCH = "se.umu.cs.dv21cgn.radioinfo.ApiFetch";
+    private static final String RESPONSE_DECODE = "se.umu.cs.dv21cgn.radioinfo.ResponseDecode";
+
+    HttpClient httpClient;
+    HttpResponse<InputStream> httpResponse;
+    RadioApi radioApi;
+
+    @BeforeEach
+    void setUp() {
+        httpClient = mock(HttpClient.class);
+        httpResponse = mock(HttpResponse.class);
+        radioApi = new RadioApi(httpClient, "https://example.com") {
+            @Override
+            public RadioApiChannelsResponse getChannels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+                return null;
+            }
+
+            @Override
+            public RadioApiProgramResponse getProgram(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+                return null;
+            }
+
+            @Override
+            public RadioApiScheduleResponse getSchedule(int channelId) throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
+                return null;
+            }
+        };
+    }
+
+    private List<RecordedEvent> record(String eventName, Recorded recorded) throws Exception {
+        Path file = Files.createTempFile("radioinfo", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+            recorded.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void shouldEmitFetchEventWithStatusAndBytesReceived() throws Exception {
+        byte[] body = "{\"copyright\": \"test\"}".getBytes(StandardCharsets.UTF_8);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
+        when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(new ByteArrayInputStream(body));
+
+        List<RecordedEvent> events = record(API_FETCH, () -> radioApi.fetchData("/channels"));
+
+        RecordedEvent event = events.stream()
+                .filter(recorded -> recorded.getEventType().getName().equals(API_FETCH))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("/channels", event.getString("path"));
+        assertEquals(200, event.getInt("statusCode"));
+        assertEquals(body.length, event.getLong("bytesReceived"));
+        assertNull(event.getString("failure"));
+        assertFalse(event.getBoolean("asynchronous"));
+    }
+
+    @Test
+    void shouldMarkFetchEventOfAsynchronousRequest() throws Exception {
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(httpResponse));
+        when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)));
+
+        // The event is committed after the future completes, so it is awaited from a stream rather than a dump.
+        try (RecordingStream stream = new RecordingStream()) {
+            CompletableFuture<RecordedEvent> recorded = new CompletableFuture<>();
+            stream.enable(API_FETCH).withThreshold(Duration.ZERO);
+            stream.onEvent(API_FETCH, recorded::complete);
+            stream.startAsync();
+            radioApi.fetchDataAsync("/channels").get();
+
+            RecordedEvent event = recorded.get(10, TimeUnit.SECONDS);
+            assertTrue(event.getBoolean("asynchronous"));
+            assertEquals(200, event.getInt("statusCode"));
+        }
+    }
+
+    @Test
+    void shouldEmitFetchEventWithFailure() throws Exception {
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenThrow(new IOException("Connection reset"));
+
+        List<RecordedEvent> events = record(API_FETCH, () -> {
+            assertThrows(IOException.class, () -> radioApi.fetchData("/channels"));
+        });
+
+        assertEquals(1, events.size());
+        assertEquals(IOException.class.getName(), events.get(0).getString("failure"));
+        assertEquals(0, events.get(0).getInt("statusCode"));
+    }
+
+    @Test
+    void shouldEmitDecodeEventForDecodedBody() throws Exception {
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
+        when(httpResponse.statusCode()).thenReturn(200);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)));
+
+        List<RecordedEvent> events = record(RESPONSE_DECODE, () -> radioApi.fetchData("/channels"));
+
+        RecordedEvent event = events.stream()
+                .filter(recorded -> recorded.getEventType().getName().equals(RESPONSE_DECODE))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("/channels", event.getString("path"));
+    }
+
+    /**
+     * The code run while recording.
+     */
+    @FunctionalInterface
+    private interface Recorded {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,60 @@
+import se.umu.cs.dv21cgn.radioinfo.metrics.LatencyHistogram;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsEndpoint;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsRegistry;
+import se.umu.cs.dv21cgn.radioinfo.metrics.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+    @Test
+    void shouldReportPercentilesWithinBucketPrecision() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        LatencyHistogram histogram = registry.histogram("request");
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+
+        MetricsSnapshot.Latency latency = registry.snapshot().latencies().get("request");
+        assertEquals(1000, latency.count());
+        assertEquals(500_500_000, latency.meanNanos());
+        assertEquals(500_000_000, latency.p50Nanos(), 500_000_000 * 0.04);
+        assertEquals(990_000_000, latency.p99Nanos(), 990_000_000 * 0.04);
+        assertEquals(1_000_000_000, latency.maxNanos());
+    }
+
+    @Test
+    void shouldIgnoreUpdatesWhileDisabled() {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        registry.counter("requests").increment();
+        registry.histogram("request").recordSince(registry.startTimer());
+        registry.hitRatio("cache").hit();
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        assertEquals(0, snapshot.counters().get("requests"));
+        assertEquals(0, snapshot.latencies().get("request").count());
+        assertEquals(0, snapshot.ratios().get("cache").hits());
+    }
+
+    @Test
+    void shouldPublishSnapshotsOverHttp() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        registry.counter("api.requests").add(3);
+        registry.hitRatio("schedule.day-cache").hit();
+        registry.hitRatio("schedule.day-cache").miss();
+
+        try (MetricsEndpoint endpoint = new MetricsEndpoint(registry, 0)) {
+            HttpRequest request = HttpRequest.newBuilder(new URI("http://127.0.0.1:" + endpoint.port() + "/metrics")).build();
+            String body = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).body();
+
+            assertTrue(body.contains("\"api.requests\": 3"));
+            assertTrue(body.contains("\"schedule.day-cache\""));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import se.umu.cs.dv21cgn.radioinfo.api.CircuitBreaker;
+import se.umu.cs.dv21cgn.radioinfo.api.CircuitOpenException;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiChannelsResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiI;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiSchedulesResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.ResilientRadioApi;
+import se.umu.cs.dv21cgn.radioinfo.api.RetryPolicy;
+import se.umu.cs.dv21cgn.radioinfo.api.StaleScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
+import se.umu.cs.dv21cgn.radioinfo.model.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ResilientRadioApiTest {
+    private static final RetryPolicy IMMEDIATE_RETRIES = new RetryPolicy(3, Duration.ZERO, Duration.ZERO);
+
+    @Test
+    void shouldRetryServerErrorsUntilTheyPass() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiChannelsResponse channels = mock(RadioApiChannelsResponse.class);
+        when(radioApi.getChannels())
+                .thenThrow(new HttpStatusException(503, "channels"))
+                .thenThrow(new IOException("Connection reset"))
+                .thenReturn(channels);
+
+        ResilientRadioApi resilientRadioApi = new ResilientRadioApi(radioApi, IMMEDIATE_RETRIES, 5, Duration.ofSeconds(30), Clock.systemUTC());
+
+        assertSame(channels, resilientRadioApi.getChannels());
+        verify(radioApi, times(3)).getChannels();
+    }
+
+    @Test
+    void shouldNotRetryClientErrors() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        when(radioApi.getProgram(78)).thenThrow(new HttpBadRequestException());
+        when(radioApi.getProgram(79)).thenThrow(new HttpStatusException(404, "programs/79"));
+
+        ResilientRadioApi resilientRadioApi = new ResilientRadioApi(radioApi, IMMEDIATE_RETRIES, 5, Duration.ofSeconds(30), Clock.systemUTC());
+
+        assertThrows(HttpBadRequestException.class, () -> resilientRadioApi.getProgram(78));
+        assertThrows(HttpStatusException.class, () -> resilientRadioApi.getProgram(79));
+        verify(radioApi, times(1)).getProgram(78);
+        verify(radioApi, times(1)).getProgram(79);
+    }
+
+    @Test
+    void shouldOpenCircuitAfterConsecutiveFailuresAndTryAgainLater() throws Exception {
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-08-07T12:00:00Z"));
+        Clock clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+        RadioApiI radioApi = mock(RadioApiI.class);
+        when(radioApi.fetchData(any())).thenThrow(new HttpStatusException(500, "channels"));
+
+        ResilientRadioApi resilientRadioApi = new ResilientRadioApi(radioApi, RetryPolicy.noRetries(), 2, Duration.ofSeconds(30), clock);
+
+        assertThrows(HttpStatusException.class, () -> resilientRadioApi.fetchData("channels?format=json"));
+        assertThrows(HttpStatusException.class, () -> resilientRadioApi.fetchData("channels?format=json"));
+        assertThrows(CircuitOpenException.class, () -> resilientRadioApi.fetchData("channels?format=json"));
+        verify(radioApi, times(2)).fetchData(any());
+        assertEquals(CircuitBreaker.State.OPEN, resilientRadioApi.getCircuitBreaker("channels").getState());
+
+        now.set(now.get().plusSeconds(30));
+        doReturn("{}").when(radioApi).fetchData(any());
+        assertEquals("{}", resilientRadioApi.fetchData("channels?format=json"));
+        assertEquals(CircuitBreaker.State.CLOSED, resilientRadioApi.getCircuitBreaker("channels").getState());
+    }
+
+    @Test
+    void shouldFallBackToLastGoodSchedule() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse schedule = mock(RadioApiScheduleResponse.class);
+        doReturn(CompletableFuture.completedFuture(schedule))
+                .doReturn(CompletableFuture.failedFuture(new HttpStatusException(502, "scheduledepisodes")))
+                .when(radioApi).getScheduleAsync(132);
+
+        ResilientRadioApi resilientRadioApi = new ResilientRadioApi(radioApi, IMMEDIATE_RETRIES, 5, Duration.ofSeconds(30), Clock.systemUTC());
+
+        assertSame(schedule, resilientRadioApi.getSchedule(132));
+        RadioApiScheduleResponse fallback = resilientRadioApi.getSchedule(132);
+        assertTrue(fallback.isStale());
+        assertSame(schedule, ((StaleScheduleResponse) fallback).schedule());
+        assertInstanceOf(HttpStatusException.class, ((StaleScheduleResponse) fallback).cause());
+        verify(radioApi, times(4)).getScheduleAsync(132);
+    }
+
+    @Test
+    void shouldRetryOnlyFailedChannelsOfBatch() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse p1 = mock(RadioApiScheduleResponse.class);
+        RadioApiScheduleResponse p2 = mock(RadioApiScheduleResponse.class);
+        LocalDate from = LocalDate.of(2023, 8, 6);
+        LocalDate to = LocalDate.of(2023, 8, 8);
+        doReturn(Map.of(132, CompletableFuture.completedFuture(p1))).when(radioApi).getSchedulesAsync(List.of(132), from, to);
+        doReturn(Map.of(163, CompletableFuture.failedFuture(new HttpStatusException(503, "scheduledepisodes"))))
+                .doReturn(Map.of(163, CompletableFuture.completedFuture(p2)))
+                .when(radioApi).getSchedulesAsync(List.of(163), from, to);
+
+        ResilientRadioApi resilientRadioApi = new ResilientRadioApi(radioApi, IMMEDIATE_RETRIES, 5, Duration.ofSeconds(30), Clock.systemUTC());
+        RadioApiSchedulesResponse response = resilientRadioApi.getSchedules(List.of(132, 163), from, to);
+
+        assertEquals(List.of(132, 163), List.copyOf(response.schedules().keySet()));
+        assertSame(p2, response.schedules().get(163));
+        assertEquals(Map.of(), response.failures());
+        assertEquals(Map.of(), response.stale());
+        verify(radioApi, times(1)).getSchedulesAsync(eq(List.of(132)), eq(from), eq(to));
+        verify(radioApi, times(2)).getSchedulesAsync(eq(List.of(163)), eq(from), eq(to));
+    }
+
+    @Test
+    void shouldListLastGoodSchedulesOfBatchAsStale() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse p1 = mock(RadioApiScheduleResponse.class);
+        LocalDate from = LocalDate.of(2023, 8, 6);
+        LocalDate to = LocalDate.of(2023, 8, 8);
+        doReturn(Map.of(132, CompletableFuture.completedFuture(p1)))
+                .doReturn(Map.of(132, CompletableFuture.failedFuture(new IOException("Connection reset"))))
+                .when(radioApi).getSchedulesAsync(List.of(132), from, to);
+
+        ResilientRadioApi resilientRadioApi = new ResilientRadioApi(radioApi, RetryPolicy.noRetries(), 5, Duration.ofSeconds(30), Clock.systemUTC());
+        resilientRadioApi.getSchedules(List.of(132), from, to);
+        RadioApiSchedulesResponse response = resilientRadioApi.getSchedules(List.of(132), from, to);
+
+        assertTrue(response.schedules().get(132).isStale());
+        assertEquals(Map.of(), response.failures());
+        assertInstanceOf(IOException.class, response.stale().get(132));
+    }
+}
@@ -0,0 +1,92 @@
+import se.umu.cs.dv21cgn.radioinfo.model.Channel;
+import se.umu.cs.dv21cgn.radioinfo.model.Program;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+import se.umu.cs.dv21cgn.radioinfo.model.ScheduleEncodings;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleEncodingsTest {
+    LocalDateTime start = LocalDateTime.of(2023, 12, 1, 8, 0);
+    RadioInfoModel model;
+
+    private Schedule schedule(String... titles) {
+        Schedule schedule = new Schedule();
+        for (int i = 0; i < titles.length; i++) {
+            schedule.add(new Program(i + 1, titles[i], "", start.plusHours(i), start.plusHours(i + 1), null));
+        }
+        return schedule;
+    }
+
+    @BeforeEach
+    void setUp() {
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        channels.put(132, new Channel(132, "P1", schedule("Morgon", "Förmiddag")));
+        channels.put(164, new Channel(164, "P3", schedule("Musik")));
+        model = new RadioInfoModel(channels);
+    }
+
+    @Test
+    void shouldReturnSameEncodingsForUnchangedSchedule() {
+        ScheduleEncodings encodings = model.getScheduleEncodings(132).orElseThrow();
+        byte[] json = encodings.json();
+        Object[][] rows = encodings.rows();
+
+        ScheduleEncodings again = model.getScheduleEncodings(132).orElseThrow();
+
+        assertSame(encodings, again);
+        assertSame(json, again.json());
+        assertSame(rows, again.rows());
+        assertTrue(model.getScheduleEncodings(999).isEmpty());
+    }
+
+    @Test
+    void shouldEncodeJsonAndRows() {
+        ScheduleEncodings encodings = model.getScheduleEncodings(132).orElseThrow();
+
+        JsonObject json = JsonParser.parseString(new String(encodings.json(), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(132, json.get("channelId").getAsInt());
+        assertEquals(encodings.version(), json.get("version").getAsLong());
+        assertEquals("Förmiddag", json.getAsJsonArray("programs").get(1).getAsJsonObject().get("title").getAsString());
+        assertEquals("2023-12-01T09:00", json.getAsJsonArray("programs").get(1).getAsJsonObject().get("startTime").getAsString());
+
+        assertArrayEquals(new Object[] {"Morgon", LocalDateTime.of(2023, 12, 1, 8, 0), LocalDateTime.of(2023, 12, 1, 9, 0)},
+                encodings.rows()[0]);
+        assertEquals(2, encodings.rows().length);
+    }
+
+    @Test
+    void shouldKeepVersionWhenScheduleIsReplacedByEqualOne() {
+        ScheduleEncodings encodings = model.getScheduleEncodings(132).orElseThrow();
+        byte[] json = encodings.json();
+
+        Schedule equalSchedule = schedule("Morgon", "Förmiddag");
+        model.replaceSchedule(132, equalSchedule);
+        ScheduleEncodings replaced = model.getScheduleEncodings(132).orElseThrow();
+
+        assertSame(equalSchedule, replaced.schedule());
+        assertEquals(encodings.version(), replaced.version());
+        assertSame(json, replaced.json());
+    }
+
+    @Test
+    void shouldMakeNewVersionOnlyForChangedChannel() {
+        ScheduleEncodings p1 = model.getScheduleEncodings(132).orElseThrow();
+        ScheduleEncodings p3 = model.getScheduleEncodings(164).orElseThrow();
+
+        model.replaceSchedule(132, schedule("Morgon", "Lunch"));
+        ScheduleEncodings changed = model.getScheduleEncodings(132).orElseThrow();
+
+        assertTrue(changed.version() > p1.version());
+        assertEquals("Lunch", changed.rows()[1][0]);
+        assertSame(p3, model.getScheduleEncodings(164).orElseThrow());
+    }
+}
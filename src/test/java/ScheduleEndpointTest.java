@@ -0,0 +1,202 @@
+import se.umu.cs.dv21cgn.radioinfo.controller.ChannelUpdatePublisher;
+import se.umu.cs.dv21cgn.radioinfo.daemon.PreparedResponse;
+import se.umu.cs.dv21cgn.radioinfo.daemon.ScheduleEndpoint;
+import se.umu.cs.dv21cgn.radioinfo.daemon.SnapshotResponses;
+import se.umu.cs.dv21cgn.radioinfo.model.Channel;
+import se.umu.cs.dv21cgn.radioinfo.model.Program;
+import se.umu.cs.dv21cgn.radioinfo.model.RadioInfoModel;
+import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ScheduleEndpointTest {
+    ZoneId zone = ZoneId.of("Europe/Stockholm");
+    LocalDateTime morning = LocalDateTime.of(2023, 12, 1, 8, 0);
+    AtomicReference<Instant> now = new AtomicReference<>(morning.atZone(zone).toInstant());
+    Clock clock;
+    RadioInfoModel model;
+    ScheduleEndpoint endpoint;
+    HttpClient httpClient = HttpClient.newHttpClient();
+
+    private Schedule schedule(Program... programs) {
+        Schedule schedule = new Schedule(clock, Duration.ofDays(1), Duration.ofDays(1));
+        for (Program program : programs) {
+            schedule.add(program);
+        }
+        return schedule;
+    }
+
+    private Program program(int id, String title, LocalDateTime start, LocalDateTime end) {
+        return new Program(id, title, "", start, end, null);
+    }
+
+    private HttpResponse<String> get(String path, String... headers) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.port() + path));
+        if (headers.length > 0)
+            builder.headers(headers);
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(zone);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+
+        LinkedHashMap<Integer, Channel> channels = new LinkedHashMap<>();
+        channels.put(132, new Channel(132, "P1", schedule(
+                program(1, "Morgon", morning.minusHours(2), morning.plusHours(1)),
+                program(2, "Förmiddag", morning.plusHours(1), morning.plusHours(4)))));
+        channels.put(164, new Channel(164, "P3", schedule()));
+        model = new RadioInfoModel(channels);
+        ChannelUpdatePublisher publisher = new ChannelUpdatePublisher(model, clock, Runnable::run);
+        endpoint = new ScheduleEndpoint(new SnapshotResponses(model, clock), publisher::channel, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.close();
+    }
+
+    @Test
+    void shouldServeChannelsSchedulesAndNowPlaying() throws IOException, InterruptedException {
+        HttpResponse<String> channels = get("/channels");
+        assertEquals(200, channels.statusCode());
+        JsonArray channelArray = JsonParser.parseString(channels.body()).getAsJsonArray();
+        assertEquals(2, channelArray.size());
+        assertEquals("P1", channelArray.get(0).getAsJsonObject().get("name").getAsString());
+
+        JsonObject schedule = JsonParser.parseString(get("/channels/132/schedule").body()).getAsJsonObject();
+        assertEquals(2, schedule.getAsJsonArray("programs").size());
+        assertEquals("2023-12-01T09:00", schedule.getAsJsonArray("programs").get(1).getAsJsonObject().get("startTime").getAsString());
+
+        JsonArray nowPlaying = JsonParser.parseString(get("/now-playing").body()).getAsJsonArray();
+        assertEquals("Morgon", nowPlaying.get(0).getAsJsonObject().getAsJsonObject("program").get("title").getAsString());
+        assertTrue(nowPlaying.get(1).getAsJsonObject().get("program").isJsonNull());
+
+        assertEquals(404, get("/channels/999/schedule").statusCode());
+        assertEquals(404, get("/channels/P1/schedule").statusCode());
+    }
+
+    @Test
+    void shouldRevalidateUntilTheModelChanges() throws IOException, InterruptedException {
+        String etag = get("/channels/132/schedule").headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(304, get("/channels/132/schedule", "If-None-Match", etag).statusCode());
+
+        model.replaceSchedule(132, schedule(program(3, "Ny", morning, morning.plusHours(1))));
+
+        HttpResponse<String> changed = get("/channels/132/schedule", "If-None-Match", etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void shouldKeepPreparedScheduleWhenReplacedByEqualOne() {
+        SnapshotResponses responses = new SnapshotResponses(model, clock);
+        PreparedResponse prepared = responses.schedule(132).orElseThrow();
+
+        model.replaceSchedule(132, schedule(
+                program(1, "Morgon", morning.minusHours(2), morning.plusHours(1)),
+                program(2, "Förmiddag", morning.plusHours(1), morning.plusHours(4))));
+
+        assertSame(prepared, responses.schedule(132).orElseThrow());
+    }
+
+    @Test
+    void shouldRebuildNowPlayingWhenTheProgramChanges() throws IOException, InterruptedException {
+        String etag = get("/now-playing").headers().firstValue("ETag").orElseThrow();
+        now.set(morning.plusMinutes(30).atZone(zone).toInstant());
+        assertEquals(304, get("/now-playing", "If-None-Match", etag).statusCode());
+
+        now.set(morning.plusHours(1).atZone(zone).toInstant());
+
+        HttpResponse<String> changed = get("/now-playing", "If-None-Match", etag);
+        assertEquals(200, changed.statusCode());
+        JsonArray nowPlaying = JsonParser.parseString(changed.body()).getAsJsonArray();
+        assertEquals("Förmiddag", nowPlaying.get(0).getAsJsonObject().getAsJsonObject("program").get("title").getAsString());
+    }
+
+    @Test
+    void shouldServeGzipBodiesOnRequest() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.port() + "/channels"))
+                .header("Accept-Encoding", "gzip")
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElseThrow());
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            String json = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(get("/channels").body(), json);
+        }
+        String gzipEtag = response.headers().firstValue("ETag").orElseThrow();
+        String etag = get("/channels").headers().firstValue("ETag").orElseThrow();
+        assertNotEquals(etag, gzipEtag);
+        assertEquals(200, get("/channels", "If-None-Match", gzipEtag).statusCode());
+    }
+
+    @Test
+    void shouldMatchListedWeakAndWildcardEntityTags() throws IOException, InterruptedException {
+        String etag = get("/channels").headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(304, get("/channels", "If-None-Match", "\"other\", W/" + etag).statusCode());
+        assertEquals(304, get("/channels", "If-None-Match", "*").statusCode());
+        assertEquals(200, get("/channels", "If-None-Match", "\"other\", W/\"another\"").statusCode());
+    }
+
+    private static JsonObject nextEvent(BufferedReader events) throws IOException {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("data: "))
+                return JsonParser.parseString(line.substring("data: ".length())).getAsJsonObject();
+        }
+        throw new IOException("The event stream ended");
+    }
+
+    @Test
+    void shouldStreamUpdatesAsServerSentEvents() {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + endpoint.port() + "/channels/132/updates")).build();
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals("text/event-stream; charset=utf-8", response.headers().firstValue("Content-Type").orElseThrow());
+
+            try (BufferedReader events = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                JsonObject first = nextEvent(events);
+                assertEquals("Morgon", first.getAsJsonObject("nowPlaying").get("title").getAsString());
+                assertEquals(2, first.getAsJsonObject("schedule").getAsJsonArray("programs").size());
+
+                model.replaceSchedule(132, schedule(program(3, "Ny", morning, morning.plusHours(1))));
+
+                JsonObject second = nextEvent(events);
+                assertEquals("Ny", second.getAsJsonObject("nowPlaying").get("title").getAsString());
+                assertTrue(second.get("version").getAsLong() > first.get("version").getAsLong());
+            }
+        });
+        assertEquals(404, assertDoesNotThrow(() -> get("/channels/999/updates")).statusCode());
+    }
+}
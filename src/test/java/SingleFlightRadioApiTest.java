@@ -0,0 +1,111 @@
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiI;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiScheduleResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.SingleFlightRadioApi;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class SingleFlightRadioApiTest {
+    @Test
+    void shouldShareScheduleRequestInFlight() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse scheduleResponse = mock(RadioApiScheduleResponse.class);
+        CompletableFuture<RadioApiScheduleResponse> pending = new CompletableFuture<>();
+        doReturn(pending).when(radioApi).getScheduleAsync(132);
+
+        SingleFlightRadioApi singleFlightRadioApi = new SingleFlightRadioApi(radioApi);
+        CompletableFuture<RadioApiScheduleResponse> first = singleFlightRadioApi.getScheduleAsync(132);
+        CompletableFuture<RadioApiScheduleResponse> second = singleFlightRadioApi.getScheduleAsync(132);
+        pending.complete(scheduleResponse);
+
+        assertSame(scheduleResponse, first.get());
+        assertSame(scheduleResponse, second.get());
+        verify(radioApi, times(1)).getScheduleAsync(132);
+
+        singleFlightRadioApi.getScheduleAsync(132);
+        verify(radioApi, times(2)).getScheduleAsync(132);
+    }
+
+    @Test
+    void shouldForgetScheduleRequestThatCompletedAtOnce() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse scheduleResponse = mock(RadioApiScheduleResponse.class);
+        doReturn(CompletableFuture.completedFuture(scheduleResponse)).when(radioApi).getScheduleAsync(132);
+
+        SingleFlightRadioApi singleFlightRadioApi = new SingleFlightRadioApi(radioApi);
+        for (int i = 0; i < 3; i++) {
+            assertSame(scheduleResponse, singleFlightRadioApi.getScheduleAsync(132).get());
+        }
+
+        verify(radioApi, times(3)).getScheduleAsync(132);
+    }
+
+    @Test
+    void shouldForgetScheduleRequestThatFailedAtOnce() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse scheduleResponse = mock(RadioApiScheduleResponse.class);
+        IOException failure = new IOException("Unavailable");
+        doReturn(CompletableFuture.failedFuture(failure), CompletableFuture.completedFuture(scheduleResponse))
+                .when(radioApi).getScheduleAsync(132);
+
+        SingleFlightRadioApi singleFlightRadioApi = new SingleFlightRadioApi(radioApi);
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> singleFlightRadioApi.getScheduleAsync(132).get());
+        assertSame(failure, thrown.getCause());
+
+        assertSame(scheduleResponse, singleFlightRadioApi.getScheduleAsync(132).get());
+        verify(radioApi, times(2)).getScheduleAsync(132);
+    }
+
+    @Test
+    void shouldCancelScheduleRequestWhenLastWaiterCancels() {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        CompletableFuture<RadioApiScheduleResponse> pending = new CompletableFuture<>();
+        doReturn(pending).when(radioApi).getScheduleAsync(132);
+
+        SingleFlightRadioApi singleFlightRadioApi = new SingleFlightRadioApi(radioApi);
+        CompletableFuture<RadioApiScheduleResponse> first = singleFlightRadioApi.getScheduleAsync(132);
+        CompletableFuture<RadioApiScheduleResponse> second = singleFlightRadioApi.getScheduleAsync(132);
+
+        first.cancel(true);
+        assertFalse(pending.isCancelled());
+
+        second.cancel(true);
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void shouldJoinScheduleRequestInFlightFromBatch() throws Exception {
+        RadioApiI radioApi = mock(RadioApiI.class);
+        RadioApiScheduleResponse p1 = mock(RadioApiScheduleResponse.class);
+        RadioApiScheduleResponse p2 = mock(RadioApiScheduleResponse.class);
+        CompletableFuture<RadioApiScheduleResponse> pending = new CompletableFuture<>();
+        doReturn(pending).when(radioApi).getScheduleAsync(132);
+        LocalDate today = LocalDate.now();
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> batch = new LinkedHashMap<>();
+        batch.put(163, CompletableFuture.completedFuture(p2));
+        doReturn(batch).when(radioApi).getSchedulesAsync(List.of(163), today.minusDays(1), today.plusDays(1));
+
+        SingleFlightRadioApi singleFlightRadioApi = new SingleFlightRadioApi(radioApi);
+        CompletableFuture<RadioApiScheduleResponse> single = singleFlightRadioApi.getScheduleAsync(132);
+        Map<Integer, CompletableFuture<? extends RadioApiScheduleResponse>> schedules = singleFlightRadioApi.getSchedulesAsync(List.of(132, 163), today.minusDays(1), today.plusDays(1));
+        pending.complete(p1);
+
+        assertSame(p1, single.get());
+        assertSame(p1, schedules.get(132).get());
+        assertSame(p2, schedules.get(163).get());
+        verify(radioApi, times(1)).getScheduleAsync(132);
+        verify(radioApi, times(1)).getSchedulesAsync(eq(List.of(163)), any(), any());
+    }
+}
@@ -1,35 +1,65 @@
+import se.umu.cs.dv21cgn.radioinfo.api.HttpClientProfile;
+import se.umu.cs.dv21cgn.radioinfo.api.RadioApiSchedulesResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.ScheduleDayCache;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApi;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiChannelsResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiDateParser;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiProgramResponse;
+import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleItemResponse;
 import se.umu.cs.dv21cgn.radioinfo.api.sr.SrRadioApiScheduleResponse;
 import se.umu.cs.dv21cgn.radioinfo.model.HttpBadRequestException;
 import se.umu.cs.dv21cgn.radioinfo.model.Channel;
 import se.umu.cs.dv21cgn.radioinfo.model.Schedule;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class SrRadioApiTest {
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     void shouldFetchTwoChannels() throws HttpBadRequestException, IOException, URISyntaxException, InterruptedException {
         HttpClient httpClient = mock(HttpClient.class);
-        HttpResponse<String> httpResponse = mock(HttpResponse.class);
+        HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
 
         when(httpResponse.statusCode()).thenReturn(200);
-        when(httpResponse.body()).thenReturn(
+
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(stream(
                 "{" +
                         "  \"copyright\": \"Copyright Sveriges Radio 2023. All rights reserved.\",\n" +
                         "  \"channels\": [\n" +
@@ -69,7 +99,7 @@ public class SrRadioApiTest {
                         "    }" +
                         "   ]" +
                         "}"
-        );
+        ));
         when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
 
         SrRadioApi srRadioApi = new SrRadioApi(httpClient);
@@ -80,10 +110,12 @@ public class SrRadioApiTest {
     @Test
     void shouldConvertChannelApiResponseToModel() throws IOException, InterruptedException, HttpBadRequestException, URISyntaxException {
         HttpClient httpClient = mock(HttpClient.class);
-        HttpResponse<String> httpResponse = mock(HttpResponse.class);
+        HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
 
         when(httpResponse.statusCode()).thenReturn(200);
-        when(httpResponse.body()).thenReturn(
+
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponse.body()).thenReturn(stream(
                 "{" +
                         "  \"copyright\": \"Copyright Sveriges Radio 2023. All rights reserved.\",\n" +
                         "  \"channels\": [\n" +
@@ -123,7 +155,7 @@ public class SrRadioApiTest {
                         "    }" +
                         "   ]" +
                         "}"
-        );
+        ));
         when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
 
         SrRadioApi srRadioApi = new SrRadioApi(httpClient);
@@ -142,11 +174,13 @@ public class SrRadioApiTest {
     @Test
     void shouldConvertScheduleApiResponseToModel() throws IOException, InterruptedException, HttpBadRequestException, URISyntaxException {
         HttpClient httpClient = mock(HttpClient.class);
-        HttpResponse<String> httpResponse = mock(HttpResponse.class);
+        HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
 
         when(httpResponse.statusCode()).thenReturn(200);
 
-        when(httpResponse.body()).thenReturn(
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+
+        when(httpResponse.body()).thenAnswer(invocation -> stream(
                 "{\n" +
                         "  \"copyright\": \"Copyright Sveriges Radio 2023. All rights reserved.\",\n" +
                         "  \"schedule\": [\n" +
@@ -206,22 +240,137 @@ public class SrRadioApiTest {
                         "    }" +
                         "   ]" +
                         "}"
-        );
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
+        ));
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(httpResponse));
         SrRadioApi srRadioApi = new SrRadioApi(httpClient);
         SrRadioApiScheduleResponse srRadioApiScheduleResponse = srRadioApi.getSchedule(164);
         Schedule schedule = srRadioApiScheduleResponse.toSchedule();
         assertTrue(schedule.getPrograms().size() > 0);
     }
 
+    @Test
+    void shouldRequestAllScheduleDaysConcurrently() {
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
+        CompletableFuture<HttpResponse<InputStream>> pendingResponse = new CompletableFuture<>();
+
+        when(httpResponse.statusCode()).thenReturn(200);
+
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponse.body()).thenAnswer(invocation -> stream("{\"schedule\": []}"));
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(pendingResponse);
+
+        SrRadioApi srRadioApi = new SrRadioApi(httpClient);
+        CompletableFuture<SrRadioApiScheduleResponse> scheduleFuture = srRadioApi.getScheduleAsync(164);
+
+        verify(httpClient, times(3)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        assertFalse(scheduleFuture.isDone());
+
+        pendingResponse.complete(httpResponse);
+        assertTrue(scheduleFuture.join().schedule().isEmpty());
+    }
+
+    @Test
+    void shouldFetchSchedulesOfSeveralChannelsInOneBatch() throws InterruptedException {
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenAnswer(invocation -> {
+            String query = invocation.getArgument(0, HttpRequest.class).uri().getQuery();
+            HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
+            if (query.contains("channelid=164")) {
+                when(httpResponse.statusCode()).thenReturn(400);
+            } else {
+                String date = query.substring(query.indexOf("date=") + 5);
+                when(httpResponse.statusCode()).thenReturn(200);
+                when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+                when(httpResponse.body()).thenReturn(stream("{\"schedule\": [{\"episodeid\": " + date.replace("-", "") + ", \"title\": \"" + date + "\"}]}"));
+            }
+            return CompletableFuture.completedFuture(httpResponse);
+        });
+
+        SrRadioApi srRadioApi = new SrRadioApi(httpClient);
+        RadioApiSchedulesResponse response = srRadioApi.getSchedules(List.of(132, 164), LocalDate.of(2023, 8, 6), LocalDate.of(2023, 8, 7));
+
+        verify(httpClient, times(4)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        SrRadioApiScheduleResponse schedule = (SrRadioApiScheduleResponse) response.schedules().get(132);
+        assertEquals(List.of("2023-08-06", "2023-08-07"), schedule.schedule().stream().map(SrRadioApiScheduleItemResponse::title).toList());
+        assertFalse(response.schedules().containsKey(164));
+        assertInstanceOf(HttpBadRequestException.class, response.failures().get(164));
+    }
+
+    @Test
+    void shouldOnlyFetchScheduleDaysThatMayHaveChanged() {
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-08-07T12:00:00Z"));
+        Clock clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenAnswer(invocation -> now.get());
+
+        List<String> requestedDates = new ArrayList<>();
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenAnswer(invocation -> {
+            String query = invocation.getArgument(0, HttpRequest.class).uri().getQuery();
+            String date = query.substring(query.indexOf("date=") + 5);
+            requestedDates.add(date);
+            HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
+            when(httpResponse.statusCode()).thenReturn(200);
+            when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+            when(httpResponse.body()).thenReturn(stream("{\"schedule\": [{\"episodeid\": " + date.replace("-", "") + ", \"title\": \"" + date + "\"}]}"));
+            return CompletableFuture.completedFuture(httpResponse);
+        });
+
+        SrRadioApi srRadioApi = new SrRadioApi(httpClient, SrRadioApi.BASE_URL, new ScheduleDayCache(clock, Duration.ZERO));
+        srRadioApi.getScheduleAsync(132).join();
+        assertEquals(List.of("2023-08-06", "2023-08-07", "2023-08-08"), requestedDates);
+
+        requestedDates.clear();
+        srRadioApi.getScheduleAsync(132).join();
+        assertEquals(List.of("2023-08-07", "2023-08-08"), requestedDates);
+
+        requestedDates.clear();
+        now.set(Instant.parse("2023-08-08T00:30:00Z"));
+        SrRadioApiScheduleResponse schedule = srRadioApi.getScheduleAsync(132).join();
+        assertEquals(List.of("2023-08-08", "2023-08-09"), requestedDates);
+        assertEquals(List.of("2023-08-07", "2023-08-08", "2023-08-09"), schedule.schedule().stream().map(SrRadioApiScheduleItemResponse::title).toList());
+    }
+
+    @Test
+    void shouldRequestAndDecompressGzipResponses() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("{\"schedule\": [{\"episodeid\": 1, \"title\": \"Ekot\"}]}".getBytes(StandardCharsets.UTF_8));
+        }
+        List<HttpRequest> requests = new ArrayList<>();
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0, HttpRequest.class));
+            HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
+            when(httpResponse.statusCode()).thenReturn(200);
+            when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Encoding", List.of("gzip")), (name, value) -> true));
+            when(httpResponse.body()).thenReturn(new ByteArrayInputStream(compressed.toByteArray()));
+            return CompletableFuture.completedFuture(httpResponse);
+        });
+        HttpClientProfile profile = HttpClientProfile.defaults().withTimeouts(Duration.ofSeconds(1), Duration.ofSeconds(3));
+
+        SrRadioApi srRadioApi = new SrRadioApi(httpClient, SrRadioApi.BASE_URL, profile, new ScheduleDayCache(Clock.systemUTC(), Duration.ZERO));
+        SrRadioApiScheduleResponse schedule = srRadioApi.getScheduleAsync(132).join();
+
+        assertEquals(List.of("Ekot", "Ekot", "Ekot"), schedule.schedule().stream().map(SrRadioApiScheduleItemResponse::title).toList());
+        assertEquals(3, requests.size());
+        for (HttpRequest request : requests) {
+            assertEquals(Optional.of("gzip"), request.headers().firstValue("Accept-Encoding"));
+            assertEquals(Optional.of(Duration.ofSeconds(3)), request.timeout());
+        }
+    }
+
     @Test
     void shouldFetchP4JämtlandProgram() throws IOException, InterruptedException, HttpBadRequestException, URISyntaxException {
         HttpClient httpClient = mock(HttpClient.class);
-        HttpResponse<String> httpResponse = mock(HttpResponse.class);
+        HttpResponse<InputStream> httpResponse = mock(HttpResponse.class);
 
         when(httpResponse.statusCode()).thenReturn(200);
 
-        when(httpResponse.body()).thenReturn(
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+
+        when(httpResponse.body()).thenReturn(stream(
                 "{\n" +
                         "  \"copyright\": \"Copyright Sveriges Radio 2023. All rights reserved.\",\n" +
                         "  \"program\": {\n" +
@@ -263,7 +412,7 @@ public class SrRadioApiTest {
                         "    \"name\": \"Nyheter P4 Jämtland\"\n" +
                         "  }\n" +
                         "}"
-        );
+        ));
         when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(httpResponse);
         SrRadioApi srRadioApi = new SrRadioApi(httpClient);
         SrRadioApiProgramResponse srRadioApiProgramResponse = srRadioApi.getProgram(78);
@@ -344,4 +493,20 @@ public class SrRadioApiTest {
 
         SrRadioApi srRadioApi = new SrRadioApi();
     }
+
+    @Test
+    void shouldParseTimestampsAcrossOffsetChanges() {
+        ZoneId stockholm = ZoneId.of("Europe/Stockholm");
+        SrRadioApiDateParser dateParser = new SrRadioApiDateParser(stockholm);
+        long beforeSummerTime = 1711846800000L - 60 * 60 * 1000;
+        for (long millis = beforeSummerTime; millis < beforeSummerTime + 3 * 60 * 60 * 1000; millis += 15 * 60 * 1000 + 1) {
+            assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), stockholm), dateParser.parse("/Date(" + millis + ")/"));
+        }
+        long beforeWinterTime = 1729990800000L - 60 * 60 * 1000;
+        for (long millis = beforeWinterTime + 3 * 60 * 60 * 1000; millis > beforeWinterTime; millis -= 15 * 60 * 1000 + 1) {
+            assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), stockholm), dateParser.parse("/Date(" + millis + "+0100)/"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> dateParser.parse("/Date()/"));
+        assertThrows(IllegalArgumentException.class, () -> dateParser.parse("1691359200000"));
+    }
 }